@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.filereader;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.logreader.internal.filereader.api.FileReaderException;
+import org.openhab.binding.logreader.internal.filereader.api.FileReaderListener;
+import org.openhab.binding.logreader.internal.searchengine.SearchEngine;
+
+/**
+ * Tests cases for {@link FileTailer}
+ *
+ * @author agent - Initial contribution
+ */
+public class FileTailerTest {
+    private static final long REFRESH_RATE = 50;
+    private static final String ROTATED = "<rotated>";
+    private static final String SYNC = "sync";
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private final FileTailer tailer = new FileTailer();
+    private ScheduledExecutorService scheduler;
+    private Path directory;
+    private Path file;
+    private SearchEngine filter;
+
+    private final FileReaderListener listener = new FileReaderListener() {
+        @Override
+        public void fileNotFound() {
+            events.add("<not found>");
+        }
+
+        @Override
+        public void fileRotated() {
+            events.add(ROTATED);
+        }
+
+        @Override
+        public boolean accept(byte[] data, int offset, int length) {
+            return filter == null || filter.mayMatch(data, offset, length);
+        }
+
+        @Override
+        public void handle(String line) {
+            events.add(line);
+        }
+
+        @Override
+        public void handle(Exception ex) {
+            events.add("<" + ex + ">");
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        directory = Files.createTempDirectory("logreader");
+        file = directory.resolve("openhab.log");
+        tailer.registerListener(listener);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        tailer.stop();
+        scheduler.shutdownNow();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private void append(String data) throws IOException {
+        Files.write(file, data.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    private String nextEvent() throws InterruptedException {
+        String event = events.poll(5, TimeUnit.SECONDS);
+        assertThat("no event within 5 seconds", event, is(notNullValue()));
+        return event;
+    }
+
+    /**
+     * Start the tailer and wait until it has opened the file, the existing content is skipped.
+     */
+    private void start() throws FileReaderException, IOException, InterruptedException {
+        tailer.start(file.toString(), REFRESH_RATE, scheduler);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String event;
+        do {
+            append(SYNC + "\n");
+            event = events.poll(REFRESH_RATE * 2, TimeUnit.MILLISECONDS);
+        } while (!SYNC.equals(event) && System.nanoTime() < deadline);
+        assertThat(event, is(SYNC));
+        // lines appended while waiting for the first one
+        Thread.sleep(REFRESH_RATE * 2);
+        events.removeIf(SYNC::equals);
+    }
+
+    @Test
+    public void appendTest() throws Exception {
+        append("existing line\n");
+        start();
+
+        append("first\n");
+        // the line is reported once its end is written
+        append("sec");
+        assertThat(nextEvent(), is("first"));
+        Thread.sleep(REFRESH_RATE * 3);
+        assertThat(events.isEmpty(), is(true));
+        append("ond\r\nthird\n");
+
+        assertThat(nextEvent(), is("second"));
+        assertThat(nextEvent(), is("third"));
+    }
+
+    @Test
+    public void renameTest() throws Exception {
+        start();
+
+        append("last line of the old file\n");
+        append("without end of line");
+        assertThat(nextEvent(), is("last line of the old file"));
+        Files.move(file, directory.resolve("openhab.log.1"));
+        append("first line of the new file\n");
+
+        // the incomplete line is flushed before the rotation is reported, the new file is read from its beginning
+        assertThat(nextEvent(), is("without end of line"));
+        assertThat(nextEvent(), is(ROTATED));
+        assertThat(nextEvent(), is("first line of the new file"));
+    }
+
+    @Test
+    public void truncateTest() throws Exception {
+        start();
+
+        append("a line which is longer than the content after the truncation\n");
+        assertThat(nextEvent(), is("a line which is longer than the content after the truncation"));
+        Files.write(file, "after\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+
+        assertThat(nextEvent(), is(ROTATED));
+        assertThat(nextEvent(), is("after"));
+    }
+
+    @Test
+    public void prefilterTest() throws Exception {
+        start();
+        filter = new SearchEngine("ERROR|Exception", "");
+
+        append("[INFO ] started\n[ERROR] failed\r\n[WARN ] slow\nIOException: timeout\n[INFO ] done\n");
+
+        assertThat(nextEvent(), is("[ERROR] failed"));
+        assertThat(nextEvent(), is("IOException: timeout"));
+        Thread.sleep(REFRESH_RATE * 3);
+        assertThat(events.isEmpty(), is(true));
+    }
+}
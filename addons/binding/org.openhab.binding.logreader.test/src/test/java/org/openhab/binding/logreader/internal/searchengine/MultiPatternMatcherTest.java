@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.searchengine;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for {@link MultiPatternMatcher}
+ *
+ * @author agent - Initial contribution
+ */
+public class MultiPatternMatcherTest {
+
+    private static boolean mayMatch(MultiPatternMatcher matcher, String data) {
+        // surround the data, the filter must only look at the given range
+        byte[] bytes = ("ERROR " + data + " ERROR").getBytes(StandardCharsets.UTF_8);
+        return matcher.mayMatch(bytes, 6, bytes.length - 12);
+    }
+
+    @Test
+    public void literalPatternsTest() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("ERROR", "WARN"));
+
+        assertThat(matcher.find("2019-01-01 [WARN ] something"), is(1));
+        assertThat(matcher.find("2019-01-01 [ERROR] something"), is(0));
+        assertThat(matcher.find("2019-01-01 [INFO ] something"), is(-1));
+        assertTrue(mayMatch(matcher, "[WARN ] something"));
+        assertFalse(mayMatch(matcher, "[INFO ] something"));
+    }
+
+    @Test
+    public void prefixTest() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(
+                Arrays.asList("Exception: .*timeout", "ERROR+ in", "Connection?s? lost"));
+
+        assertThat(matcher.find("java.io.IOException: read timeout"), is(0));
+        assertThat(matcher.find("ERRORRR in handler"), is(1));
+        // the last character before an optional quantifier is not part of the prefix
+        assertThat(matcher.find("Connections lost"), is(2));
+        assertThat(matcher.find("Connectios lost"), is(2));
+        assertThat(matcher.find("Exception: none"), is(-1));
+
+        assertTrue(mayMatch(matcher, "ERROR in handler"));
+        assertTrue(mayMatch(matcher, "Connectio lost"));
+        assertFalse(mayMatch(matcher, "Everything fine"));
+    }
+
+    @Test
+    public void backReferenceTest() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(
+                Arrays.asList("(\\w+) failed", "item (\\w+) changed to \\1", "WARN"));
+
+        // the pattern with a back reference is matched on its own, combining it would change its group numbers
+        assertThat(matcher.find("item Switch changed to Switch"), is(1));
+        assertThat(matcher.find("item Switch changed to ON"), is(-1));
+        assertThat(matcher.find("binding failed"), is(0));
+        assertThat(matcher.find("WARN: item Switch changed to Switch"), is(2));
+        assertTrue(mayMatch(matcher, "anything"));
+    }
+
+    @Test
+    public void alternationTest() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("ERROR|FATAL", "Exception: .*", "WARN"));
+
+        // a match of an alternation may start with any alternative, none of them is a required prefix
+        assertThat(matcher.find("[FATAL] shutting down"), is(0));
+        assertThat(matcher.find("[ERROR] shutting down"), is(0));
+        assertThat(matcher.find("java.io.IOException: read timeout"), is(1));
+        assertThat(matcher.find("[WARN ] low memory"), is(2));
+        assertThat(matcher.find("[INFO ] started"), is(-1));
+        assertTrue(mayMatch(matcher, "[FATAL] shutting down"));
+    }
+
+    @Test
+    public void groupAlternationTest() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("(Exception|Error): .*", "WARN"));
+
+        assertThat(matcher.find("java.lang.Error: out of memory"), is(0));
+        assertThat(matcher.find("java.io.IOException: read timeout"), is(0));
+        assertThat(matcher.find("[INFO ] Error handling disabled"), is(-1));
+        assertTrue(mayMatch(matcher, "java.lang.Error: out of memory"));
+    }
+
+    @Test
+    public void firstMatchingPatternTest() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("ERROR.*", "ERROR"));
+
+        // plain strings are checked first
+        assertThat(matcher.find("ERROR"), is(1));
+        assertThat(matcher.getPatterns(), is(Arrays.asList("ERROR.*", "ERROR")));
+    }
+
+    @Test
+    public void noPatternsTest() {
+        MultiPatternMatcher matcher = new MultiPatternMatcher(Collections.emptyList());
+
+        assertThat(matcher.find("anything"), is(-1));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void invalidPatternTest() {
+        new MultiPatternMatcher(Arrays.asList("ERROR", "[unclosed"));
+    }
+}
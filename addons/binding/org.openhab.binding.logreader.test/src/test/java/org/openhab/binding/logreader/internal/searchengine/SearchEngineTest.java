@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.searchengine;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for {@link SearchEngine}
+ *
+ * @author agent - Initial contribution
+ */
+public class SearchEngineTest {
+
+    @Test
+    public void matchCountsTest() {
+        SearchEngine engine = new SearchEngine("ERROR|Exception: .*", "ignored");
+
+        assertThat(engine.match("[ERROR] failed"), is("ERROR"));
+        assertThat(engine.match("IOException: read timeout"), is("Exception: .*"));
+        assertThat(engine.match("[ERROR] failed"), is("ERROR"));
+        // blacklisted and not matching lines are not counted
+        assertThat(engine.match("[ERROR] ignored"), is(nullValue()));
+        assertThat(engine.match("[INFO ] started"), is(nullValue()));
+
+        assertThat(engine.getMatchCount(), is(3L));
+        assertThat(engine.getPatternMatchCounts().get("ERROR"), is(2L));
+        assertThat(engine.getPatternMatchCounts().get("Exception: .*"), is(1L));
+
+        engine.clearMatchCount();
+        assertThat(engine.getMatchCount(), is(0L));
+        assertThat(engine.getPatternMatchCounts().get("ERROR"), is(0L));
+    }
+}
@@ -58,6 +58,25 @@ public abstract class AbstractLogFileReader implements LogFileReader {
         }
     }
 
+    /**
+     * Check if any of the registered listeners accepts the undecoded line.
+     *
+     */
+    public boolean isLineAccepted(byte[] data, int offset, int length) {
+        for (FileReaderListener fileReaderListener : fileReaderListeners) {
+            try {
+                if (fileReaderListener.accept(data, offset, length)) {
+                    return true;
+                }
+            } catch (Exception e) {
+                // rather handle the line than lose it
+                logger.debug("An exception occurred while calling the FileReaderListener. ", e);
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Send read log line to all registered listeners.
      *
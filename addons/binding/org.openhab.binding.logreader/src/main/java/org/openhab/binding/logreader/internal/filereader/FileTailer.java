@@ -12,12 +12,27 @@
  */
 package org.openhab.binding.logreader.internal.filereader;
 
-import java.io.File;
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.input.Tailer;
-import org.apache.commons.io.input.TailerListener;
-import org.apache.commons.io.input.TailerListenerAdapter;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.logreader.internal.filereader.api.FileReaderException;
 import org.openhab.binding.logreader.internal.filereader.api.LogFileReader;
@@ -25,48 +40,42 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Apache Tailer based log file reader implementation.
+ * Log file reader implementation based on {@link FileChannel} reads.
+ *
+ * The file is read when the file system reports a change in its directory, or at the latest after the refresh
+ * rate. Lines are split on the raw bytes and only decoded as UTF-8 if one of the listeners accepts them.
+ * Rotation is detected both by renaming (the file at the path is a different file) and by truncation (the file
+ * is shorter than the read position). After a rotation the new file is read from its beginning.
  *
  * @author Pauli Anttila - Initial contribution
  */
 public class FileTailer extends AbstractLogFileReader implements LogFileReader {
 
-    private final Logger logger = LoggerFactory.getLogger(FileTailer.class);
-
-    private Tailer tailer;
-
-    TailerListener logListener = new TailerListenerAdapter() {
-
-        @Override
-        public void handle(@Nullable String line) {
-            sendLineToListeners(line);
-        }
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
 
-        @Override
-        public void fileNotFound() {
-            sendFileNotFoundToListeners();
-        }
+    private final Logger logger = LoggerFactory.getLogger(FileTailer.class);
 
-        @Override
-        public void handle(@Nullable Exception e) {
-            sendExceptionToListeners(e);
-        }
-
-        @Override
-        public void fileRotated() {
-            sendFileRotationToListeners();
-        }
-    };
+    private @Nullable TailTask task;
 
     @Override
     public void start(String filePath, long refreshRate, ScheduledExecutorService scheduler)
             throws FileReaderException {
-        tailer = new Tailer(new File(filePath), logListener, refreshRate, true, false, true);
+        Path file;
+        try {
+            file = Paths.get(filePath).toAbsolutePath();
+        } catch (InvalidPathException e) {
+            throw new FileReaderException(e);
+        }
+
+        TailTask task = new TailTask(file, Math.max(refreshRate, 1), createWatchService(file, refreshRate));
+        this.task = task;
 
         try {
             logger.debug("Start executor");
-            scheduler.execute(tailer);
+            scheduler.execute(task);
         } catch (Exception e) {
+            task.stop();
             throw new FileReaderException(e);
         }
     }
@@ -75,8 +84,256 @@ public class FileTailer extends AbstractLogFileReader implements LogFileReader {
     public void stop() {
         logger.debug("Shutdown");
 
-        if (tailer != null) {
-            tailer.stop();
+        TailTask task = this.task;
+        if (task != null) {
+            task.stop();
+            this.task = null;
+        }
+    }
+
+    private @Nullable WatchService createWatchService(Path file, long refreshRate) {
+        Path directory = file.getParent();
+        if (directory == null) {
+            return null;
+        }
+        WatchService watchService = null;
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            return watchService;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("Can't watch directory '{}', reading every {} ms: {}", directory, refreshRate,
+                    e.getMessage());
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException ex) {
+                    logger.debug("Closing watch service failed", ex);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads one file until stopped. All fields except {@link #running} are only accessed by the reading thread.
+     */
+    private class TailTask implements Runnable {
+        private final Path file;
+        private final Path fileName;
+        private final long refreshRate;
+        private final @Nullable WatchService watchService;
+
+        private volatile boolean running = true;
+
+        private @Nullable FileChannel channel;
+        private @Nullable Object fileKey;
+        private long position;
+        private boolean fromEnd = true;
+        private boolean notFoundReported;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private byte[] pending = new byte[256];
+        private int pendingLength;
+
+        TailTask(Path file, long refreshRate, @Nullable WatchService watchService) {
+            this.file = file;
+            this.fileName = file.getFileName();
+            this.refreshRate = refreshRate;
+            this.watchService = watchService;
+        }
+
+        void stop() {
+            running = false;
+            WatchService watchService = this.watchService;
+            if (watchService != null) {
+                try {
+                    // wakes up the reading thread
+                    watchService.close();
+                } catch (IOException e) {
+                    logger.debug("Closing watch service failed", e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    try {
+                        poll();
+                    } catch (IOException e) {
+                        sendExceptionToListeners(e);
+                        closeChannel();
+                    }
+                    awaitChange();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // stopped
+            } finally {
+                closeChannel();
+            }
+        }
+
+        private void poll() throws IOException {
+            FileChannel channel = this.channel;
+            if (channel == null) {
+                channel = open();
+                if (channel == null) {
+                    return;
+                }
+            }
+
+            BasicFileAttributes attributes = readAttributes();
+            Object fileKey = this.fileKey;
+            boolean replaced = attributes != null && fileKey != null && !fileKey.equals(attributes.fileKey());
+            boolean truncated = attributes != null && attributes.size() < position;
+            if (replaced || truncated) {
+                // read what was written to the old file before it was rotated
+                read(channel);
+                flushPending();
+                closeChannel();
+                logger.debug("File '{}' rotated", file);
+                sendFileRotationToListeners();
+                channel = open();
+                if (channel == null) {
+                    return;
+                }
+            }
+            read(channel);
+        }
+
+        private @Nullable FileChannel open() throws IOException {
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                if (!notFoundReported) {
+                    notFoundReported = true;
+                    sendFileNotFoundToListeners();
+                }
+                return null;
+            }
+            notFoundReported = false;
+            BasicFileAttributes attributes = readAttributes();
+            fileKey = attributes != null ? attributes.fileKey() : null;
+            // the first file is read from its end, files created by rotation from their beginning
+            position = fromEnd ? channel.size() : 0;
+            fromEnd = false;
+            this.channel = channel;
+            return channel;
+        }
+
+        private @Nullable BasicFileAttributes readAttributes() throws IOException {
+            try {
+                return Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        private void closeChannel() {
+            FileChannel channel = this.channel;
+            if (channel != null) {
+                this.channel = null;
+                pendingLength = 0;
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Closing file '{}' failed", file, e);
+                }
+            }
+        }
+
+        private void read(FileChannel channel) throws IOException {
+            while (running) {
+                buffer.clear();
+                int count = channel.read(buffer, position);
+                if (count <= 0) {
+                    return;
+                }
+                position += count;
+                split(buffer.array(), count);
+            }
+        }
+
+        private void split(byte[] data, int length) {
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (data[i] == '\n') {
+                    if (pendingLength > 0) {
+                        append(data, start, i - start);
+                        flushPending();
+                    } else {
+                        emit(data, start, i - start);
+                    }
+                    start = i + 1;
+                }
+            }
+            append(data, start, length - start);
+        }
+
+        /**
+         * Keep the beginning of a line until its end is read.
+         */
+        private void append(byte[] data, int offset, int length) {
+            if (length == 0) {
+                return;
+            }
+            if (pendingLength + length > MAX_LINE_LENGTH) {
+                flushPending();
+            }
+            if (pendingLength + length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+            }
+            System.arraycopy(data, offset, pending, pendingLength, length);
+            pendingLength += length;
+        }
+
+        private void flushPending() {
+            if (pendingLength > 0) {
+                emit(pending, 0, pendingLength);
+                pendingLength = 0;
+            }
+        }
+
+        private void emit(byte[] data, int offset, int length) {
+            if (length > 0 && data[offset + length - 1] == '\r') {
+                length--;
+            }
+            if (isLineAccepted(data, offset, length)) {
+                sendLineToListeners(new String(data, offset, length, StandardCharsets.UTF_8));
+            }
+        }
+
+        /**
+         * Wait until the file system reports a change of the file, or at most the refresh rate.
+         */
+        private void awaitChange() throws InterruptedException {
+            WatchService watchService = this.watchService;
+            if (watchService == null) {
+                Thread.sleep(refreshRate);
+                return;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(refreshRate);
+            long remaining;
+            while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+                if (key == null) {
+                    return;
+                }
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // other files in the same directory don't wake up the reader
+                    if (event.kind() == OVERFLOW || fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    return;
+                }
+            }
         }
     }
 }
@@ -37,6 +37,19 @@ public interface FileReaderListener {
      */
     void handle(String line);
 
+    /**
+     * This method is called for each new line before it is decoded. Lines which are not accepted by any listener
+     * are skipped without creating a string.
+     *
+     * @param data buffer containing the UTF-8 encoded line.
+     * @param offset start of the line in the buffer.
+     * @param length length of the line.
+     * @return true if the line should be passed to {@link #handle(String)}.
+     */
+    default boolean accept(byte[] data, int offset, int length) {
+        return true;
+    }
+
     /**
      * This method is called when exception has occurred.
      *
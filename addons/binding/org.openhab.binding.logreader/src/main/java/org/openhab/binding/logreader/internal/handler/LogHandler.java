@@ -117,6 +117,11 @@ public class LogHandler extends BaseThingHandler implements FileReaderListener {
     public void dispose() {
         logger.debug("Stopping thing");
         shutdown();
+        if (errorEngine != null && warningEngine != null && customEngine != null) {
+            logger.debug("Matches per pattern: errors {}, warnings {}, custom events {}",
+                    errorEngine.getPatternMatchCounts(), warningEngine.getPatternMatchCounts(),
+                    customEngine.getPatternMatchCounts());
+        }
     }
 
     private void updateChannel(ChannelUID channelUID, Command command, SearchEngine matcher) {
@@ -166,6 +171,16 @@ public class LogHandler extends BaseThingHandler implements FileReaderListener {
         updateChannelIfLinked(CHANNEL_LOGROTATED, new DateTimeType(Calendar.getInstance()));
     }
 
+    @Override
+    public boolean accept(byte[] data, int offset, int length) {
+        // any line sets the thing back online
+        if (thing.getStatus() != ThingStatus.ONLINE) {
+            return true;
+        }
+        return errorEngine.mayMatch(data, offset, length) || warningEngine.mayMatch(data, offset, length)
+                || customEngine.mayMatch(data, offset, length);
+    }
+
     @Override
     public void handle(String line) {
         if (line == null) {
@@ -176,17 +191,23 @@ public class LogHandler extends BaseThingHandler implements FileReaderListener {
             updateStatus(ThingStatus.ONLINE);
         }
 
-        if (errorEngine.isMatching(line)) {
+        String pattern = errorEngine.match(line);
+        if (pattern != null) {
+            logger.trace("Line matches error pattern '{}'", pattern);
             updateChannelIfLinked(CHANNEL_ERRORS, new DecimalType(errorEngine.getMatchCount()));
             updateChannelIfLinked(CHANNEL_LASTERROR, new StringType(line));
             triggerChannel(CHANNEL_NEWERROR, line);
         }
-        if (warningEngine.isMatching(line)) {
+        pattern = warningEngine.match(line);
+        if (pattern != null) {
+            logger.trace("Line matches warning pattern '{}'", pattern);
             updateChannelIfLinked(CHANNEL_WARNINGS, new DecimalType(warningEngine.getMatchCount()));
             updateChannelIfLinked(CHANNEL_LASTWARNING, new StringType(line));
             triggerChannel(CHANNEL_NEWWARNING, line);
         }
-        if (customEngine.isMatching(line)) {
+        pattern = customEngine.match(line);
+        if (pattern != null) {
+            logger.trace("Line matches custom pattern '{}'", pattern);
             updateChannelIfLinked(CHANNEL_CUSTOMEVENTS, new DecimalType(customEngine.getMatchCount()));
             updateChannelIfLinked(CHANNEL_LASTCUSTOMEVENT, new StringType(line));
             triggerChannel(CHANNEL_NEWCUSTOM, line);
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.logreader.internal.searchengine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * This class matches data against a set of regular expressions with a single scan.
+ *
+ * Patterns without any regular expression syntax are searched as plain strings. The other patterns are combined
+ * to one alternation of named groups, so that the data is scanned once and the group tells which pattern matched.
+ * If all of the combined patterns start with literal text, the scan is skipped when none of these prefixes occur in
+ * the data. Patterns with back references cannot be combined, as wrapping them to groups would change the group
+ * numbers. They are matched separately.
+ *
+ * Data which is not decoded yet can be checked with {@link #mayMatch(byte[], int, int)}, which looks for the literal
+ * text every pattern starts with on the UTF-8 encoded bytes.
+ *
+ * @author agent - Initial contribution
+ */
+public class MultiPatternMatcher {
+
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String OPTIONAL_QUANTIFIERS = "?*{";
+    private static final String GROUP_PREFIX = "logreaderPattern";
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+    private final List<String> patterns = new ArrayList<>();
+
+    private final List<String> literals = new ArrayList<>();
+    private final List<Integer> literalIndexes = new ArrayList<>();
+
+    private Pattern combined;
+    private final List<Integer> combinedIndexes = new ArrayList<>();
+    private final List<String> prefixes = new ArrayList<>();
+    private boolean prefilter = true;
+
+    private final List<Pattern> separate = new ArrayList<>();
+    private final List<Integer> separateIndexes = new ArrayList<>();
+
+    private final List<byte[]> requiredLiterals = new ArrayList<>();
+    private boolean byteFilter = true;
+
+    /**
+     * Compile patterns.
+     *
+     * @param patterns regular expressions
+     */
+    public MultiPatternMatcher(List<String> patterns) throws PatternSyntaxException {
+        StringBuilder alternation = new StringBuilder();
+        for (String pattern : patterns) {
+            // fail on invalid patterns with the error of the pattern itself
+            Pattern compiled = Pattern.compile(pattern);
+            int index = this.patterns.size();
+            this.patterns.add(pattern);
+
+            String prefix = literalPrefix(pattern);
+            if (prefix.isEmpty()) {
+                byteFilter = false;
+            } else {
+                requiredLiterals.add(prefix.getBytes(StandardCharsets.UTF_8));
+            }
+
+            if (isLiteral(pattern)) {
+                literals.add(pattern);
+                literalIndexes.add(index);
+            } else if (BACK_REFERENCE.matcher(pattern).find()) {
+                separate.add(compiled);
+                separateIndexes.add(index);
+            } else {
+                if (alternation.length() > 0) {
+                    alternation.append('|');
+                }
+                alternation.append("(?<").append(GROUP_PREFIX).append(combinedIndexes.size()).append('>')
+                        .append(pattern).append(')');
+                combinedIndexes.add(index);
+                if (prefix.isEmpty()) {
+                    prefilter = false;
+                } else {
+                    prefixes.add(prefix);
+                }
+            }
+        }
+        if (!combinedIndexes.isEmpty()) {
+            combined = Pattern.compile(alternation.toString());
+        }
+    }
+
+    /**
+     * Return the patterns in the order they were given.
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Find the first pattern which matches the data. Plain string patterns are checked first.
+     *
+     * @param data data against search will be done.
+     * @return index of the matching pattern, or -1 if none of the patterns match.
+     */
+    public int find(String data) {
+        for (int i = 0; i < literals.size(); i++) {
+            if (data.contains(literals.get(i))) {
+                return literalIndexes.get(i);
+            }
+        }
+        if (combined != null && (!prefilter || containsAnyPrefix(data))) {
+            Matcher matcher = combined.matcher(data);
+            if (matcher.find()) {
+                for (int i = 0; i < combinedIndexes.size(); i++) {
+                    if (matcher.start(GROUP_PREFIX + i) >= 0) {
+                        return combinedIndexes.get(i);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < separate.size(); i++) {
+            if (separate.get(i).matcher(data).find()) {
+                return separateIndexes.get(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if any of the patterns may match the UTF-8 encoded data, without decoding it.
+     *
+     * @param data buffer containing the data.
+     * @param offset start of the data in the buffer.
+     * @param length length of the data.
+     * @return false if {@link #find(String)} is known to return -1 for the decoded data.
+     */
+    public boolean mayMatch(byte[] data, int offset, int length) {
+        if (!byteFilter) {
+            return true;
+        }
+        for (byte[] literal : requiredLiterals) {
+            if (indexOf(data, offset, length, literal) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(byte[] data, int offset, int length, byte[] literal) {
+        int last = offset + length - literal.length;
+        for (int i = offset; i <= last; i++) {
+            int j = 0;
+            while (j < literal.length && data[i + j] == literal[j]) {
+                j++;
+            }
+            if (j == literal.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean containsAnyPrefix(String data) {
+        for (String prefix : prefixes) {
+            if (data.contains(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLiteral(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (METACHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the literal text every match of the pattern starts with, e.g. "ERROR" for "ERROR+" and "ERRO" for
+     * "ERROR?".
+     */
+    private static String literalPrefix(String pattern) {
+        // a match of an alternation may start with any of its alternatives
+        if (pattern.indexOf('|') >= 0) {
+            return "";
+        }
+        int end = 0;
+        while (end < pattern.length() && METACHARACTERS.indexOf(pattern.charAt(end)) < 0) {
+            end++;
+        }
+        // the last character is optional if followed by a quantifier allowing zero occurrences
+        if (end > 0 && end < pattern.length() && OPTIONAL_QUANTIFIERS.indexOf(pattern.charAt(end)) >= 0) {
+            end--;
+        }
+        return pattern.substring(0, end);
+    }
+}
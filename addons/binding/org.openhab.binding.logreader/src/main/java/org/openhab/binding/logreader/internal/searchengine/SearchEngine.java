@@ -12,10 +12,11 @@
  */
 package org.openhab.binding.logreader.internal.searchengine;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -27,10 +28,11 @@ import org.eclipse.jdt.annotation.Nullable;
  */
 public class SearchEngine {
 
-    private List<Pattern> matchers;
-    private List<Pattern> blacklistingMatchers;
+    private MultiPatternMatcher matchers;
+    private MultiPatternMatcher blacklistingMatchers;
 
     private long matchCount;
+    private long[] patternMatchCounts;
 
     /**
      * Initialize search patterns.
@@ -40,8 +42,9 @@ public class SearchEngine {
      *
      */
     public SearchEngine(String patterns, String blacklistingPatterns) throws PatternSyntaxException {
-        matchers = compilePatterns(patterns);
-        blacklistingMatchers = compilePatterns(blacklistingPatterns);
+        matchers = new MultiPatternMatcher(splitPatterns(patterns));
+        blacklistingMatchers = new MultiPatternMatcher(splitPatterns(blacklistingPatterns));
+        patternMatchCounts = new long[matchers.getPatterns().size()];
     }
 
     /**
@@ -51,13 +54,35 @@ public class SearchEngine {
      * @return true if one of the search patterns found.
      */
     public boolean isMatching(String data) {
-        if (isMatching(matchers, data)) {
-            if (notBlacklisted(data)) {
-                matchCount++;
-                return true;
-            }
+        return match(data) != null;
+    }
+
+    /**
+     * Check which of the provided search patterns the data is matching to.
+     *
+     * @param data data against search will be done.
+     * @return the search pattern found, or null if none of the search patterns found or the data is blacklisted.
+     */
+    public @Nullable String match(String data) {
+        int index = matchers.find(data);
+        if (index >= 0 && notBlacklisted(data)) {
+            matchCount++;
+            patternMatchCounts[index]++;
+            return matchers.getPatterns().get(index);
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Quick check on the UTF-8 encoded data if it may match to one of the provided search patterns.
+     *
+     * @param data buffer containing the data.
+     * @param offset start of the data in the buffer.
+     * @param length length of the data.
+     * @return false if {@link #isMatching(String)} is known to return false for the decoded data.
+     */
+    public boolean mayMatch(byte[] data, int offset, int length) {
+        return matchers.mayMatch(data, offset, length);
     }
 
     public long getMatchCount() {
@@ -68,44 +93,39 @@ public class SearchEngine {
         this.matchCount = matchCount;
     }
 
+    /**
+     * Return the number of matches per search pattern.
+     *
+     * @return match counts in the order of the search patterns.
+     */
+    public Map<String, Long> getPatternMatchCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        List<String> patterns = matchers.getPatterns();
+        for (int i = 0; i < patterns.size(); i++) {
+            counts.put(patterns.get(i), patternMatchCounts[i]);
+        }
+        return counts;
+    }
+
     public void clearMatchCount() {
         setMatchCount(0);
+        Arrays.fill(patternMatchCounts, 0);
     }
 
     /**
-     * Split pattern string and precompile search patterns.
+     * Split pattern string.
      *
      * @param patterns patterns which will handled.
-     * @return list of precompiled patterns. If pattern parameter is null, empty list is returned.
+     * @return list of patterns. If pattern parameter is null, empty list is returned.
      */
-    private List<Pattern> compilePatterns(@Nullable String patterns) throws PatternSyntaxException {
-        List<Pattern> patternsList = new ArrayList<Pattern>();
-
-        if (patterns != null && !patterns.isEmpty()) {
-            String list[] = patterns.split("\\|");
-            if (list.length > 0) {
-
-                for (String patternStr : list) {
-                    patternsList.add(Pattern.compile(patternStr));
-                }
-            }
+    private List<String> splitPatterns(@Nullable String patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return Collections.emptyList();
         }
-        return patternsList;
+        return Arrays.asList(patterns.split("\\|"));
     }
 
     private boolean notBlacklisted(String data) {
-        return !isMatching(blacklistingMatchers, data);
-    }
-
-    private boolean isMatching(@Nullable List<Pattern> patterns, String data) {
-        if (patterns != null) {
-            for (Pattern pattern : patterns) {
-                Matcher matcher = pattern.matcher(data);
-                if (matcher.find()) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return blacklistingMatchers.find(data) < 0;
     }
 }
@@ -59,6 +59,15 @@ public class ModbusBindingConstantsInternal {
     public static final String[] DATA_CHANNELS_TO_DELEGATE_COMMAND_FROM_READWRITE_TO_WRITE = { CHANNEL_SWITCH,
             CHANNEL_CONTACT, CHANNEL_DATETIME, CHANNEL_DIMMER, CHANNEL_NUMBER, CHANNEL_STRING, CHANNEL_ROLLERSHUTTER };
 
+    // Thing properties with operation statistics of the endpoint
+    public static final String PROPERTY_OPERATIONS = "operations";
+    public static final String PROPERTY_FAILURES = "failures";
+    public static final String PROPERTY_RETRIES = "retries";
+    public static final String PROPERTY_CONNECTION_RESETS = "connectionResets";
+    public static final String PROPERTY_LATENCY_P50 = "latencyP50Millis";
+    public static final String PROPERTY_LATENCY_P99 = "latencyP99Millis";
+    public static final String PROPERTY_ERRORS = "errors";
+
     public static final String WRITE_TYPE_COIL = "coil";
     public static final String WRITE_TYPE_HOLDING = "holding";
 
@@ -12,6 +12,11 @@
  */
 package org.openhab.binding.modbus.internal.handler;
 
+import static org.openhab.binding.modbus.internal.ModbusBindingConstantsInternal.*;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -26,6 +31,7 @@ import org.openhab.binding.modbus.handler.ModbusEndpointThingHandler;
 import org.openhab.binding.modbus.internal.ModbusConfigurationException;
 import org.openhab.io.transport.modbus.ModbusManager;
 import org.openhab.io.transport.modbus.ModbusManagerListener;
+import org.openhab.io.transport.modbus.ModbusOperationStatistics;
 import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
 import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
 import org.slf4j.Logger;
@@ -43,6 +49,11 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEndpoint, C> extends BaseBridgeHandler
         implements ModbusManagerListener, ModbusEndpointThingHandler {
 
+    /**
+     * Interval of publishing the operation statistics as thing properties
+     */
+    private static final long STATISTICS_INTERVAL_MINUTES = 5;
+
     @Nullable
     protected volatile C config;
     @Nullable
@@ -50,6 +61,8 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
     protected Supplier<ModbusManager> managerRef;
     @Nullable
     protected volatile EndpointPoolConfiguration poolConfiguration;
+    @Nullable
+    private volatile ScheduledFuture<?> statisticsJob;
     private final Logger logger = LoggerFactory.getLogger(AbstractModbusEndpointThingHandler.class);
 
     public AbstractModbusEndpointThingHandler(Bridge bridge, Supplier<ModbusManager> managerRef) {
@@ -75,6 +88,10 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
                 managerRef.get().addListener(this);
                 managerRef.get().setEndpointPoolConfiguration(endpoint, poolConfiguration);
                 updateStatus(ThingStatus.ONLINE);
+                if (statisticsJob == null) {
+                    statisticsJob = scheduler.scheduleWithFixedDelay(this::updateStatisticsProperties,
+                            STATISTICS_INTERVAL_MINUTES, STATISTICS_INTERVAL_MINUTES, TimeUnit.MINUTES);
+                }
             } catch (ModbusConfigurationException e) {
                 logger.debug("Exception during initialization", e);
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, String.format(
@@ -87,9 +104,37 @@ public abstract class AbstractModbusEndpointThingHandler<E extends ModbusSlaveEn
 
     @Override
     public void dispose() {
+        ScheduledFuture<?> statisticsJob = this.statisticsJob;
+        if (statisticsJob != null) {
+            statisticsJob.cancel(false);
+            this.statisticsJob = null;
+        }
         managerRef.get().removeListener(this);
     }
 
+    /**
+     * Publish the operation statistics of the endpoint as thing properties, readable e.g. through REST
+     */
+    private void updateStatisticsProperties() {
+        E endpoint = this.endpoint;
+        if (endpoint == null) {
+            return;
+        }
+        ModbusOperationStatistics statistics = managerRef.get().getEndpointStatistics().get(endpoint);
+        if (statistics == null) {
+            return;
+        }
+        Map<String, String> properties = editProperties();
+        properties.put(PROPERTY_OPERATIONS, String.valueOf(statistics.getOperations()));
+        properties.put(PROPERTY_FAILURES, String.valueOf(statistics.getFailures()));
+        properties.put(PROPERTY_RETRIES, String.valueOf(statistics.getRetries()));
+        properties.put(PROPERTY_CONNECTION_RESETS, String.valueOf(statistics.getConnectionResets()));
+        properties.put(PROPERTY_LATENCY_P50, String.valueOf(statistics.getTotalTimePercentileMillis(50)));
+        properties.put(PROPERTY_LATENCY_P99, String.valueOf(statistics.getTotalTimePercentileMillis(99)));
+        properties.put(PROPERTY_ERRORS, statistics.getErrorsByType().toString());
+        updateProperties(properties);
+    }
+
     @Override
     public @Nullable ModbusSlaveEndpoint asSlaveEndpoint() {
         return endpoint;
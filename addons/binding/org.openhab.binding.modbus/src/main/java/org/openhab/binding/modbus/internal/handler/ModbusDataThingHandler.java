@@ -120,6 +120,7 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
     }
     // data channels + 4 for read/write last error/success
     private static final int NUMER_OF_CHANNELS_HINT = CHANNEL_ID_TO_ACCEPTED_TYPES.size() + 4;
+    private static final DecimalType DECIMAL_ONE = new DecimalType(BigDecimal.ONE);
 
     //
     // If you change the below default/initial values, please update the corresponding values in dispose()
@@ -146,6 +147,11 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
     private volatile Map<String, ChannelUID> channelCache = new HashMap<>();
     private volatile Map<ChannelUID, Long> channelLastUpdated = new HashMap<>(NUMER_OF_CHANNELS_HINT);
     private volatile Map<ChannelUID, State> channelLastState = new HashMap<>(NUMER_OF_CHANNELS_HINT);
+    /**
+     * Raw bits of the last value read from registers, and the state converted from them. The state is reused as long
+     * as the raw bits do not change.
+     */
+    private volatile @Nullable RegisterValue lastRegisterValue;
 
     private volatile LocalDateTime lastStatusInfoUpdate = LocalDateTime.MIN;
     private volatile ThingStatusInfo statusInfo = new ThingStatusInfo(ThingStatus.UNKNOWN, ThingStatusDetail.NONE,
@@ -414,6 +420,7 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
         statusInfo = new ThingStatusInfo(ThingStatus.UNKNOWN, ThingStatusDetail.NONE, null);
         channelLastUpdated = new HashMap<>(NUMER_OF_CHANNELS_HINT);
         channelLastState = new HashMap<>(NUMER_OF_CHANNELS_HINT);
+        lastRegisterValue = null;
     }
 
     @Override
@@ -675,7 +682,14 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
             int itemsPerRegister = 16 / readValueType.getBits();
             extractIndex = (readIndex.get() - pollStart) * itemsPerRegister + subIndex;
         }
-        numericState = ModbusBitUtilities.extractStateFromRegisters(registers, extractIndex, readValueType);
+        long rawValue = ModbusBitUtilities.extractRawBitsFromRegisters(registers, extractIndex, readValueType);
+        RegisterValue lastRegisterValue = this.lastRegisterValue;
+        if (lastRegisterValue != null && lastRegisterValue.rawValue == rawValue) {
+            numericState = lastRegisterValue.state;
+        } else {
+            numericState = ModbusBitUtilities.rawBitsToState(rawValue, readValueType);
+            this.lastRegisterValue = new RegisterValue(rawValue, numericState);
+        }
         boolean boolValue = !numericState.equals(DecimalType.ZERO);
         Map<ChannelUID, State> values = processUpdatedValue(numericState, boolValue);
         logger.debug(
@@ -692,7 +706,7 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
             return;
         }
         boolean boolValue = bits.getBit(readIndex.get() - pollStart);
-        DecimalType numericState = boolValue ? new DecimalType(BigDecimal.ONE) : DecimalType.ZERO;
+        DecimalType numericState = boolValue ? DECIMAL_ONE : DecimalType.ZERO;
         Map<ChannelUID, State> values = processUpdatedValue(numericState, boolValue);
         logger.debug(
                 "Thing {} channels updated: {}. readValueType={}, readIndex={} -> numeric value {} and boolValue={}. Bits {} for request {}",
@@ -927,4 +941,17 @@ public class ModbusDataThingHandler extends BaseThingHandler implements ModbusRe
         }
     }
 
+    /**
+     * Raw bits read from registers together with the state converted from them
+     */
+    private static class RegisterValue {
+        private final long rawValue;
+        private final DecimalType state;
+
+        private RegisterValue(long rawValue, DecimalType state) {
+            this.rawValue = rawValue;
+            this.state = state;
+        }
+    }
+
 }
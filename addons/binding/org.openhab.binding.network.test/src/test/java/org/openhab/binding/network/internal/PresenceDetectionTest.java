@@ -19,8 +19,10 @@ import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
 import java.util.Collections;
-import java.util.concurrent.ExecutorService;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -35,6 +37,7 @@ import org.openhab.binding.network.internal.toberemoved.cache.ExpiringCacheHelpe
 import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
 import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.openhab.binding.network.internal.utils.PresenceDetectionEngine;
 
 /**
  * Tests cases for {@see PresenceDetectionValue}
@@ -50,7 +53,7 @@ public class PresenceDetectionTest {
     PresenceDetectionListener listener;
 
     @Mock
-    ExecutorService executorService;
+    PresenceDetectionEngine engine;
 
     @Mock
     Consumer<PresenceDetectionValue> callback;
@@ -68,6 +71,9 @@ public class PresenceDetectionTest {
 
         subject = spy(new PresenceDetection(listener, (int) CACHETIME));
         subject.networkUtils = networkUtils;
+        subject.engine = engine;
+        // Handle probe results on the completing thread, the tests complete them explicitly
+        subject.executor = Runnable::run;
         subject.cache = spy(new ExpiringCacheAsync<PresenceDetectionValue>(CACHETIME, () -> {
             subject.performPresenceDetection(false);
         }));
@@ -89,42 +95,57 @@ public class PresenceDetectionTest {
         subject.waitForPresenceDetection();
     }
 
-    // Depending on the amount of test methods an according amount of threads is spawned.
-    // We will check if they spawn and return in time.
+    // Depending on the amount of test methods an according amount of probes is submitted to the engine.
+    // We will check if they are submitted and the detection finishes as soon as they return.
     @Test
-    public void threadCountTest() {
-        assertNull(subject.executorService);
+    public void detectionChecksTest() {
+        assertNull(subject.detection);
 
-        doNothing().when(subject).performARPping(any());
-        doNothing().when(subject).performJavaPing();
-        doNothing().when(subject).performSystemPing();
-        doNothing().when(subject).performServicePing(anyInt());
+        CompletableFuture<Double> tcp = new CompletableFuture<>();
+        CompletableFuture<Double> arp = new CompletableFuture<>();
+        CompletableFuture<Double> icmp = new CompletableFuture<>();
+        doReturn(tcp).when(engine).servicePing(any(), anyInt(), anyInt());
+        doReturn(arp).when(engine).nativeARPPing(any(), any(), anyString(), anyString(), anyString(), anyInt(),
+                anyLong());
+        doReturn(icmp).when(engine).nativePing(any(), any(), anyString(), anyInt());
 
         subject.performPresenceDetection(false);
 
-        // Thread count: ARP + ICMP + 1*TCP
+        // Checks: ARP + ICMP + 1*TCP
         assertThat(subject.detectionChecks, is(3));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
+        // Does not start another detection while one is ongoing
+        assertFalse(subject.performPresenceDetection(false));
+
+        tcp.complete(PresenceDetection.NOT_REACHABLE);
+        arp.complete(PresenceDetection.NOT_REACHABLE);
+        assertNotNull(subject.detection);
+        icmp.complete(PresenceDetection.NOT_REACHABLE);
 
-        subject.waitForPresenceDetection();
         assertThat(subject.detectionChecks, is(0));
-        assertNull(subject.executorService);
+        assertNull(subject.detection);
+        ArgumentCaptor<PresenceDetectionValue> capture = ArgumentCaptor.forClass(PresenceDetectionValue.class);
+        verify(listener, times(1)).finalDetectionResult(capture.capture());
+        assertFalse(capture.getValue().isReachable());
     }
 
     @Test
     public void partialAndFinalCallbackTests() throws InterruptedException, IOException {
-        doReturn(true).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING), anyString(), anyInt());
-        doReturn(true).when(networkUtils).nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(),
-                any(), anyInt());
-        doReturn(true).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
+        doReturn(CompletableFuture.completedFuture(5.0)).when(engine).nativePing(any(),
+                eq(IpPingMethodEnum.WINDOWS_PING), anyString(), anyInt());
+        doReturn(CompletableFuture.completedFuture(5.0)).when(engine).nativeARPPing(any(),
+                eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(), any(), anyInt(), anyLong());
+        doReturn(CompletableFuture.completedFuture(5.0)).when(engine).servicePing(any(), anyInt(), anyInt());
 
         assertTrue(subject.performPresenceDetection(false));
         subject.waitForPresenceDetection();
 
-        verify(subject, times(0)).performJavaPing();
-        verify(subject).performSystemPing();
-        verify(subject).performARPping(any());
-        verify(subject).performServicePing(anyInt());
+        verify(subject, times(0)).performJavaPing(any(), any());
+        verify(subject).performSystemPing(any(), any());
+        verify(subject).performARPping(any(), any(), any());
+        verify(subject).performServicePing(any(), anyInt(), any());
+        // The iOS device is woken up before the ARP ping
+        verify(networkUtils).wakeUpIOS(any());
 
         verify(listener, times(3)).partialDetectionResult(any());
         ArgumentCaptor<PresenceDetectionValue> capture = ArgumentCaptor.forClass(PresenceDetectionValue.class);
@@ -135,30 +156,30 @@ public class PresenceDetectionTest {
 
     @Test
     public void cacheTest() throws InterruptedException, IOException {
-        doReturn(true).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING), anyString(), anyInt());
-        doReturn(true).when(networkUtils).nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(),
-                any(), anyInt());
-        doReturn(true).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
-
-        doReturn(executorService).when(subject).getThreadsFor(anyInt());
+        CompletableFuture<Double> tcp = new CompletableFuture<>();
+        CompletableFuture<Double> arp = new CompletableFuture<>();
+        CompletableFuture<Double> icmp = new CompletableFuture<>();
+        doReturn(tcp).when(engine).servicePing(any(), anyInt(), anyInt());
+        doReturn(arp).when(engine).nativeARPPing(any(), any(), anyString(), anyString(), anyString(), anyInt(),
+                anyLong());
+        doReturn(icmp).when(engine).nativePing(any(), any(), anyString(), anyInt());
 
         // We expect no valid value
         assertTrue(subject.cache.isExpired());
         // Get value will issue a PresenceDetection internally.
         subject.getValue(callback);
         verify(subject).performPresenceDetection(eq(false));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
         // There should be no straight callback yet
         verify(callback, times(0)).accept(any());
 
-        // Perform the different presence detection threads now
-        ArgumentCaptor<Runnable> capture = ArgumentCaptor.forClass(Runnable.class);
-        verify(executorService, times(3)).execute(capture.capture());
-        for (Runnable r : capture.getAllValues()) {
-            r.run();
-        }
+        // Let the engine return the results of the different probes now
+        tcp.complete(3.0);
+        arp.complete(2.0);
+        icmp.complete(1.0);
         // "Wait" for the presence detection to finish
         subject.waitForPresenceDetection();
+        assertNull(subject.detection);
 
         // Although there are multiple partial results and a final result,
         // the getValue() consumers get the fastest response possible, and only once.
@@ -174,6 +195,52 @@ public class PresenceDetectionTest {
         verify(callback, times(2)).accept(any());
     }
 
+    @Test
+    public void lateResultsAreIgnoredTest() {
+        CompletableFuture<Double> tcp = new CompletableFuture<>();
+        doReturn(tcp).when(engine).servicePing(any(), anyInt(), anyInt());
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine)
+                .nativeARPPing(any(), any(), anyString(), anyString(), anyString(), anyInt(), anyLong());
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine).nativePing(any(),
+                any(), anyString(), anyInt());
+        subject.setTimeout(10);
+
+        subject.performPresenceDetection(true);
+        // Timed out waiting for the TCP probe
+        assertNull(subject.detection);
+        verify(listener, times(1)).finalDetectionResult(any());
+
+        tcp.complete(1.0);
+        verify(listener, times(0)).partialDetectionResult(any());
+    }
+
+    @Test
+    public void resultsAreNotHandledOnTheEngineThreadTest() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        subject.executor = tasks::add;
+        CompletableFuture<Double> tcp = new CompletableFuture<>();
+        doReturn(tcp).when(engine).servicePing(any(), anyInt(), anyInt());
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine)
+                .nativeARPPing(any(), any(), anyString(), anyString(), anyString(), anyInt(), anyLong());
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine).nativePing(any(),
+                any(), anyString(), anyInt());
+
+        subject.performPresenceDetection(false);
+
+        // The engine completes the probe, the listener is called from the executor
+        tcp.complete(1.0);
+        verify(listener, times(0)).partialDetectionResult(any());
+        verify(listener, times(0)).finalDetectionResult(any());
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        verify(listener, times(1)).partialDetectionResult(any());
+        verify(listener, times(1)).finalDetectionResult(any());
+        assertNull(subject.detection);
+    }
+
     @Test
     public void reuseValueTests() throws InterruptedException, IOException {
         final long START_TIME = 1000L;
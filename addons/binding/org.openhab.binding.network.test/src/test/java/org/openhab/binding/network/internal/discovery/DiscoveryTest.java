@@ -27,29 +27,21 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.openhab.binding.network.internal.NetworkBindingConstants;
-import org.openhab.binding.network.internal.PresenceDetectionValue;
 
 /**
- * Tests cases for {@see PresenceDetectionValue}
+ * Tests cases for {@see NetworkDiscoveryService}
  *
  * @author David Graeff - Initial contribution
  */
 public class DiscoveryTest {
     private final String ip = "127.0.0.1";
 
-    @Mock
-    PresenceDetectionValue value;
-
     @Mock
     DiscoveryListener listener;
 
     @Before
     public void setUp() {
         initMocks(this);
-        when(value.getHostAddress()).thenReturn(ip);
-        when(value.getLowestLatency()).thenReturn(10.0);
-        when(value.isReachable()).thenReturn(true);
-        when(value.getSuccessfulDetectionTypes()).thenReturn("TESTMETHOD");
     }
 
     @Test
@@ -60,9 +52,7 @@ public class DiscoveryTest {
         ArgumentCaptor<DiscoveryResult> result = ArgumentCaptor.forClass(DiscoveryResult.class);
 
         // Ping device
-        when(value.isPingReachable()).thenReturn(true);
-        when(value.isTCPServiceReachable()).thenReturn(false);
-        d.partialDetectionResult(value);
+        d.hostFound(ip, true, Collections.emptySet());
         verify(listener).thingDiscovered(any(), result.capture());
         DiscoveryResult dresult = result.getValue();
         Assert.assertThat(dresult.getThingUID(), is(NetworkDiscoveryService.createPingUID(ip)));
@@ -77,10 +67,7 @@ public class DiscoveryTest {
         ArgumentCaptor<DiscoveryResult> result = ArgumentCaptor.forClass(DiscoveryResult.class);
 
         // TCP device
-        when(value.isPingReachable()).thenReturn(false);
-        when(value.isTCPServiceReachable()).thenReturn(true);
-        when(value.getReachableTCPports()).thenReturn(Collections.singletonList(1010));
-        d.partialDetectionResult(value);
+        d.hostFound(ip, false, Collections.singleton(1010));
         verify(listener).thingDiscovered(any(), result.capture());
         DiscoveryResult dresult = result.getValue();
         Assert.assertThat(dresult.getThingUID(), is(NetworkDiscoveryService.createServiceUID(ip, 1010)));
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.discovery;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.utils.NetworkUtils;
+import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
+import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.openhab.binding.network.internal.utils.PresenceDetectionEngine;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests cases for {@see NetworkSweep}
+ *
+ * @author agent - Initial contribution
+ */
+public class NetworkSweepTest {
+    private final Map<String, Set<Integer>> found = Collections.synchronizedMap(new HashMap<>());
+    private final Map<String, Boolean> foundByPing = Collections.synchronizedMap(new HashMap<>());
+    private final AtomicInteger lastProgress = new AtomicInteger();
+
+    private final NetworkSweep.Listener listener = new NetworkSweep.Listener() {
+        @Override
+        public void hostFound(String ip, boolean pingReachable, Set<Integer> tcpPorts) {
+            found.put(ip, tcpPorts);
+            foundByPing.put(ip, pingReachable);
+        }
+
+        @Override
+        public void progress(int scanned, int total) {
+            lastProgress.accumulateAndGet(scanned, Math::max);
+        }
+    };
+
+    @Test
+    public void escalatesOnlyUnresolvedHostsTest() throws Exception {
+        PresenceDetectionEngine engine = mock(PresenceDetectionEngine.class);
+        NetworkUtils networkUtils = mock(NetworkUtils.class);
+        Map<String, Boolean> arpTable = new HashMap<>();
+        arpTable.put("10.0.0.1", true);
+        arpTable.put("10.0.0.2", false);
+        when(networkUtils.readArpTable()).thenReturn(arpTable);
+        // Only 10.0.0.3 has an open port
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine)
+                .servicePing(any(), anyInt(), anyInt());
+        doReturn(CompletableFuture.completedFuture(1.0)).when(engine)
+                .servicePing(eq(InetAddress.getByName("10.0.0.3")), eq(80), anyInt());
+        doReturn(CompletableFuture.completedFuture(1.0)).when(engine).nativePing(any(), any(), anyString(),
+                anyInt());
+
+        List<String> addresses = Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3", "10.0.0.4");
+        NetworkSweep sweep = new NetworkSweep(engine, networkUtils, addresses.iterator(), addresses.size(),
+                Collections.singleton(80), 500, IpPingMethodEnum.IPUTILS_LINUX_PING, listener);
+        sweep.start().get(5, TimeUnit.SECONDS);
+
+        // Resolved by the ARP table
+        assertThat(foundByPing.get("10.0.0.1"), is(true));
+        // Did not respond to ARP, not escalated
+        assertFalse(found.containsKey("10.0.0.2"));
+        // Found by its open port
+        assertThat(foundByPing.get("10.0.0.3"), is(false));
+        assertThat(found.get("10.0.0.3"), is(Collections.singleton(80)));
+        // Unresolved, found by ICMP
+        assertThat(foundByPing.get("10.0.0.4"), is(true));
+        verify(engine, times(1)).nativePing(any(), any(), anyString(), anyInt());
+        verify(engine).nativePing(any(), any(), eq("10.0.0.4"), anyInt());
+
+        assertThat(lastProgress.get(), is(4));
+    }
+
+    @Test
+    public void arpPingsUnresolvedHostsTest() throws Exception {
+        PresenceDetectionEngine engine = mock(PresenceDetectionEngine.class);
+        NetworkUtils networkUtils = mock(NetworkUtils.class);
+        Map<String, Boolean> arpTable = new HashMap<>();
+        arpTable.put("10.0.0.1", true);
+        arpTable.put("10.0.0.2", false);
+        when(networkUtils.readArpTable()).thenReturn(arpTable);
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine)
+                .servicePing(any(), anyInt(), anyInt());
+        // Only the sleeping device 10.0.0.2 responds to the ARP ping
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine)
+                .nativeARPPing(any(), any(), anyString(), anyString(), anyString(), anyInt(), anyLong());
+        doReturn(CompletableFuture.completedFuture(1.0)).when(engine).nativeARPPing(any(), any(), anyString(),
+                anyString(), eq("10.0.0.2"), anyInt(), anyLong());
+        doReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE)).when(engine).nativePing(any(),
+                any(), anyString(), anyInt());
+
+        List<String> addresses = Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3");
+        NetworkSweep sweep = new NetworkSweep(engine, networkUtils, addresses.iterator(), addresses.size(),
+                Collections.singleton(80), 500, IpPingMethodEnum.IPUTILS_LINUX_PING, listener);
+        sweep.setArpPing(ArpPingUtilEnum.IPUTILS_ARPING, "arping", Collections.singleton("eth0"));
+        sweep.start().get(5, TimeUnit.SECONDS);
+
+        // Resolved by the ARP table, not ARP pinged
+        assertThat(foundByPing.get("10.0.0.1"), is(true));
+        verify(engine, never()).nativeARPPing(any(), any(), anyString(), anyString(), eq("10.0.0.1"), anyInt(),
+                anyLong());
+        // Woken up and found by the ARP ping
+        assertThat(foundByPing.get("10.0.0.2"), is(true));
+        verify(networkUtils).wakeUpIOS(InetAddress.getByName("10.0.0.2"));
+        // Neither responded to the ARP ping nor in the ARP table, escalated to ICMP
+        assertFalse(found.containsKey("10.0.0.3"));
+        verify(engine, times(1)).nativePing(any(), any(), anyString(), anyInt());
+        verify(engine).nativePing(any(), any(), eq("10.0.0.3"), anyInt());
+    }
+
+    @Test
+    public void cancelStopsTheSweepTest() throws Exception {
+        PresenceDetectionEngine engine = mock(PresenceDetectionEngine.class);
+        doReturn(new CompletableFuture<Double>()).when(engine).servicePing(any(), anyInt(), anyInt());
+        List<String> addresses = new ArrayList<>();
+        for (int i = 1; i < 255; i++) {
+            addresses.add("10.0.0." + i);
+        }
+        NetworkSweep sweep = new NetworkSweep(engine, mock(NetworkUtils.class), addresses.iterator(),
+                addresses.size(), Collections.singleton(80), 500, null, listener);
+        CompletableFuture<Void> finished = sweep.start();
+        // The pipeline is bounded
+        verify(engine, times(NetworkSweep.INITIAL_CONCURRENCY)).servicePing(any(), anyInt(), anyInt());
+        assertFalse(finished.isDone());
+
+        sweep.cancel();
+        assertTrue(finished.isDone());
+    }
+
+    /**
+     * Sweep the loopback network 127.0.0.0/24 with the shared engine. The connections to all but one address are
+     * refused immediately, so this measures the overhead of the pipeline itself.
+     *
+     * This is a manual benchmark, run it with -Dnetwork.sweep.benchmark=true. Only Linux routes all of 127.0.0.0/8
+     * to the loopback interface.
+     */
+    @Test
+    public void loopbackSweepBenchmark() throws Exception {
+        assumeTrue("Manual benchmark", Boolean.getBoolean("network.sweep.benchmark"));
+        assumeTrue("Loopback network is only routed on Linux", "Linux".equals(System.getProperty("os.name")));
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            int port = serverSocket.getLocalPort();
+            List<String> addresses = new ArrayList<>();
+            for (int i = 1; i < 255; i++) {
+                addresses.add("127.0.0." + i);
+            }
+            NetworkUtils networkUtils = mock(NetworkUtils.class);
+            NetworkSweep sweep = new NetworkSweep(PresenceDetectionEngine.getInstance(), networkUtils,
+                    addresses.iterator(), addresses.size(), Collections.singleton(port), 500, null, listener);
+
+            long start = System.nanoTime();
+            sweep.start().get(30, TimeUnit.SECONDS);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            LoggerFactory.getLogger(NetworkSweepTest.class).info(
+                    "Sweep of {} loopback addresses took {} ms, final concurrency {}", addresses.size(),
+                    elapsedMillis, sweep.getConcurrency());
+
+            assertThat(sweep.getScanned(), is(addresses.size()));
+            assertThat(lastProgress.get(), is(addresses.size()));
+            assertThat(found.get("127.0.0.1"), is(Collections.singleton(port)));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.PresenceDetectionType;
+import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
+import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+
+/**
+ * Tests cases for {@see PresenceDetectionEngine}
+ *
+ * @author agent - Initial contribution
+ */
+public class PresenceDetectionEngineTest {
+    PresenceDetectionEngine engine = new PresenceDetectionEngine();
+
+    @Test
+    public void servicePingReachableTest()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        InetAddress localhost = InetAddress.getByName("127.0.0.1");
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, localhost)) {
+            CompletableFuture<Double> result = engine.servicePing(localhost, serverSocket.getLocalPort(), 1000);
+            assertThat(result.get(5, TimeUnit.SECONDS) >= 0, is(true));
+        }
+        assertThat(engine.getStatistics().get(PresenceDetectionType.TCP_CONNECTION).getReachable(), is(1L));
+    }
+
+    @Test
+    public void servicePingRefusedTest()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        InetAddress localhost = InetAddress.getByName("127.0.0.1");
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, localhost)) {
+            port = serverSocket.getLocalPort();
+        }
+        CompletableFuture<Double> result = engine.servicePing(localhost, port, 1000);
+        assertThat(result.get(5, TimeUnit.SECONDS), is(PresenceDetection.NOT_REACHABLE));
+    }
+
+    @Test
+    public void probesInProgressAreDeduplicatedTest()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        // The mock does not start an arping process, the delay keeps the probe in progress
+        NetworkUtils networkUtils = mock(NetworkUtils.class);
+        CompletableFuture<Double> first = engine.nativeARPPing(networkUtils, ArpPingUtilEnum.IPUTILS_ARPING, "arping",
+                "eth0", "192.168.0.1", 1000, 500);
+        CompletableFuture<Double> second = engine.nativeARPPing(networkUtils, ArpPingUtilEnum.IPUTILS_ARPING,
+                "arping", "eth0", "192.168.0.1", 1000, 500);
+        CompletableFuture<Double> otherInterface = engine.nativeARPPing(networkUtils, ArpPingUtilEnum.IPUTILS_ARPING,
+                "arping", "eth1", "192.168.0.1", 1000, 500);
+        assertThat(second, is(sameInstance(first)));
+        assertThat(otherInterface, is(not(sameInstance(first))));
+        assertThat(first.get(5, TimeUnit.SECONDS), is(PresenceDetection.NOT_REACHABLE));
+        otherInterface.get(5, TimeUnit.SECONDS);
+        verify(networkUtils, times(2)).startNativeARPPing(any(), any(), anyString(), anyString(), anyInt());
+
+        PresenceDetectionEngine.ProbeStatistics statistics = engine.getStatistics()
+                .get(PresenceDetectionType.ARP_PING);
+        assertThat(statistics.getProbes(), is(2L));
+        assertThat(statistics.getDeduplicated(), is(1L));
+
+        // Finished probes are not shared
+        assertThat(engine.nativeARPPing(networkUtils, ArpPingUtilEnum.IPUTILS_ARPING, "arping", "eth0",
+                "192.168.0.1", 1000, 0), is(not(sameInstance(first))));
+    }
+
+    @Test
+    public void probesWithDifferentTimeoutsAreNotSharedTest()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        // Starting the first ping blocks the engine thread, so that all probes are in progress at the same time
+        CountDownLatch release = new CountDownLatch(1);
+        NetworkUtils networkUtils = mock(NetworkUtils.class);
+        when(networkUtils.startNativePing(any(), anyString(), anyInt())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        CompletableFuture<Double> first = engine.nativePing(networkUtils, IpPingMethodEnum.IPUTILS_LINUX_PING,
+                "192.168.0.1", 1000);
+        CompletableFuture<Double> sameTimeout = engine.nativePing(networkUtils, IpPingMethodEnum.IPUTILS_LINUX_PING,
+                "192.168.0.1", 1000);
+        CompletableFuture<Double> otherTimeout = engine.nativePing(networkUtils,
+                IpPingMethodEnum.IPUTILS_LINUX_PING, "192.168.0.1", 5000);
+        release.countDown();
+
+        assertThat(sameTimeout, is(sameInstance(first)));
+        assertThat(otherTimeout, is(not(sameInstance(first))));
+        assertThat(first.get(5, TimeUnit.SECONDS), is(PresenceDetection.NOT_REACHABLE));
+        assertThat(otherTimeout.get(5, TimeUnit.SECONDS), is(PresenceDetection.NOT_REACHABLE));
+        verify(networkUtils).startNativePing(any(), anyString(), eq(1000));
+        verify(networkUtils).startNativePing(any(), anyString(), eq(5000));
+    }
+
+    @Test
+    public void failingProbesDoNotStopTheEngineTest()
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        NetworkUtils networkUtils = mock(NetworkUtils.class);
+        when(networkUtils.startNativePing(any(), anyString(), anyInt())).thenThrow(new IllegalStateException());
+        CompletableFuture<Double> failed = engine.nativePing(networkUtils, IpPingMethodEnum.IPUTILS_LINUX_PING,
+                "192.168.0.1", 1000);
+        assertThat(failed.get(5, TimeUnit.SECONDS), is(PresenceDetection.NOT_REACHABLE));
+
+        InetAddress localhost = InetAddress.getByName("127.0.0.1");
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, localhost)) {
+            CompletableFuture<Double> result = engine.servicePing(localhost, serverSocket.getLocalPort(), 1000);
+            assertThat(result.get(5, TimeUnit.SECONDS) >= 0, is(true));
+        }
+    }
+}
@@ -17,25 +17,31 @@ import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.cache.ExpiringCache;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.network.internal.dhcp.DHCPListenService;
 import org.openhab.binding.network.internal.dhcp.IPRequestReceivedCallback;
 import org.openhab.binding.network.internal.toberemoved.cache.ExpiringCacheAsync;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
 import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.openhab.binding.network.internal.utils.PresenceDetectionEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,7 +57,15 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     public static final double NOT_REACHABLE = -1;
     public static final int DESTINATION_TTL = 300 * 1000; // in ms, 300 s
 
+    // Native tools only accept timeouts in seconds, the engine gives them some extra time
+    private static final int PROBE_GRACE_TIME_MS = 2000;
+    public static final int IOS_WAKEUP_TIME_MS = 50;
+    private static final String THING_HANDLER_THREADPOOL_NAME = "thingHandler";
+
     NetworkUtils networkUtils = new NetworkUtils();
+    PresenceDetectionEngine engine = PresenceDetectionEngine.getInstance();
+    // Probe results are handled here instead of on the engine thread, which must not be blocked by the listener
+    Executor executor = ThreadPoolManager.getScheduledPool(THING_HANDLER_THREADPOOL_NAME);
     private final Logger logger = LoggerFactory.getLogger(PresenceDetection.class);
 
     /// Configuration variables
@@ -76,9 +90,8 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     ExpiringCacheAsync<PresenceDetectionValue> cache;
     private final PresenceDetectionListener updateListener;
     private @Nullable ScheduledFuture<?> refreshJob;
-    protected @Nullable ExecutorService executorService;
+    protected @Nullable CompletableFuture<Void> detection;
     private String dhcpState = "off";
-    Integer currentCheck = 0;
     int detectionChecks;
 
     public PresenceDetection(final PresenceDetectionListener updateListener, int cacheDeviceStateTimeInMS)
@@ -249,14 +262,10 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         cache.getValue(callback);
     }
 
-    public ExecutorService getThreadsFor(int threadCount) {
-        return Executors.newFixedThreadPool(threadCount);
-    }
-
     /**
      * Perform a presence detection with ICMP-, ARP ping and
-     * TCP connection attempts simultaneously. A fixed thread pool will be created with as many
-     * thread as necessary to perform all tests at once.
+     * TCP connection attempts simultaneously. The probes are performed by the shared
+     * {@link PresenceDetectionEngine}, which does not block a thread per probe.
      *
      * This is a NO-OP, if there is already an ongoing detection or if the cached value
      * is not expired yet.
@@ -270,7 +279,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * @return Return true if a presence detection is performed and false otherwise.
      */
     public boolean performPresenceDetection(boolean waitForDetectionToFinish) {
-        if (executorService != null) {
+        if (detection != null) {
             logger.debug(
                     "There is already an ongoing presence discovery for {} and a new one was issued by the scheduler! TCP Port {}",
                     hostname, tcpPorts);
@@ -283,7 +292,6 @@ public class PresenceDetection implements IPRequestReceivedCallback {
 
         Set<String> interfaceNames = null;
 
-        currentCheck = 0;
         detectionChecks = tcpPorts.size();
         if (pingMethod != null) {
             detectionChecks += 1;
@@ -297,41 +305,37 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             return false;
         }
 
-        final ExecutorService executorService = getThreadsFor(detectionChecks);
-        this.executorService = executorService;
+        final CompletableFuture<Void> detection = new CompletableFuture<>();
+        this.detection = detection;
 
-        for (Integer tcpPort : tcpPorts) {
-            executorService.execute(() -> {
-                Thread.currentThread().setName("presenceDetectionTCP_" + hostname + " " + String.valueOf(tcpPort));
-                performServicePing(tcpPort);
-                checkIfFinished();
-            });
-        }
-
-        // ARP ping for IPv4 addresses. Use an own executor for each network interface
-        if (interfaceNames != null) {
-            for (final String interfaceName : interfaceNames) {
-                executorService.execute(() -> {
-                    Thread.currentThread().setName("presenceDetectionARP_" + hostname + " " + interfaceName);
-                    performARPping(interfaceName);
-                    checkIfFinished();
-                });
+        List<CompletableFuture<Void>> checks = new ArrayList<>(detectionChecks);
+        InetAddress destinationAddress = destination.getValue();
+        if (destinationAddress != null) {
+            for (Integer tcpPort : tcpPorts) {
+                checks.add(performServicePing(destinationAddress, tcpPort, detection));
             }
-        }
 
-        // ICMP ping
-        if (pingMethod != null) {
-            executorService.execute(() -> {
-                if (pingMethod != IpPingMethodEnum.JAVA_PING) {
-                    Thread.currentThread().setName("presenceDetectionICMP_" + hostname);
-                    performSystemPing();
-                } else {
-                    performJavaPing();
+            // ARP ping for IPv4 addresses, on each network interface
+            if (interfaceNames != null) {
+                if (iosDevice) {
+                    wakeUpIOS(destinationAddress);
                 }
-                checkIfFinished();
-            });
+                for (final String interfaceName : interfaceNames) {
+                    checks.add(performARPping(destinationAddress, interfaceName, detection));
+                }
+            }
+
+            // ICMP ping
+            if (pingMethod != null) {
+                checks.add(pingMethod != IpPingMethodEnum.JAVA_PING
+                        ? performSystemPing(destinationAddress, detection)
+                        : performJavaPing(destinationAddress, detection));
+            }
         }
 
+        CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[checks.size()]))
+                .whenCompleteAsync((result, error) -> submitFinalResult(detection), executor);
+
         if (waitForDetectionToFinish) {
             waitForPresenceDetection();
         }
@@ -342,18 +346,18 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     /**
      * Calls updateListener.finalDetectionResult() with a final result value.
      * Safe to be called from different threads. After a call to this method,
-     * the presence detection process is finished and all threads are forcefully
-     * shut down.
+     * the presence detection process is finished and results of probes that
+     * are still in progress are ignored.
+     *
+     * @param detection The detection process to finish
      */
-    private synchronized void submitFinalResult() {
-        // Do nothing if we are not in a detection process
-        ExecutorService service = executorService;
-        if (service == null) {
+    private synchronized void submitFinalResult(CompletableFuture<Void> detection) {
+        // Do nothing if we are not in this detection process
+        if (this.detection != detection) {
             return;
         }
         // Finish the detection process
-        service.shutdownNow();
-        executorService = null;
+        this.detection = null;
         detectionChecks = 0;
 
         PresenceDetectionValue v;
@@ -374,39 +378,34 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             destination.invalidateValue();
         }
         updateListener.finalDetectionResult(v);
+        detection.complete(null);
     }
 
     /**
-     * This method is called after each individual check and increases a check counter.
-     * If the counter equals the total checks,the final result is submitted. This will
-     * happen way before the "timeoutInMS", if all checks were successful.
-     * Thread safe.
-     */
-    private synchronized void checkIfFinished() {
-        currentCheck += 1;
-        if (currentCheck < detectionChecks) {
-            return;
-        }
-        submitFinalResult();
-    }
-
-    /**
-     * Waits for the presence detection threads to finish. Returns immediately
+     * Waits for the presence detection to finish. Returns immediately
      * if no presence detection is performed right now.
      */
     public void waitForPresenceDetection() {
-        ExecutorService service = executorService;
-        if (service == null) {
+        CompletableFuture<Void> detection = this.detection;
+        if (detection == null) {
             return;
         }
         try {
             // We may get interrupted here by cancelRefreshJob().
-            service.awaitTermination(timeoutInMS + 100, TimeUnit.MILLISECONDS);
-            submitFinalResult();
+            detection.get(timeoutInMS + PROBE_GRACE_TIME_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("Presence detection for {} did not finish in time", hostname);
+            submitFinalResult(detection);
+        } catch (ExecutionException e) {
+            logger.debug("Presence detection for {} failed", hostname, e);
+            submitFinalResult(detection);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Reset interrupt flag
-            service.shutdownNow();
-            executorService = null;
+            synchronized (this) {
+                if (this.detection == detection) {
+                    this.detection = null;
+                }
+            }
         }
     }
 
@@ -435,55 +434,64 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         return v;
     }
 
-    protected void performServicePing(int tcpPort) {
+    /**
+     * Updates the reachable value with the result of a probe, unless the given detection process is already
+     * finished.
+     *
+     * @return The updated value or null if the device was not reached or the detection is finished
+     */
+    private synchronized @Nullable PresenceDetectionValue updateReachableValue(PresenceDetectionType type,
+            double latency, CompletableFuture<Void> detection) {
+        if (latency == NOT_REACHABLE || this.detection != detection) {
+            return null;
+        }
+        return updateReachableValue(type, latency);
+    }
+
+    protected CompletableFuture<Void> performServicePing(InetAddress destinationAddress, int tcpPort,
+            CompletableFuture<Void> detection) {
         logger.trace("Perform TCP presence detection for {} on port: {}", hostname, tcpPort);
-        try {
-            double pingTime = System.nanoTime();
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress != null
-                    && networkUtils.servicePing(destinationAddress.getHostAddress(), tcpPort, timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION, latency);
+        return engine.servicePing(destinationAddress, tcpPort, timeoutInMS).thenAcceptAsync(latency -> {
+            PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION, latency,
+                    detection);
+            if (v != null) {
                 v.addReachableTcpService(tcpPort);
                 updateListener.partialDetectionResult(v);
             }
+        }, executor);
+    }
+
+    /**
+     * Sends the packet waking up iOS devices, see {@see NetworkUtils.wakeUpIOS()}.
+     */
+    private void wakeUpIOS(InetAddress destinationAddress) {
+        try {
+            networkUtils.wakeUpIOS(destinationAddress);
         } catch (IOException e) {
-            // This should not happen and might be a user configuration issue, we log a warning message therefore.
-            logger.warn("Could not create a socket connection", e);
+            logger.trace("Failed to wake up iOS device {}", hostname, e);
         }
     }
 
     /**
      * Performs an "ARP ping" (ARP request) on the given interface.
-     * If it is an iOS device, the {@see NetworkUtils.wakeUpIOS()} method is
-     * called before performing the ARP ping.
+     * If it is an iOS device, the ARP ping is delayed to give the device time to
+     * wake up.
      *
      * @param interfaceName The interface name. You can request a list of interface names
      *            from {@see NetworkUtils.getInterfaceNames()} for example.
      */
-    protected void performARPping(String interfaceName) {
-        try {
-            logger.trace("Perform ARP ping presence detection for {} on interface: {}", hostname, interfaceName);
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress == null) {
-                return;
-            }
-            if (iosDevice) {
-                networkUtils.wakeUpIOS(destinationAddress);
-                Thread.sleep(50);
-            }
-            double pingTime = System.nanoTime();
-            if (networkUtils.nativeARPPing(arpPingMethod, arpPingUtilPath, interfaceName,
-                    destinationAddress.getHostAddress(), timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING, latency);
-                updateListener.partialDetectionResult(v);
-            }
-        } catch (IOException e) {
-            logger.trace("Failed to execute an arp ping for ip {}", hostname, e);
-        } catch (InterruptedException ignored) {
-            // This can be ignored, the thread will end anyway
-        }
+    protected CompletableFuture<Void> performARPping(InetAddress destinationAddress, String interfaceName,
+            CompletableFuture<Void> detection) {
+        logger.trace("Perform ARP ping presence detection for {} on interface: {}", hostname, interfaceName);
+        return engine.nativeARPPing(networkUtils, arpPingMethod, arpPingUtilPath, interfaceName,
+                destinationAddress.getHostAddress(), timeoutInMS, iosDevice ? IOS_WAKEUP_TIME_MS : 0)
+                .thenAcceptAsync(latency -> {
+                    PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING, latency,
+                            detection);
+                    if (v != null) {
+                        updateListener.partialDetectionResult(v);
+                    }
+                }, executor);
     }
 
     /**
@@ -492,42 +500,32 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * the TCP echo service on port 7 which barely no device or server supports nowadays.
      * (http://docs.oracle.com/javase/7/docs/api/java/net/InetAddress.html#isReachable%28int%29)
      */
-    protected void performJavaPing() {
-        try {
-            logger.trace("Perform java ping presence detection for {}", hostname);
-            double pingTime = System.nanoTime();
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress == null) {
-                return;
-            }
-            if (destinationAddress.isReachable(timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency);
+    protected CompletableFuture<Void> performJavaPing(InetAddress destinationAddress,
+            CompletableFuture<Void> detection) {
+        logger.trace("Perform java ping presence detection for {}", hostname);
+        return engine.javaPing(destinationAddress, timeoutInMS).thenAcceptAsync(latency -> {
+            PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency, detection);
+            if (v != null) {
                 updateListener.partialDetectionResult(v);
             }
-        } catch (IOException e) {
-            logger.trace("Failed to execute a java ping for ip {}", hostname, e);
-        }
+        }, executor);
     }
 
-    protected void performSystemPing() {
-        try {
-            logger.trace("Perform native ping presence detection for {}", hostname);
-            double pingTime = System.nanoTime();
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress == null) {
-                return;
-            }
-            if (networkUtils.nativePing(pingMethod, destinationAddress.getHostAddress(), timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency);
-                updateListener.partialDetectionResult(v);
-            }
-        } catch (IOException e) {
-            logger.trace("Failed to execute a native ping for ip {}", hostname, e);
-        } catch (InterruptedException e) {
-            // This can be ignored, the thread will end anyway
+    protected CompletableFuture<Void> performSystemPing(InetAddress destinationAddress,
+            CompletableFuture<Void> detection) {
+        logger.trace("Perform native ping presence detection for {}", hostname);
+        IpPingMethodEnum method = pingMethod;
+        if (method == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        return engine.nativePing(networkUtils, method, destinationAddress.getHostAddress(), timeoutInMS)
+                .thenAcceptAsync(latency -> {
+                    PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency,
+                            detection);
+                    if (v != null) {
+                        updateListener.partialDetectionResult(v);
+                    }
+                }, executor);
     }
 
     @Override
@@ -16,15 +16,13 @@ import static org.openhab.binding.network.internal.NetworkBindingConstants.*;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.Configuration;
@@ -33,10 +31,10 @@ import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
 import org.eclipse.smarthome.config.discovery.DiscoveryService;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.openhab.binding.network.internal.NetworkBindingConfiguration;
-import org.openhab.binding.network.internal.PresenceDetection;
-import org.openhab.binding.network.internal.PresenceDetectionListener;
-import org.openhab.binding.network.internal.PresenceDetectionValue;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
+import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
+import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.openhab.binding.network.internal.utils.PresenceDetectionEngine;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -54,9 +52,10 @@ import org.slf4j.LoggerFactory;
  */
 @NonNullByDefault
 @Component(service = DiscoveryService.class, immediate = true, configurationPid = "discovery.network")
-public class NetworkDiscoveryService extends AbstractDiscoveryService implements PresenceDetectionListener {
+public class NetworkDiscoveryService extends AbstractDiscoveryService {
     static final int PING_TIMEOUT_IN_MS = 500;
     static final int MAXIMUM_IPS_PER_INTERFACE = 255;
+    private static final int PROGRESS_REPORT_PERCENT = 10;
     private static final long DISCOVERY_RESULT_TTL = TimeUnit.MINUTES.toSeconds(10);
     private final Logger logger = LoggerFactory.getLogger(NetworkDiscoveryService.class);
 
@@ -65,8 +64,10 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     // TCP port 1025 (Xbox / MS-RPC)
     private Set<Integer> tcpServicePorts = Collections
             .unmodifiableSet(Stream.of(80, 548, 554, 1025).collect(Collectors.toSet()));
-    private Integer scannedIPcount = 0;
-    private @Nullable ExecutorService executorService = null;
+    private @Nullable NetworkSweep sweep;
+    private @Nullable IpPingMethodEnum pingMethod;
+    private @Nullable ArpPingUtilEnum arpingTool;
+    private String arpingToolPath = "";
     private final NetworkBindingConfiguration configuration = new NetworkBindingConfiguration();
     private final NetworkUtils networkUtils = new NetworkUtils();
 
@@ -96,88 +97,106 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     @Override
     @Deactivate
     protected void deactivate() {
-        if (executorService != null) {
-            executorService.shutdown();
-        }
+        stopScan();
         super.deactivate();
     }
 
-    @Override
-    public void partialDetectionResult(PresenceDetectionValue value) {
-        final String ip = value.getHostAddress();
-        if (value.isPingReachable()) {
+    /**
+     * Submit the devices found by the {@link NetworkSweep}.
+     *
+     * @param ip The device IP
+     * @param pingReachable True if the device responded to ARP or ICMP
+     * @param tcpPorts The open service ports
+     */
+    void hostFound(String ip, boolean pingReachable, Set<Integer> tcpPorts) {
+        if (pingReachable) {
             newPingDevice(ip);
-        } else if (value.isTCPServiceReachable()) {
-            List<Integer> tcpServices = value.getReachableTCPports();
-            for (int port : tcpServices) {
+        } else {
+            for (int port : tcpPorts) {
                 newServiceDevice(ip, port);
             }
         }
     }
 
-    @Override
-    public void finalDetectionResult(PresenceDetectionValue value) {
-    }
-
     /**
-     * Starts the DiscoveryThread for each IP on each interface on the network
+     * Starts a {@link NetworkSweep} of each IP on each interface on the network
      */
     @Override
-    protected void startScan() {
-        if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
-        }
-        final ExecutorService service = executorService;
-        if (service == null) {
-            return;
+    protected synchronized void startScan() {
+        NetworkSweep previousSweep = sweep;
+        if (previousSweep != null) {
+            previousSweep.cancel();
         }
         removeOlderResults(getTimestampOfLastScan(), null);
         logger.trace("Starting Network Device Discovery");
 
         final Set<String> networkIPs = networkUtils.getNetworkIPs(MAXIMUM_IPS_PER_INTERFACE);
-        scannedIPcount = 0;
-
-        for (String ip : networkIPs) {
-            final PresenceDetection s = new PresenceDetection(this, 2000);
-            s.setHostname(ip);
-            s.setIOSDevice(true);
-            s.setUseDhcpSniffing(false);
-            s.setTimeout(PING_TIMEOUT_IN_MS);
-            // Ping devices
-            s.setUseIcmpPing(true);
-            s.setUseArpPing(true, configuration.arpPingToolPath);
-            // TCP devices
-            s.setServicePorts(tcpServicePorts);
-
-            service.execute(() -> {
-                Thread.currentThread().setName("Discovery thread " + ip);
-                s.performPresenceDetection(true);
-                synchronized (scannedIPcount) {
-                    scannedIPcount += 1;
-                    if (scannedIPcount == networkIPs.size()) {
-                        logger.trace("Scan of {} IPs successful", scannedIPcount);
-                        stopScan();
+        final long startNanos = System.nanoTime();
+        final NetworkSweep sweep = new NetworkSweep(PresenceDetectionEngine.getInstance(), networkUtils,
+                networkIPs.iterator(), networkIPs.size(), tcpServicePorts, PING_TIMEOUT_IN_MS, getPingMethod(),
+                new NetworkSweep.Listener() {
+                    private int reportedPercent;
+
+                    @Override
+                    public void hostFound(String ip, boolean pingReachable, Set<Integer> tcpPorts) {
+                        // Discovery listeners must not block the presence detection engine thread
+                        scheduler.execute(() -> NetworkDiscoveryService.this.hostFound(ip, pingReachable, tcpPorts));
+                    }
+
+                    @Override
+                    public void progress(int scanned, int total) {
+                        int percent = 100 * scanned / total;
+                        if (percent >= reportedPercent + PROGRESS_REPORT_PERCENT) {
+                            reportedPercent = percent;
+                            logger.debug("Network Device Discovery scanned {} of {} IPs", scanned, total);
+                        }
                     }
-                }
-            });
+                });
+        String arpingToolPath = configuration.arpPingToolPath;
+        sweep.setArpPing(getArpingTool(arpingToolPath), arpingToolPath, networkUtils.getInterfaceNames());
+        this.sweep = sweep;
+        sweep.start().thenRun(() -> {
+            logger.trace("Scan of {} IPs finished in {} ms", sweep.getScanned(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            scanFinished(sweep);
+        });
+    }
+
+    private synchronized void scanFinished(NetworkSweep finishedSweep) {
+        if (sweep == finishedSweep) {
+            sweep = null;
+            super.stopScan();
         }
     }
 
-    @Override
-    protected synchronized void stopScan() {
-        super.stopScan();
-        final ExecutorService service = executorService;
-        if (service == null) {
-            return;
+    private IpPingMethodEnum getPingMethod() {
+        IpPingMethodEnum method = pingMethod;
+        if (method == null) {
+            method = networkUtils.determinePingMethod();
+            pingMethod = method;
+        }
+        return method;
+    }
+
+    private ArpPingUtilEnum getArpingTool(String arpingToolPath) {
+        ArpPingUtilEnum tool = arpingTool;
+        if (tool == null || !arpingToolPath.equals(this.arpingToolPath)) {
+            tool = StringUtils.isBlank(arpingToolPath) ? ArpPingUtilEnum.UNKNOWN_TOOL
+                    : networkUtils.determineNativeARPpingMethod(arpingToolPath);
+            arpingTool = tool;
+            this.arpingToolPath = arpingToolPath;
         }
+        return tool;
+    }
 
-        try {
-            service.awaitTermination(PING_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Reset interrupt flag
+    @Override
+    protected synchronized void stopScan() {
+        NetworkSweep sweep = this.sweep;
+        this.sweep = null;
+        if (sweep != null) {
+            sweep.cancel();
         }
-        service.shutdown();
-        executorService = null;
+        super.stopScan();
     }
 
     public static ThingUID createServiceUID(String ip, int tcpPort) {
@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.discovery;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.utils.NetworkUtils;
+import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
+import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.openhab.binding.network.internal.utils.PresenceDetectionEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sweeps a range of addresses for reachable devices through a bounded pipeline on the
+ * {@link PresenceDetectionEngine}.
+ *
+ * Each address is checked in escalating steps:
+ * <ol>
+ * <li>Non-blocking TCP connection attempts to the service ports. Refused connections complete
+ * quickly and make the operating system resolve the hardware address of hosts on the local network.</li>
+ * <li>A lookup in the ARP table of the operating system.</li>
+ * <li>If neither step resolved the host and an arping tool is configured, an ARP ping on each interface,
+ * preceded by a packet waking up sleeping iOS devices.</li>
+ * <li>Only if the host is not in the ARP table and did not respond to the ARP ping, a process based ICMP
+ * ping.</li>
+ * </ol>
+ *
+ * The number of addresses in progress adapts to the network: it grows by one for every completed address and
+ * is halved whenever a reachable service responds slower than half the timeout.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class NetworkSweep {
+    static final int INITIAL_CONCURRENCY = 16;
+    static final int MIN_CONCURRENCY = 4;
+    static final int MAX_CONCURRENCY = 128;
+    private static final long ARP_TABLE_MAX_AGE_MS = 500;
+
+    /**
+     * Receives the results of a {@link NetworkSweep}. Called from the presence detection engine thread, so
+     * implementations must not block.
+     */
+    public interface Listener {
+        /**
+         * A device was found.
+         *
+         * @param ip The device IP
+         * @param pingReachable True if the device responded to ARP or ICMP
+         * @param tcpPorts The open service ports
+         */
+        void hostFound(String ip, boolean pingReachable, Set<Integer> tcpPorts);
+
+        /**
+         * Called after each checked address.
+         *
+         * @param scanned Number of checked addresses
+         * @param total Number of addresses to check
+         */
+        void progress(int scanned, int total);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(NetworkSweep.class);
+
+    private final PresenceDetectionEngine engine;
+    private final NetworkUtils networkUtils;
+    private final Iterator<String> addresses;
+    private final int total;
+    private final Set<Integer> tcpPorts;
+    private final int timeoutInMS;
+    private final @Nullable IpPingMethodEnum pingMethod;
+    private final Listener listener;
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+    // Set before the sweep is started
+    private ArpPingUtilEnum arpingTool = ArpPingUtilEnum.UNKNOWN_TOOL;
+    private String arpingToolPath = "";
+    private Set<String> interfaceNames = Collections.emptySet();
+
+    private int concurrency = INITIAL_CONCURRENCY;
+    private int inProgress;
+    private int scanned;
+    private boolean cancelled;
+
+    private @Nullable Map<String, Boolean> arpTable;
+    private long arpTableReadNanos;
+
+    /**
+     * Create a sweep. Call {@link #start()} to begin.
+     *
+     * @param addresses The IP addresses to check, consumed while the sweep progresses
+     * @param total The number of addresses, for progress reports
+     * @param tcpPorts The service ports to check
+     * @param timeoutInMS Timeout of each check
+     * @param pingMethod The native ping method for unresolved hosts, or null to not escalate to ICMP pings
+     */
+    public NetworkSweep(PresenceDetectionEngine engine, NetworkUtils networkUtils, Iterator<String> addresses,
+            int total, Set<Integer> tcpPorts, int timeoutInMS, @Nullable IpPingMethodEnum pingMethod,
+            Listener listener) {
+        this.engine = engine;
+        this.networkUtils = networkUtils;
+        this.addresses = addresses;
+        this.total = total;
+        this.tcpPorts = tcpPorts;
+        this.timeoutInMS = timeoutInMS;
+        this.pingMethod = pingMethod;
+        this.listener = listener;
+    }
+
+    /**
+     * Enable ARP pings for hosts that are not resolved by their service ports or the ARP table. Must be called
+     * before {@link #start()}.
+     *
+     * @param arpingTool The arping tool, ARP pings are disabled for {@link ArpPingUtilEnum#UNKNOWN_TOOL}
+     * @param arpingToolPath The path of the arping tool
+     * @param interfaceNames The interfaces to send ARP pings on
+     */
+    public void setArpPing(ArpPingUtilEnum arpingTool, String arpingToolPath, Set<String> interfaceNames) {
+        this.arpingTool = arpingTool;
+        this.arpingToolPath = arpingToolPath;
+        this.interfaceNames = interfaceNames;
+    }
+
+    /**
+     * Start the sweep.
+     *
+     * @return A future completing when all addresses are checked or the sweep was cancelled
+     */
+    public CompletableFuture<Void> start() {
+        fill();
+        return finished;
+    }
+
+    /**
+     * Stop checking further addresses.
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+        }
+        // Complete outside of the lock, dependent actions may take other locks
+        finished.complete(null);
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    public synchronized int getScanned() {
+        return scanned;
+    }
+
+    /**
+     * Start checking addresses until the concurrency limit is reached.
+     */
+    private void fill() {
+        List<String> next = new ArrayList<>();
+        boolean done;
+        synchronized (this) {
+            while (!cancelled && inProgress + next.size() < concurrency && addresses.hasNext()) {
+                next.add(addresses.next());
+            }
+            inProgress += next.size();
+            done = inProgress == 0 && (cancelled || !addresses.hasNext());
+        }
+        if (done) {
+            finished.complete(null);
+        }
+        // Start outside of the lock, results may complete immediately
+        for (String ip : next) {
+            check(ip).whenComplete((result, error) -> {
+                if (error != null) {
+                    logger.debug("Checking {} failed", ip, error);
+                }
+                completed();
+            });
+        }
+    }
+
+    private void completed() {
+        int scanned;
+        synchronized (this) {
+            inProgress--;
+            scanned = ++this.scanned;
+            concurrency = Math.min(MAX_CONCURRENCY, concurrency + 1);
+        }
+        listener.progress(scanned, total);
+        fill();
+    }
+
+    private synchronized void slowResponse() {
+        concurrency = Math.max(MIN_CONCURRENCY, concurrency / 2);
+    }
+
+    private CompletableFuture<Void> check(String ip) {
+        InetAddress address;
+        try {
+            address = InetAddress.getByName(ip);
+        } catch (UnknownHostException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Set<Integer> openPorts = new TreeSet<>();
+        List<CompletableFuture<Double>> connects = new ArrayList<>();
+        for (Integer port : tcpPorts) {
+            connects.add(engine.servicePing(address, port, timeoutInMS).thenApply(latency -> {
+                if (latency != PresenceDetection.NOT_REACHABLE) {
+                    synchronized (openPorts) {
+                        openPorts.add(port);
+                    }
+                    if (latency > timeoutInMS / 2) {
+                        slowResponse();
+                    }
+                }
+                return latency;
+            }));
+        }
+
+        return CompletableFuture.allOf(connects.toArray(new CompletableFuture<?>[connects.size()]))
+                .thenCompose(ignored -> {
+                    Boolean arpResolved = lookupArpTable(ip);
+                    if (Boolean.TRUE.equals(arpResolved)) {
+                        listener.hostFound(ip, true, openPorts);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (!openPorts.isEmpty()) {
+                        listener.hostFound(ip, false, openPorts);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return arpPing(address).thenCompose(arpReachable -> {
+                        if (arpReachable) {
+                            listener.hostFound(ip, true, openPorts);
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        IpPingMethodEnum method = pingMethod;
+                        // An incomplete ARP entry means the host did not respond on the local network
+                        if (arpResolved != null || method == null) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        CompletableFuture<Double> ping = method == IpPingMethodEnum.JAVA_PING
+                                ? engine.javaPing(address, timeoutInMS)
+                                : engine.nativePing(networkUtils, method, ip, timeoutInMS);
+                        return ping.thenAccept(latency -> {
+                            if (latency != PresenceDetection.NOT_REACHABLE) {
+                                listener.hostFound(ip, true, openPorts);
+                            }
+                        });
+                    });
+                });
+    }
+
+    /**
+     * Wake up a possibly sleeping iOS device and send an ARP ping on each interface.
+     *
+     * @return A future completing with true if the device responded on any interface
+     */
+    private CompletableFuture<Boolean> arpPing(InetAddress address) {
+        if (arpingTool == ArpPingUtilEnum.UNKNOWN_TOOL || interfaceNames.isEmpty()
+                || !(address instanceof Inet4Address)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        try {
+            networkUtils.wakeUpIOS(address);
+        } catch (IOException e) {
+            logger.trace("Failed to wake up iOS device {}", address, e);
+        }
+        List<CompletableFuture<Double>> pings = new ArrayList<>();
+        for (String interfaceName : interfaceNames) {
+            pings.add(engine.nativeARPPing(networkUtils, arpingTool, arpingToolPath, interfaceName,
+                    address.getHostAddress(), timeoutInMS, PresenceDetection.IOS_WAKEUP_TIME_MS));
+        }
+        return CompletableFuture.allOf(pings.toArray(new CompletableFuture<?>[pings.size()]))
+                .thenApply(ignored -> pings.stream().anyMatch(ping -> ping.join() != PresenceDetection.NOT_REACHABLE));
+    }
+
+    /**
+     * Look up the address in the ARP table, which is read again if it is older than
+     * {@link #ARP_TABLE_MAX_AGE_MS}.
+     *
+     * @return True if the hardware address is resolved, false if the resolution is incomplete and null if the
+     *         address is not in the table or the table is not available
+     */
+    private synchronized @Nullable Boolean lookupArpTable(String ip) {
+        long now = System.nanoTime();
+        if (arpTableReadNanos == 0 || now - arpTableReadNanos > TimeUnit.MILLISECONDS.toNanos(ARP_TABLE_MAX_AGE_MS)) {
+            arpTable = networkUtils.readArpTable();
+            arpTableReadNanos = now;
+        }
+        Map<String, Boolean> table = arpTable;
+        return table == null ? null : table.get(ip);
+    }
+}
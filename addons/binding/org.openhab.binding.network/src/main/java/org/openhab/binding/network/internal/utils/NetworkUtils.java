@@ -28,10 +28,15 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
@@ -48,6 +53,9 @@ import org.eclipse.smarthome.io.net.exec.ExecUtil;
  */
 @NonNullByDefault
 public class NetworkUtils {
+    private static final String ARP_TABLE_PATH = "/proc/net/arp";
+    private static final int ARP_FLAG_COMPLETE = 0x2;
+
     /**
      * Gets every IPv4 Address on each Interface except the loopback
      * The Address format is ip/subnet
@@ -151,6 +159,33 @@ public class NetworkUtils {
         return networkIPs;
     }
 
+    /**
+     * Read the ARP table of the operating system. Only supported on Linux.
+     *
+     * @return The IPv4 addresses in the ARP table, mapped to true if the hardware address was resolved and to false
+     *         if the resolution is incomplete (the host did not respond), or null if the ARP table is not available
+     */
+    public @Nullable Map<String, Boolean> readArpTable() {
+        Path path = Paths.get(ARP_TABLE_PATH);
+        if (!Files.isReadable(path)) {
+            return null;
+        }
+        Map<String, Boolean> table = new HashMap<>();
+        try (BufferedReader r = Files.newBufferedReader(path)) {
+            // Skip the header line: IP address, HW type, Flags, HW address, Mask, Device
+            String line = r.readLine();
+            while ((line = r.readLine()) != null) {
+                String[] columns = line.trim().split("\\s+");
+                if (columns.length >= 3) {
+                    table.put(columns[0], (Integer.decode(columns[2]) & ARP_FLAG_COMPLETE) != 0);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+        return table;
+    }
+
     /**
      * Try to establish a tcp connection to the given port. Returns false if a timeout occurred
      * or the connection was denied.
@@ -236,36 +271,62 @@ public class NetworkUtils {
      */
     public boolean nativePing(@Nullable IpPingMethodEnum method, String hostname, int timeoutInMS)
             throws IOException, InterruptedException {
-        Process proc;
+        Process proc = startNativePing(method, hostname, timeoutInMS);
+        if (proc == null) {
+            return false;
+        }
+        proc.waitFor();
+        return isNativePingSuccessful(method, proc);
+    }
+
+    /**
+     * Start the native ping utility of the operating system without waiting for it to finish.
+     * Use {@link #isNativePingSuccessful(IpPingMethodEnum, Process)} to evaluate the terminated process.
+     *
+     * @param hostname The DNS name, IPv4 or IPv6 address. Must not be null.
+     * @param timeoutInMS Timeout in milliseconds. Be aware that DNS resolution is not part of this timeout.
+     * @return Returns the started process or null if there is no native ping utility for the given method
+     * @throws IOException The ping command could probably not be found
+     */
+    public @Nullable Process startNativePing(@Nullable IpPingMethodEnum method, String hostname, int timeoutInMS)
+            throws IOException {
+        if (method == null) {
+            return null;
+        }
         // Yes, all supported operating systems have their own ping utility with a different command line
         switch (method) {
             case IPUTILS_LINUX_PING:
-                proc = new ProcessBuilder("ping", "-w", String.valueOf(timeoutInMS / 1000), "-c", "1", hostname)
+                return new ProcessBuilder("ping", "-w", String.valueOf(timeoutInMS / 1000), "-c", "1", hostname)
                         .start();
-                break;
             case MAC_OS_PING:
-                proc = new ProcessBuilder("ping", "-t", String.valueOf(timeoutInMS / 1000), "-c", "1", hostname)
+                return new ProcessBuilder("ping", "-t", String.valueOf(timeoutInMS / 1000), "-c", "1", hostname)
                         .start();
-                break;
             case WINDOWS_PING:
-                proc = new ProcessBuilder("ping", "-w", String.valueOf(timeoutInMS), "-n", "1", hostname).start();
-                break;
+                return new ProcessBuilder("ping", "-w", String.valueOf(timeoutInMS), "-n", "1", hostname).start();
             case JAVA_PING:
             default:
-                // We cannot estimate the command line for any other operating system and just return false
-                return false;
+                // We cannot estimate the command line for any other operating system
+                return null;
         }
+    }
 
+    /**
+     * Evaluate a terminated process started by {@link #startNativePing(IpPingMethodEnum, String, int)}.
+     *
+     * @return Returns true if the device responded
+     * @throws IOException The output of the ping process could not be read
+     */
+    public boolean isNativePingSuccessful(@Nullable IpPingMethodEnum method, Process proc) throws IOException {
         // The return code is 0 for a successful ping, 1 if device didn't
         // respond, and 2 if there is another error like network interface
         // not ready.
         // Exception: return code is also 0 in Windows for all requests on the local subnet.
         // see https://superuser.com/questions/403905/ping-from-windows-7-get-no-reply-but-sets-errorlevel-to-0
         if (method != IpPingMethodEnum.WINDOWS_PING) {
-            return proc.waitFor() == 0;
+            return proc.exitValue() == 0;
         }
 
-        int result = proc.waitFor();
+        int result = proc.exitValue();
         if (result != 0) {
             return false;
         }
@@ -310,23 +371,37 @@ public class NetworkUtils {
      */
     public boolean nativeARPPing(@Nullable ArpPingUtilEnum arpingTool, @Nullable String arpUtilPath,
             String interfaceName, String ipV4address, int timeoutInMS) throws IOException, InterruptedException {
-        if (arpUtilPath == null || arpingTool == null || arpingTool == ArpPingUtilEnum.UNKNOWN_TOOL) {
+        Process proc = startNativeARPPing(arpingTool, arpUtilPath, interfaceName, ipV4address, timeoutInMS);
+        if (proc == null) {
             return false;
         }
-        Process proc;
+        // The return code is 0 for a successful ping. 1 if device didn't respond and 2 if there is another error like
+        // network interface not ready.
+        return proc.waitFor() == 0;
+    }
+
+    /**
+     * Start the arping tool without waiting for it to finish. The ARP ping was successful if the exit value of the
+     * process is 0.
+     *
+     * @see #nativeARPPing(ArpPingUtilEnum, String, String, String, int)
+     * @return Return the started process or null if there is no usable arping tool
+     * @throws IOException The ping command could probably not be found
+     */
+    public @Nullable Process startNativeARPPing(@Nullable ArpPingUtilEnum arpingTool, @Nullable String arpUtilPath,
+            String interfaceName, String ipV4address, int timeoutInMS) throws IOException {
+        if (arpUtilPath == null || arpingTool == null || arpingTool == ArpPingUtilEnum.UNKNOWN_TOOL) {
+            return null;
+        }
         if (arpingTool == ArpPingUtilEnum.THOMAS_HABERT_ARPING_WITHOUT_TIMEOUT) {
-            proc = new ProcessBuilder(arpUtilPath, "-c", "1", "-i", interfaceName, ipV4address).start();
+            return new ProcessBuilder(arpUtilPath, "-c", "1", "-i", interfaceName, ipV4address).start();
         } else if (arpingTool == ArpPingUtilEnum.THOMAS_HABERT_ARPING) {
-            proc = new ProcessBuilder(arpUtilPath, "-w", String.valueOf(timeoutInMS / 1000), "-c", "1", "-i",
+            return new ProcessBuilder(arpUtilPath, "-w", String.valueOf(timeoutInMS / 1000), "-c", "1", "-i",
                     interfaceName, ipV4address).start();
         } else {
-            proc = new ProcessBuilder(arpUtilPath, "-w", String.valueOf(timeoutInMS / 1000), "-c", "1", "-I",
+            return new ProcessBuilder(arpUtilPath, "-w", String.valueOf(timeoutInMS / 1000), "-c", "1", "-I",
                     interfaceName, ipV4address).start();
         }
-
-        // The return code is 0 for a successful ping. 1 if device didn't respond and 2 if there is another error like
-        // network interface not ready.
-        return proc.waitFor() == 0;
     }
 
     /**
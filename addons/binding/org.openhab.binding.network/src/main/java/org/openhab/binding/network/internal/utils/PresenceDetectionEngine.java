@@ -0,0 +1,586 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.PresenceDetectionType;
+import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
+import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A singleton performing the probes of all {@link PresenceDetection} instances.
+ *
+ * TCP connection attempts are multiplexed over a single NIO selector. Native ping and arping processes are
+ * started and watched by the same thread, limited to {@link #MAX_RUNNING_PROCESSES} at a time, instead of
+ * blocking one thread per process. Probes of the same kind for the same destination are deduplicated: while a
+ * probe is in progress, further requests share its result.
+ *
+ * The thread is started on demand and stops after being idle for {@link #IDLE_TIMEOUT_MS}. Results are
+ * completed on the engine thread, so dependent actions must not block.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class PresenceDetectionEngine {
+    private static final PresenceDetectionEngine INSTANCE = new PresenceDetectionEngine();
+
+    static final int MAX_RUNNING_PROCESSES = 16;
+    static final long IDLE_TIMEOUT_MS = 30000;
+    // Native tools only accept timeouts in seconds and need some time to start
+    private static final long PROCESS_GRACE_MS = 1500;
+    private static final long PROCESS_POLL_INTERVAL_MS = 10;
+    private static final long STATISTICS_LOG_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final String THREAD_POOL_NAME = "networkPresenceDetection";
+
+    private final Logger logger = LoggerFactory.getLogger(PresenceDetectionEngine.class);
+
+    /**
+     * Statistics of the probes of one {@link PresenceDetectionType}
+     */
+    public static class ProbeStatistics {
+        private final LongAdder probes = new LongAdder();
+        private final LongAdder reachable = new LongAdder();
+        private final LongAdder deduplicated = new LongAdder();
+        private final LongAdder latencySum = new LongAdder();
+        private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+
+        void record(double latency) {
+            probes.increment();
+            if (latency != PresenceDetection.NOT_REACHABLE) {
+                reachable.increment();
+                latencySum.add((long) latency);
+                maxLatency.accumulate((long) latency);
+            }
+        }
+
+        /**
+         * Return the number of executed probes, excluding deduplicated requests.
+         */
+        public long getProbes() {
+            return probes.sum();
+        }
+
+        /**
+         * Return the number of probes that reached the destination.
+         */
+        public long getReachable() {
+            return reachable.sum();
+        }
+
+        /**
+         * Return the number of requests that shared the result of a probe in progress.
+         */
+        public long getDeduplicated() {
+            return deduplicated.sum();
+        }
+
+        /**
+         * Return the average latency of successful probes in milliseconds.
+         */
+        public double getAverageLatency() {
+            long count = reachable.sum();
+            return count == 0 ? 0 : (double) latencySum.sum() / count;
+        }
+
+        /**
+         * Return the maximum latency of successful probes in milliseconds.
+         */
+        public long getMaxLatency() {
+            return maxLatency.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("probes=%d, reachable=%d, deduplicated=%d, latency avg=%.1f ms max=%d ms",
+                    getProbes(), getReachable(), getDeduplicated(), getAverageLatency(), getMaxLatency());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ProcessStarter {
+        @Nullable
+        Process start() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ProcessEvaluator {
+        boolean isSuccessful(Process process) throws IOException;
+    }
+
+    private static class EngineTask {
+        final CompletableFuture<Double> result;
+        final Runnable task;
+
+        EngineTask(CompletableFuture<Double> result, Runnable task) {
+            this.result = result;
+            this.task = task;
+        }
+    }
+
+    private static class PendingConnect {
+        final CompletableFuture<Double> result;
+        final long startNanos;
+        final long deadlineNanos;
+
+        PendingConnect(CompletableFuture<Double> result, long startNanos, long deadlineNanos) {
+            this.result = result;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private static class ProcessProbe {
+        final ProcessStarter starter;
+        final ProcessEvaluator evaluator;
+        final CompletableFuture<Double> result;
+        final long notBeforeNanos;
+        final long timeoutNanos;
+        long startNanos;
+        @Nullable
+        Process process;
+
+        ProcessProbe(ProcessStarter starter, ProcessEvaluator evaluator, CompletableFuture<Double> result,
+                long notBeforeNanos, long timeoutNanos) {
+            this.starter = starter;
+            this.evaluator = evaluator;
+            this.result = result;
+            this.notBeforeNanos = notBeforeNanos;
+            this.timeoutNanos = timeoutNanos;
+        }
+    }
+
+    private final Map<String, CompletableFuture<Double>> inProgress = new ConcurrentHashMap<>();
+    private final Map<PresenceDetectionType, ProbeStatistics> statistics = new EnumMap<>(
+            PresenceDetectionType.class);
+    private final Queue<EngineTask> tasks = new ConcurrentLinkedQueue<>();
+
+    // Only accessed by the engine thread
+    private final Deque<ProcessProbe> waitingProcesses = new ArrayDeque<>();
+    private final Deque<ProcessProbe> runningProcesses = new ArrayDeque<>();
+
+    private @Nullable Thread thread;
+    private @Nullable Selector selector;
+
+    PresenceDetectionEngine() {
+        for (PresenceDetectionType type : PresenceDetectionType.values()) {
+            statistics.put(type, new ProbeStatistics());
+        }
+    }
+
+    public static PresenceDetectionEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Return the probe statistics per presence detection type.
+     */
+    public Map<PresenceDetectionType, ProbeStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * Try to establish a tcp connection to the given port.
+     *
+     * @param address The destination address
+     * @param port The tcp port. Must be not 0.
+     * @param timeoutInMS Timeout in ms
+     * @return The latency in ms or {@link PresenceDetection#NOT_REACHABLE} if a timeout occurred or the connection
+     *         was denied
+     */
+    public CompletableFuture<Double> servicePing(InetAddress address, int port, int timeoutInMS) {
+        return probe(PresenceDetectionType.TCP_CONNECTION, address.getHostAddress() + ":" + port, timeoutInMS,
+                result -> {
+                    long startNanos = System.nanoTime();
+                    execute(result, () -> startConnect(new InetSocketAddress(address, port), result, startNanos,
+                            startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutInMS)));
+                });
+    }
+
+    /**
+     * Perform a ping with the native ping utility of the operating system.
+     *
+     * @see NetworkUtils#nativePing(IpPingMethodEnum, String, int)
+     * @return The latency in ms or {@link PresenceDetection#NOT_REACHABLE}
+     */
+    public CompletableFuture<Double> nativePing(NetworkUtils networkUtils, IpPingMethodEnum method, String hostname,
+            int timeoutInMS) {
+        return probe(PresenceDetectionType.ICMP_PING, hostname, timeoutInMS, result -> {
+            ProcessProbe probe = new ProcessProbe(() -> networkUtils.startNativePing(method, hostname, timeoutInMS),
+                    process -> networkUtils.isNativePingSuccessful(method, process), result, System.nanoTime(),
+                    TimeUnit.MILLISECONDS.toNanos(timeoutInMS + PROCESS_GRACE_MS));
+            execute(result, () -> waitingProcesses.add(probe));
+        });
+    }
+
+    /**
+     * Perform an ARP ping with the given arping tool.
+     *
+     * @see NetworkUtils#nativeARPPing(ArpPingUtilEnum, String, String, String, int)
+     * @param delayInMS Delay before starting the tool, for example to let an iOS device wake up
+     * @return The latency in ms or {@link PresenceDetection#NOT_REACHABLE}
+     */
+    public CompletableFuture<Double> nativeARPPing(NetworkUtils networkUtils, ArpPingUtilEnum arpingTool,
+            String arpUtilPath, String interfaceName, String ipV4address, int timeoutInMS, long delayInMS) {
+        return probe(PresenceDetectionType.ARP_PING, ipV4address + "%" + interfaceName, timeoutInMS, result -> {
+            ProcessProbe probe = new ProcessProbe(
+                    () -> networkUtils.startNativeARPPing(arpingTool, arpUtilPath, interfaceName, ipV4address,
+                            timeoutInMS),
+                    process -> process.exitValue() == 0, result,
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayInMS),
+                    TimeUnit.MILLISECONDS.toNanos(timeoutInMS + PROCESS_GRACE_MS));
+            execute(result, () -> waitingProcesses.add(probe));
+        });
+    }
+
+    /**
+     * Perform a java ping. This blocks a thread of a shared pool for each probe, see
+     * {@link PresenceDetection#performJavaPing()} why this method is not recommended.
+     *
+     * @return The latency in ms or {@link PresenceDetection#NOT_REACHABLE}
+     */
+    public CompletableFuture<Double> javaPing(InetAddress address, int timeoutInMS) {
+        return probe(PresenceDetectionType.ICMP_PING, "java:" + address.getHostAddress(), timeoutInMS, result -> {
+            ThreadPoolManager.getPool(THREAD_POOL_NAME).execute(() -> {
+                long startNanos = System.nanoTime();
+                try {
+                    result.complete(address.isReachable(timeoutInMS) ? latencySince(startNanos)
+                            : PresenceDetection.NOT_REACHABLE);
+                } catch (IOException e) {
+                    logger.trace("Failed to execute a java ping for ip {}", address, e);
+                    result.complete(PresenceDetection.NOT_REACHABLE);
+                }
+            });
+        });
+    }
+
+    /**
+     * Start a new probe, or return the result of the probe in progress with the same key. Probes with different
+     * timeouts are not shared, a probe with a longer timeout may report a device as reachable that a shorter one
+     * would not.
+     */
+    private CompletableFuture<Double> probe(PresenceDetectionType type, String destination, int timeoutInMS,
+            Consumer<CompletableFuture<Double>> starter) {
+        String key = type + "/" + destination + "/" + timeoutInMS;
+        ProbeStatistics probeStatistics = statistics.get(type);
+        CompletableFuture<Double> result = new CompletableFuture<>();
+        // Dependents of the returned future see the probe finished and accounted
+        CompletableFuture<Double> shared = result.whenComplete((latency, error) -> {
+            // Only this probe can be in progress for the key until it is removed
+            inProgress.remove(key);
+            probeStatistics.record(latency == null ? PresenceDetection.NOT_REACHABLE : latency);
+        });
+        CompletableFuture<Double> existing = inProgress.putIfAbsent(key, shared);
+        if (existing != null) {
+            probeStatistics.deduplicated.increment();
+            return existing;
+        }
+        starter.accept(result);
+        return shared;
+    }
+
+    private static double latencySince(long startNanos) {
+        return Math.round((System.nanoTime() - startNanos) / 1000000.0f);
+    }
+
+    /**
+     * Execute the given task on the engine thread, starting the thread if necessary. The probe result is completed
+     * as not reachable if the task fails.
+     */
+    private void execute(CompletableFuture<Double> result, Runnable task) {
+        synchronized (this) {
+            tasks.add(new EngineTask(result, task));
+            Selector selector = this.selector;
+            if (thread != null && selector != null) {
+                selector.wakeup();
+                return;
+            }
+            startThread();
+        }
+    }
+
+    /**
+     * Start the engine thread. Queued probes are completed as not reachable if that is not possible.
+     */
+    private synchronized void startThread() {
+        Selector selector;
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            logger.warn("Could not start the presence detection", e);
+            EngineTask task;
+            while ((task = tasks.poll()) != null) {
+                task.result.complete(PresenceDetection.NOT_REACHABLE);
+            }
+            return;
+        }
+        this.selector = selector;
+        Thread thread = new Thread(() -> run(selector), THREAD_POOL_NAME);
+        thread.setDaemon(true);
+        this.thread = thread;
+        thread.start();
+    }
+
+    private void run(Selector selector) {
+        try {
+            runLoop(selector);
+        } finally {
+            stop(selector);
+        }
+    }
+
+    /**
+     * Release the state of a stopped engine thread, so the next probe starts a new one. Outstanding probes are
+     * completed as not reachable, queued tasks are handed to a new thread.
+     */
+    private void stop(Selector selector) {
+        for (SelectionKey key : selector.keys()) {
+            key.cancel();
+            closeQuietly(key.channel());
+            ((PendingConnect) key.attachment()).result.complete(PresenceDetection.NOT_REACHABLE);
+        }
+        for (ProcessProbe probe : runningProcesses) {
+            Process process = probe.process;
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            probe.result.complete(PresenceDetection.NOT_REACHABLE);
+        }
+        runningProcesses.clear();
+        waitingProcesses.forEach(probe -> probe.result.complete(PresenceDetection.NOT_REACHABLE));
+        waitingProcesses.clear();
+        closeQuietly(selector);
+        synchronized (this) {
+            if (thread == Thread.currentThread()) {
+                thread = null;
+                this.selector = null;
+                if (!tasks.isEmpty()) {
+                    startThread();
+                }
+            }
+        }
+    }
+
+    private void runLoop(Selector selector) {
+        long idleSinceNanos = System.nanoTime();
+        long lastStatisticsLogNanos = idleSinceNanos;
+        while (true) {
+            EngineTask task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.task.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Presence detection probe failed", e);
+                    task.result.complete(PresenceDetection.NOT_REACHABLE);
+                }
+            }
+
+            long now = System.nanoTime();
+            checkRunningProcesses(now);
+            startWaitingProcesses(now);
+            long nextConnectDeadline = expireConnects(selector, now);
+
+            boolean processesPending = !runningProcesses.isEmpty() || !waitingProcesses.isEmpty();
+            if (processesPending || !selector.keys().isEmpty()) {
+                idleSinceNanos = now;
+            } else if (now - idleSinceNanos > TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MS)) {
+                synchronized (this) {
+                    if (tasks.isEmpty()) {
+                        thread = null;
+                        this.selector = null;
+                        return;
+                    }
+                }
+            }
+
+            if (now - lastStatisticsLogNanos > TimeUnit.MILLISECONDS.toNanos(STATISTICS_LOG_INTERVAL_MS)) {
+                lastStatisticsLogNanos = now;
+                logger.debug("Presence detection statistics: {}", statistics);
+            }
+
+            long timeout = processesPending ? PROCESS_POLL_INTERVAL_MS
+                    : Math.max(1, Math.min(1000, TimeUnit.NANOSECONDS.toMillis(nextConnectDeadline - now) + 1));
+            try {
+                selector.select(timeout);
+            } catch (IOException e) {
+                logger.debug("Selecting connections failed", e);
+            }
+            Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+            while (selected.hasNext()) {
+                SelectionKey key = selected.next();
+                selected.remove();
+                try {
+                    finishConnect(key);
+                } catch (RuntimeException e) {
+                    logger.warn("Finishing a connection failed", e);
+                    key.cancel();
+                    closeQuietly(key.channel());
+                    ((PendingConnect) key.attachment()).result.complete(PresenceDetection.NOT_REACHABLE);
+                }
+            }
+        }
+    }
+
+    private void startConnect(InetSocketAddress address, CompletableFuture<Double> result, long startNanos,
+            long deadlineNanos) {
+        Selector selector = this.selector;
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                closeQuietly(channel);
+                result.complete(latencySince(startNanos));
+            } else if (selector != null) {
+                channel.register(selector, SelectionKey.OP_CONNECT,
+                        new PendingConnect(result, startNanos, deadlineNanos));
+            } else {
+                throw new IOException("Presence detection engine stopped");
+            }
+        } catch (IOException e) {
+            logger.trace("Could not create a socket connection to {}", address, e);
+            if (channel != null) {
+                closeQuietly(channel);
+            }
+            result.complete(PresenceDetection.NOT_REACHABLE);
+        }
+    }
+
+    private void finishConnect(SelectionKey key) {
+        PendingConnect pending = (PendingConnect) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        double latency;
+        try {
+            latency = channel.finishConnect() ? latencySince(pending.startNanos) : PresenceDetection.NOT_REACHABLE;
+        } catch (IOException e) {
+            // Connection refused or no route to host
+            latency = PresenceDetection.NOT_REACHABLE;
+        }
+        key.cancel();
+        closeQuietly(channel);
+        pending.result.complete(latency);
+    }
+
+    /**
+     * Fail the connection attempts that have timed out.
+     *
+     * @return The earliest deadline of the remaining connection attempts
+     */
+    private long expireConnects(Selector selector, long now) {
+        long nextDeadline = now + TimeUnit.SECONDS.toNanos(1);
+        for (SelectionKey key : selector.keys()) {
+            PendingConnect pending = (PendingConnect) key.attachment();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (now - pending.deadlineNanos > 0) {
+                key.cancel();
+                closeQuietly(key.channel());
+                pending.result.complete(PresenceDetection.NOT_REACHABLE);
+            } else if (pending.deadlineNanos - nextDeadline < 0) {
+                nextDeadline = pending.deadlineNanos;
+            }
+        }
+        return nextDeadline;
+    }
+
+    private void startWaitingProcesses(long now) {
+        Iterator<ProcessProbe> iterator = waitingProcesses.iterator();
+        while (iterator.hasNext() && runningProcesses.size() < MAX_RUNNING_PROCESSES) {
+            ProcessProbe probe = iterator.next();
+            if (now - probe.notBeforeNanos < 0) {
+                continue;
+            }
+            iterator.remove();
+            try {
+                probe.startNanos = System.nanoTime();
+                Process process = probe.starter.start();
+                if (process == null) {
+                    probe.result.complete(PresenceDetection.NOT_REACHABLE);
+                } else {
+                    probe.process = process;
+                    runningProcesses.add(probe);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.trace("Failed to start a ping process", e);
+                probe.result.complete(PresenceDetection.NOT_REACHABLE);
+            }
+        }
+    }
+
+    private void checkRunningProcesses(long now) {
+        Iterator<ProcessProbe> iterator = runningProcesses.iterator();
+        while (iterator.hasNext()) {
+            ProcessProbe probe = iterator.next();
+            Process process = probe.process;
+            if (process == null) {
+                iterator.remove();
+                continue;
+            }
+            if (process.isAlive()) {
+                if (now - probe.startNanos > probe.timeoutNanos) {
+                    iterator.remove();
+                    process.destroyForcibly();
+                    probe.result.complete(PresenceDetection.NOT_REACHABLE);
+                }
+                continue;
+            }
+            iterator.remove();
+            double latency;
+            try {
+                latency = probe.evaluator.isSuccessful(process) ? latencySince(probe.startNanos)
+                        : PresenceDetection.NOT_REACHABLE;
+            } catch (IOException | RuntimeException e) {
+                logger.trace("Failed to evaluate a ping process", e);
+                latency = PresenceDetection.NOT_REACHABLE;
+            }
+            // Release the streams of the terminated process
+            process.destroy();
+            probe.result.complete(latency);
+        }
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.trace("Failed to close", e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests cases for {@link ItemUpdateBatcher}
+ *
+ * The batch window is long enough to never end during a test, the tests end it by running the scheduled job.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemUpdateBatcherTest {
+
+    private static final long WINDOW = TimeUnit.HOURS.toMillis(1);
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    private final List<String> sentUpdates = new ArrayList<>();
+    private int sendLimit = Integer.MAX_VALUE;
+
+    @Before
+    public void setUp() {
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private ItemUpdateBatcher createBatcher(int capacity) {
+        return new ItemUpdateBatcher(WINDOW, capacity, scheduler, this::send);
+    }
+
+    /**
+     * Records the update, fails when the connection is lost after {@link #sendLimit} updates
+     */
+    private boolean send(JSONObject message) {
+        if (sentUpdates.size() >= sendLimit) {
+            return false;
+        }
+        sentUpdates.add(message.getString("itemName") + "=" + message.getString("itemStatus"));
+        return true;
+    }
+
+    /**
+     * Ends the batch window by running the scheduled job
+     */
+    private void endWindow() {
+        assertThat(scheduler.getQueue().size(), is(1));
+        Runnable job = scheduler.getQueue().iterator().next();
+        scheduler.remove(job);
+        job.run();
+    }
+
+    @Test
+    public void coalescesUpdatesWithinWindow() {
+        ItemUpdateBatcher batcher = createBatcher(ItemUpdateBatcher.MAX_PENDING_UPDATES);
+        batcher.connected();
+        batcher.update("a", "1");
+        batcher.update("b", "1");
+        batcher.update("a", "2");
+        batcher.update("a", "3");
+
+        assertThat(batcher.getPendingCount(), is(2));
+        assertThat(batcher.getCoalescedCount(), is(2L));
+
+        endWindow();
+
+        // only the latest state is sent, ordered by the last update
+        assertThat(sentUpdates.toString(), is("[b=1, a=3]"));
+        assertThat(batcher.getSentCount(), is(2L));
+        assertThat(batcher.getPendingCount(), is(0));
+        assertThat(batcher.getDroppedCount(), is(0L));
+    }
+
+    @Test
+    public void nothingIsSentWhileDisconnected() {
+        ItemUpdateBatcher batcher = createBatcher(ItemUpdateBatcher.MAX_PENDING_UPDATES);
+        batcher.update("a", "1");
+
+        assertThat(scheduler.getQueue().size(), is(0));
+        batcher.flush();
+        assertThat(sentUpdates.isEmpty(), is(true));
+        assertThat(batcher.getPendingCount(), is(1));
+
+        batcher.connected();
+        endWindow();
+        assertThat(sentUpdates.toString(), is("[a=1]"));
+    }
+
+    @Test
+    public void dropsOldestUpdatesWhenFull() {
+        ItemUpdateBatcher batcher = createBatcher(3);
+        batcher.update("a", "1");
+        batcher.update("b", "1");
+        batcher.update("c", "1");
+        // a coalesced update makes 'a' the most recently updated item
+        batcher.update("a", "2");
+        batcher.update("d", "1");
+        batcher.update("e", "1");
+
+        assertThat(batcher.getPendingCount(), is(3));
+        assertThat(batcher.getDroppedCount(), is(2L));
+        assertThat(batcher.getCoalescedCount(), is(1L));
+
+        batcher.connected();
+        endWindow();
+
+        assertThat(sentUpdates.toString(), is("[a=2, d=1, e=1]"));
+        assertThat(batcher.getSentCount(), is(3L));
+    }
+
+    @Test
+    public void keepsUpdatesUntilSent() {
+        ItemUpdateBatcher batcher = createBatcher(ItemUpdateBatcher.MAX_PENDING_UPDATES);
+        batcher.connected();
+        batcher.update("a", "1");
+        batcher.update("b", "1");
+        batcher.update("c", "1");
+
+        sendLimit = 1;
+        endWindow();
+
+        assertThat(sentUpdates.toString(), is("[a=1]"));
+        assertThat(batcher.getSentCount(), is(1L));
+        assertThat(batcher.getPendingCount(), is(2));
+
+        batcher.disconnected();
+        batcher.update("b", "2");
+        assertThat(scheduler.getQueue().size(), is(0));
+
+        sendLimit = Integer.MAX_VALUE;
+        batcher.connected();
+        endWindow();
+
+        assertThat(sentUpdates.toString(), is("[a=1, c=1, b=2]"));
+        assertThat(batcher.getSentCount(), is(3L));
+        assertThat(batcher.getPendingCount(), is(0));
+        assertThat(batcher.getDroppedCount(), is(0L));
+    }
+
+    @Test
+    public void shutdownDiscardsPendingUpdates() {
+        ItemUpdateBatcher batcher = createBatcher(ItemUpdateBatcher.MAX_PENDING_UPDATES);
+        batcher.connected();
+        batcher.update("a", "1");
+        batcher.shutdown();
+
+        assertThat(scheduler.getQueue().size(), is(0));
+        assertThat(batcher.getPendingCount(), is(0));
+
+        batcher.flush();
+        assertThat(sentUpdates.isEmpty(), is(true));
+    }
+}
@@ -14,17 +14,16 @@ package org.openhab.io.openhabcloud.internal;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLEncoder;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.client.HttpClient;
@@ -83,6 +82,11 @@ public class CloudClient {
      */
     private static final int HTTP_CLIENT_TIMEOUT = 30000;
 
+    /*
+     * This constant defines the name of the thread pool used by the openHAB Cloud connector
+     */
+    private static final String THREADPOOL_OPENHABCLOUD = "openhabcloud";
+
     /*
      * This variable holds base URL for the openHAB Cloud connections
      */
@@ -109,9 +113,10 @@ public class CloudClient {
     private HttpClient jettyClient;
 
     /*
-     * This hashmap holds HTTP requests to local openHAB which are currently running
+     * This map holds HTTP requests to local openHAB which are currently running. Requests are added from the
+     * Socket.IO event thread and removed from Jetty threads when they complete.
      */
-    private HashMap<Integer, Request> runningRequests;
+    private final ConcurrentMap<Integer, Request> runningRequests = new ConcurrentHashMap<>();
 
     /*
      * This variable indicates if connection to the openHAB Cloud is currently in an established state
@@ -142,6 +147,11 @@ public class CloudClient {
     private boolean remoteAccessEnabled;
     private Set<String> exposedItems;
 
+    /*
+     * This variable holds the batcher for item updates, or null if each update is sent immediately
+     */
+    private ItemUpdateBatcher itemUpdateBatcher;
+
     /**
      * Constructor of CloudClient
      *
@@ -149,20 +159,31 @@ public class CloudClient {
      * @param secret openHAB's Secret to connect to the openHAB Cloud
      * @param remoteAccessEnabled Allow the openHAB Cloud to be used as a remote proxy
      * @param exposedItems Items that are made available to apps connected to the openHAB Cloud
+     * @param itemUpdateWindow Time in milliseconds to collect item updates before sending them, 0 to send each
+     *            update immediately
      *
      */
     public CloudClient(String uuid, String secret, String baseURL, String localBaseUrl, boolean remoteAccessEnabled,
-            Set<String> exposedItems) {
+            Set<String> exposedItems, int itemUpdateWindow) {
         this.uuid = uuid;
         this.secret = secret;
         this.baseURL = baseURL;
         this.localBaseUrl = localBaseUrl;
         this.remoteAccessEnabled = remoteAccessEnabled;
         this.exposedItems = exposedItems;
-        runningRequests = new HashMap<Integer, Request>();
         jettyClient = new HttpClient();
         jettyClient.setMaxConnectionsPerDestination(HTTP_CLIENT_MAX_CONNECTIONS_PER_DEST);
         jettyClient.setConnectTimeout(HTTP_CLIENT_TIMEOUT);
+        if (itemUpdateWindow > 0) {
+            itemUpdateBatcher = new ItemUpdateBatcher(itemUpdateWindow,
+                    ThreadPoolManager.getScheduledPool(THREADPOOL_OPENHABCLOUD), itemUpdateMessage -> {
+                        if (!isConnected()) {
+                            return false;
+                        }
+                        socket.emit("itemupdate", itemUpdateMessage);
+                        return true;
+                    });
+        }
     }
 
     /**
@@ -245,6 +266,9 @@ public class CloudClient {
     public void onConnect() {
         logger.info("Connected to the openHAB Cloud service (UUID = {}, base URL = {})", this.uuid, this.localBaseUrl);
         isConnected = true;
+        if (itemUpdateBatcher != null) {
+            itemUpdateBatcher.connected();
+        }
         // On connect start jetty client to process local requests to openHAB
         if (jettyClient != null) {
             try {
@@ -263,6 +287,9 @@ public class CloudClient {
         logger.info("Disconnected from the openHAB Cloud service (UUID = {}, base URL = {})", this.uuid,
                 this.localBaseUrl);
         isConnected = false;
+        if (itemUpdateBatcher != null) {
+            itemUpdateBatcher.disconnected();
+        }
         // On disconnect stop jetty client to shutdown all ongoing requests if there were any
         if (jettyClient != null) {
             try {
@@ -272,9 +299,7 @@ public class CloudClient {
             }
         }
         // And clean up the list of running requests
-        if (runningRequests != null) {
-            runningRequests.clear();
-        }
+        runningRequests.clear();
     }
 
     /**
@@ -322,28 +347,19 @@ public class CloudClient {
             logger.debug("{}", requestHeadersJson.toString());
             // Get JSONObject for request query parameters
             JSONObject requestQueryJson = data.getJSONObject("query");
-            // Create URI builder with base request URI of openHAB and path from request
-            String newPath = URIUtil.addPaths(localBaseUrl, requestPath);
+            // Create the request with base request URI of openHAB and path from request
+            Request request = jettyClient.newRequest(URIUtil.addPaths(localBaseUrl, requestPath));
             @SuppressWarnings("unchecked")
             Iterator<String> queryIterator = requestQueryJson.keys();
-            // Add query parameters to URI builder, if any
-            newPath += "?";
+            // Add query parameters, Jetty takes care of encoding them
             while (queryIterator.hasNext()) {
                 String queryName = queryIterator.next();
-                newPath += queryName;
-                newPath += "=";
-                newPath += URLEncoder.encode(requestQueryJson.getString(queryName), "UTF-8");
-                if (queryIterator.hasNext()) {
-                    newPath += "&";
-                }
+                request.param(queryName, requestQueryJson.getString(queryName));
             }
-            // Finally get the future request URI
-            URI requestUri = new URI(newPath);
             // All preparations which are common for different methods are done
             // Now perform the request to openHAB
             // If method is GET
             logger.debug("Request method is {}", requestMethod);
-            Request request = jettyClient.newRequest(requestUri);
             setRequestHeaders(request, requestHeadersJson);
             String proto = protocol;
             if (data.has("protocol")) {
@@ -365,16 +381,14 @@ public class CloudClient {
                 return;
             }
             ResponseListener listener = new ResponseListener(requestId);
-            request.onResponseHeaders(listener).onResponseContent(listener).onRequestFailure(listener).send(listener);
-            // If successfully submitted request to http client, add it to the list of currently
-            // running requests to be able to cancel it if needed
+            // Add the request to the list of currently running requests before sending it, so that it can be
+            // cancelled and is removed again even if it completes immediately
             runningRequests.put(requestId, request);
+            request.onResponseHeaders(listener).onResponseContent(listener).onRequestFailure(listener).send(listener);
         } catch (JSONException e) {
             logger.error("{}", e.getMessage());
-        } catch (IOException e) {
-            logger.error("{}", e.getMessage());
-        } catch (URISyntaxException e) {
-            logger.error("{}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid request path: {}", e.getMessage());
         }
     }
 
@@ -402,10 +416,9 @@ public class CloudClient {
             int requestId = data.getInt("id");
             logger.debug("Received cancel for request {}", requestId);
             // Find and abort running request
-            if (runningRequests.containsKey(requestId)) {
-                Request request = runningRequests.get(requestId);
+            Request request = runningRequests.remove(requestId);
+            if (request != null) {
                 request.abort(new InterruptedException());
-                runningRequests.remove(requestId);
             }
         } catch (JSONException e) {
             logger.error("{}", e.getMessage());
@@ -510,7 +523,10 @@ public class CloudClient {
      *
      */
     public void sendItemUpdate(String itemName, String itemState) {
-        if (isConnected()) {
+        if (itemUpdateBatcher != null) {
+            logger.debug("Queueing update '{}' for item '{}'", itemState, itemName);
+            itemUpdateBatcher.update(itemName, itemState);
+        } else if (isConnected()) {
             logger.debug("Sending update '{}' for item '{}'", itemState, itemName);
             JSONObject itemUpdateMessage = new JSONObject();
             try {
@@ -537,6 +553,9 @@ public class CloudClient {
      */
     public void shutdown() {
         logger.info("Shutting down openHAB Cloud service connection");
+        if (itemUpdateBatcher != null) {
+            itemUpdateBatcher.shutdown();
+        }
         try {
             jettyClient.stop();
         } catch (Exception e) {
@@ -562,8 +581,6 @@ public class CloudClient {
      */
     private class ResponseListener
             implements Response.CompleteListener, HeadersListener, ContentListener, FailureListener {
-
-        private static final String THREADPOOL_OPENHABCLOUD = "openhabcloud";
         private int mRequestId;
         private boolean mHeadersSent = false;
 
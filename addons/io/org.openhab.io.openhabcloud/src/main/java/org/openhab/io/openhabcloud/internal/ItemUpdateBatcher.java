@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class collects item updates for the openHAB Cloud and sends them at the end of a batch window.
+ *
+ * Within a batch window only the latest state of each item is kept. Each update is still sent as a separate
+ * 'itemupdate' message, which every openHAB Cloud server understands. While the connection is down the updates are
+ * kept as well, up to {@link #MAX_PENDING_UPDATES} items, after which the oldest updates are dropped.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemUpdateBatcher {
+
+    /*
+     * This constant defines the maximum number of items with updates waiting to be sent
+     */
+    static final int MAX_PENDING_UPDATES = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(ItemUpdateBatcher.class);
+
+    private final long window;
+    private final int capacity;
+    private final ScheduledExecutorService scheduler;
+    private final Predicate<JSONObject> sender;
+
+    /*
+     * Item states waiting to be sent, the least recently updated item first
+     */
+    private final LinkedHashMap<String, String> pendingUpdates = new LinkedHashMap<>();
+    private ScheduledFuture<?> flushJob;
+    private boolean connected;
+
+    private long sentCount;
+    private long coalescedCount;
+    private long droppedCount;
+
+    /**
+     * Constructor of ItemUpdateBatcher
+     *
+     * @param window time in milliseconds to collect updates before sending them
+     * @param scheduler scheduler to send the batches from
+     * @param sender sends an 'itemupdate' message to the openHAB Cloud, returns false if it could not be sent
+     */
+    public ItemUpdateBatcher(long window, ScheduledExecutorService scheduler, Predicate<JSONObject> sender) {
+        this(window, MAX_PENDING_UPDATES, scheduler, sender);
+    }
+
+    ItemUpdateBatcher(long window, int capacity, ScheduledExecutorService scheduler, Predicate<JSONObject> sender) {
+        this.window = window;
+        this.capacity = capacity;
+        this.scheduler = scheduler;
+        this.sender = sender;
+    }
+
+    /**
+     * Queue an item update
+     *
+     * @param itemName the name of the item
+     * @param itemState updated item state
+     */
+    public synchronized void update(String itemName, String itemState) {
+        if (pendingUpdates.remove(itemName) != null) {
+            coalescedCount++;
+        }
+        pendingUpdates.put(itemName, itemState);
+        if (pendingUpdates.size() > capacity) {
+            Iterator<String> oldest = pendingUpdates.keySet().iterator();
+            logger.debug("Too many pending item updates, dropping update for item '{}'", oldest.next());
+            oldest.remove();
+            droppedCount++;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Start sending the collected updates, called when the connection to the openHAB Cloud is established
+     */
+    public synchronized void connected() {
+        connected = true;
+        scheduleFlush();
+    }
+
+    /**
+     * Stop sending updates and keep them until connected again
+     */
+    public synchronized void disconnected() {
+        connected = false;
+        cancelFlush();
+        logger.debug("Item updates sent: {}, coalesced: {}, dropped: {}, pending: {}", sentCount, coalescedCount,
+                droppedCount, pendingUpdates.size());
+    }
+
+    /**
+     * Discard all pending updates
+     */
+    public synchronized void shutdown() {
+        disconnected();
+        pendingUpdates.clear();
+    }
+
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingUpdates.size();
+    }
+
+    private void scheduleFlush() {
+        if (connected && flushJob == null && !pendingUpdates.isEmpty()) {
+            flushJob = scheduler.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelFlush() {
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            flushJob = null;
+        }
+    }
+
+    /**
+     * Sends the pending updates. An update is removed only after it has been sent, so the updates which could not be
+     * sent because the connection was lost are kept until the next connect.
+     */
+    synchronized void flush() {
+        flushJob = null;
+        if (!connected || pendingUpdates.isEmpty()) {
+            return;
+        }
+        logger.debug("Sending {} item updates", pendingUpdates.size());
+        Iterator<Map.Entry<String, String>> updates = pendingUpdates.entrySet().iterator();
+        while (updates.hasNext()) {
+            Map.Entry<String, String> entry = updates.next();
+            JSONObject itemUpdateMessage = new JSONObject();
+            try {
+                itemUpdateMessage.put("itemName", entry.getKey());
+                itemUpdateMessage.put("itemStatus", entry.getValue());
+            } catch (JSONException e) {
+                logger.error("{}", e.getMessage());
+                updates.remove();
+                continue;
+            }
+            if (!sender.test(itemUpdateMessage)) {
+                logger.debug("Connection lost, keeping {} item updates", pendingUpdates.size());
+                return;
+            }
+            updates.remove();
+            sentCount++;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointDispatcher;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointDispatcher.Priority;
+
+/**
+ *
+ * @author agent - Initial contribution
+ *
+ */
+public class ModbusEndpointDispatcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final ModbusEndpointDispatcher dispatcher = new ModbusEndpointDispatcher("endpoint", executor, 1);
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Runnable record(String name) {
+        return () -> executed.add(name);
+    }
+
+    /**
+     * Queue a blocking operation, so that the following operations stay in the queue until the latch is released
+     */
+    private CountDownLatch block() {
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.submit(Priority.REGULAR_POLL, null, () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return release;
+    }
+
+    @Test
+    public void testWritesAreExecutedBeforePolls() throws Exception {
+        CountDownLatch release = block();
+        dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular"));
+        dispatcher.submit(Priority.ONE_OFF_POLL, null, record("oneoff"));
+        Future<?> last = dispatcher.submit(Priority.WRITE, null, record("write"));
+        dispatcher.submit(Priority.REGULAR_POLL, "poll2", record("regular2"));
+
+        assertThat(dispatcher.getStatistics().getQueueDepth(), is(equalTo(4)));
+        release.countDown();
+        last.get(5, TimeUnit.SECONDS);
+        // wait for the remaining polls
+        dispatcher.submit(Priority.REGULAR_POLL, null, () -> {
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(executed, is(equalTo(Arrays.asList("write", "oneoff", "regular", "regular2"))));
+        ModbusEndpointDispatcher.Statistics statistics = dispatcher.getStatistics();
+        assertThat(statistics.getQueueDepth(), is(equalTo(0)));
+        assertThat(statistics.getExecuted(Priority.WRITE), is(equalTo(1L)));
+        assertThat(statistics.getExecuted(Priority.REGULAR_POLL), is(equalTo(4L)));
+    }
+
+    @Test
+    public void testStaleRegularPollsAreDropped() throws Exception {
+        CountDownLatch release = block();
+        Future<?> first = dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular"));
+        Future<?> second = dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular"));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(dispatcher.getStatistics().getDroppedRegularPolls(), is(equalTo(1L)));
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(executed, is(equalTo(Arrays.asList("regular"))));
+
+        // no longer queued, so queued again
+        dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular")).get(5, TimeUnit.SECONDS);
+        assertThat(executed.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testCancelledOperationsAreNotExecuted() throws Exception {
+        CountDownLatch release = block();
+        dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular"));
+        Future<?> oneOff = dispatcher.submit(Priority.ONE_OFF_POLL, null, record("oneoff"));
+        oneOff.cancel(false);
+        dispatcher.cancel("poll", true);
+
+        release.countDown();
+        dispatcher.submit(Priority.WRITE, null, record("write")).get(5, TimeUnit.SECONDS);
+        assertThat(executed, is(equalTo(Arrays.asList("write"))));
+    }
+
+    @Test
+    public void testCancelledOperationsAreRemovedFromQueue() throws Exception {
+        CountDownLatch release = block();
+        Future<?> regular = dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular"));
+        Future<?> oneOff = dispatcher.submit(Priority.ONE_OFF_POLL, null, record("oneoff"));
+        assertThat(dispatcher.getStatistics().getQueueDepth(), is(equalTo(2)));
+
+        assertThat(oneOff.cancel(false), is(true));
+        assertThat(regular.cancel(false), is(true));
+        ModbusEndpointDispatcher.Statistics statistics = dispatcher.getStatistics();
+        assertThat(statistics.getQueueDepth(Priority.ONE_OFF_POLL), is(equalTo(0)));
+        assertThat(statistics.getQueueDepth(Priority.REGULAR_POLL), is(equalTo(0)));
+
+        // the key is no longer queued, so a new poll is not dropped
+        Future<?> next = dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular2"));
+        assertThat(next, is(not(sameInstance(regular))));
+        assertThat(dispatcher.getStatistics().getDroppedRegularPolls(), is(equalTo(0L)));
+
+        release.countDown();
+        next.get(5, TimeUnit.SECONDS);
+        assertThat(executed, is(equalTo(Arrays.asList("regular2"))));
+    }
+
+    @Test
+    public void testClearCancelsQueuedOperations() throws Exception {
+        CountDownLatch release = block();
+        Future<?> regular = dispatcher.submit(Priority.REGULAR_POLL, "poll", record("regular"));
+        Future<?> write = dispatcher.submit(Priority.WRITE, null, record("write"));
+        dispatcher.clear();
+
+        assertThat(regular.isCancelled(), is(true));
+        assertThat(write.isCancelled(), is(true));
+        assertThat(dispatcher.getStatistics().getQueueDepth(), is(equalTo(0)));
+
+        release.countDown();
+        dispatcher.submit(Priority.WRITE, null, record("write2")).get(5, TimeUnit.SECONDS);
+        assertThat(executed, is(equalTo(Arrays.asList("write2"))));
+    }
+}
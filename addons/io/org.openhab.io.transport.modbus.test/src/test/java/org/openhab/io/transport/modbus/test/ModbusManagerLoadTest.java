@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusOperationStatistics;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointDispatcher;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointDispatcher.Priority;
+import org.openhab.io.transport.modbus.test.ModbusSlaveSimulator.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load tests driving {@link org.openhab.io.transport.modbus.internal.ModbusManagerImpl} with many regular polls
+ * against several simulated slaves
+ *
+ * These are manual load tests, each one runs for several seconds and depends on the timing of the host. Run them
+ * with -Dmodbus.load=true. Larger runs can be configured with system properties, e.g.
+ * <code>-Dmodbus.load.endpoints=20 -Dmodbus.load.polls=200 -Dmodbus.load.duration=60000</code>.
+ * Measured cycle times, queue lag and CPU time are logged at info level.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+public class ModbusManagerLoadTest {
+
+    private static final int ENDPOINTS = Integer.getInteger("modbus.load.endpoints", 4);
+    private static final int POLLS_PER_ENDPOINT = Integer.getInteger("modbus.load.polls", 25);
+    private static final int POLL_PERIOD_MILLIS = Integer.getInteger("modbus.load.period", 500);
+    private static final int DURATION_MILLIS = Integer.getInteger("modbus.load.duration", 3000);
+    private static final int LATENCY_MILLIS = Integer.getInteger("modbus.load.latency", 1);
+    private static final int JITTER_MILLIS = Integer.getInteger("modbus.load.jitter", 1);
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("modbus.load.maxInFlight", 1);
+    private static final int REGISTER_COUNT = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusManagerLoadTest.class);
+
+    private final List<ModbusSlaveSimulator> simulators = new ArrayList<>();
+    private final IntegrationTestSupport.NonOSGIModbusManager modbusManager;
+
+    /**
+     * Per poll counters, updated from the callbacks
+     */
+    private static class PollMeasurements {
+        private final AtomicLongArray lastCallbackNanos;
+        private final AtomicLongArray callbacks;
+        private final AtomicLong maxCycleNanos = new AtomicLong();
+        private final AtomicLong cycleNanosSum = new AtomicLong();
+        private final AtomicLong cycles = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong mismatches = new AtomicLong();
+
+        PollMeasurements(int polls) {
+            lastCallbackNanos = new AtomicLongArray(polls);
+            callbacks = new AtomicLongArray(polls);
+        }
+
+        void record(int index) {
+            long now = System.nanoTime();
+            long previous = lastCallbackNanos.getAndSet(index, now);
+            callbacks.incrementAndGet(index);
+            if (previous != 0) {
+                long cycle = now - previous;
+                cycleNanosSum.addAndGet(cycle);
+                cycles.incrementAndGet();
+                maxCycleNanos.accumulateAndGet(cycle, Math::max);
+            }
+        }
+
+        long getMinCallbacks() {
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < callbacks.length(); i++) {
+                min = Math.min(min, callbacks.get(i));
+            }
+            return min;
+        }
+    }
+
+    public ModbusManagerLoadTest() {
+        modbusManager = new IntegrationTestSupport.NonOSGIModbusManager();
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue("Manual load test", Boolean.getBoolean("modbus.load"));
+    }
+
+    @After
+    public void tearDown() {
+        modbusManager.close();
+        simulators.forEach(ModbusSlaveSimulator::close);
+    }
+
+    private List<ModbusSlaveEndpoint> startSimulators(Transport transport, double errorRate) throws IOException {
+        List<ModbusSlaveEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < ENDPOINTS; i++) {
+            ModbusSlaveSimulator simulator = new ModbusSlaveSimulator(transport, REGISTER_COUNT)
+                    .withLatency(LATENCY_MILLIS, JITTER_MILLIS).withErrors(errorRate, 0).start();
+            simulators.add(simulator);
+            ModbusSlaveEndpoint endpoint = simulator.getEndpoint();
+            EndpointPoolConfiguration configuration = new EndpointPoolConfiguration();
+            configuration.setInterTransactionDelayMillis(0);
+            configuration.setInterConnectDelayMillis(0);
+            configuration.setMaxInFlightTransactions(MAX_IN_FLIGHT);
+            modbusManager.setEndpointPoolConfiguration(endpoint, configuration);
+            endpoints.add(endpoint);
+        }
+        return endpoints;
+    }
+
+    /**
+     * Register the polls, let them run for the configured duration and unregister them
+     */
+    private PollMeasurements runPolls(List<ModbusSlaveEndpoint> endpoints, int maxTries) throws InterruptedException {
+        int polls = endpoints.size() * POLLS_PER_ENDPOINT;
+        PollMeasurements measurements = new PollMeasurements(polls);
+        List<PollTask> tasks = new ArrayList<>(polls);
+        for (int i = 0; i < polls; i++) {
+            int index = i;
+            int reference = (i * 2) % (REGISTER_COUNT - 2);
+            tasks.add(new BasicPollTaskImpl(endpoints.get(i % endpoints.size()),
+                    new BasicModbusReadRequestBlueprint(IntegrationTestSupport.SLAVE_UNIT_ID,
+                            ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, reference, 2, maxTries),
+                    new ModbusReadCallback() {
+
+                        @Override
+                        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+                            if (registers.getRegister(0).getValue() != reference
+                                    || registers.getRegister(1).getValue() != reference + 1) {
+                                measurements.mismatches.incrementAndGet();
+                            }
+                            measurements.record(index);
+                        }
+
+                        @Override
+                        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+                            measurements.errors.incrementAndGet();
+                            measurements.record(index);
+                        }
+
+                        @Override
+                        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+                            measurements.mismatches.incrementAndGet();
+                        }
+                    }));
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuBefore = getCpuTimeNanos(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < polls; i++) {
+            // spread the initial polls over the period
+            modbusManager.registerRegularPoll(tasks.get(i), POLL_PERIOD_MILLIS,
+                    (long) i * POLL_PERIOD_MILLIS / polls);
+        }
+        Thread.sleep(DURATION_MILLIS);
+        Map<ModbusSlaveEndpoint, ModbusEndpointDispatcher.Statistics> queueStatistics = modbusManager
+                .getQueueStatistics();
+        Map<ModbusSlaveEndpoint, ModbusOperationStatistics> endpointStatistics = modbusManager
+                .getEndpointStatistics();
+        tasks.forEach(modbusManager::unregisterRegularPoll);
+        long elapsedNanos = System.nanoTime() - start;
+        long cpuNanos = getCpuTimeNanos(threads) - cpuBefore;
+
+        long cycles = measurements.cycles.get();
+        logger.info("{} polls over {} endpoints, period {} ms: {} callbacks in {} ms, cycle time avg {} ms, max {} ms",
+                polls, endpoints.size(), POLL_PERIOD_MILLIS, cycles + polls,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                cycles == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(measurements.cycleNanosSum.get() / cycles),
+                TimeUnit.NANOSECONDS.toMillis(measurements.maxCycleNanos.get()));
+        logger.info("CPU time {} ms ({} % of one core), errors {}", TimeUnit.NANOSECONDS.toMillis(cpuNanos),
+                elapsedNanos == 0 ? 0 : 100 * cpuNanos / elapsedNanos, measurements.errors.get());
+        queueStatistics.forEach((endpoint, statistics) -> logger.info(
+                "{}: queue lag avg {} ms, max {} ms, dropped regular polls {}; {}", endpoint,
+                String.format("%.1f", statistics.getAverageWaitMillis(Priority.REGULAR_POLL)),
+                statistics.getMaxWaitMillis(Priority.REGULAR_POLL), statistics.getDroppedRegularPolls(),
+                endpointStatistics.get(endpoint)));
+        return measurements;
+    }
+
+    /**
+     * Sum of the CPU time of all live threads. Threads that have terminated during the run are not accounted.
+     */
+    private static long getCpuTimeNanos(ThreadMXBean threads) {
+        if (!threads.isThreadCpuTimeSupported()) {
+            return 0;
+        }
+        long total = 0;
+        for (long id : threads.getAllThreadIds()) {
+            long time = threads.getThreadCpuTime(id);
+            if (time > 0) {
+                total += time;
+            }
+        }
+        return total;
+    }
+
+    @Test
+    public void testManyRegularPollsOverTCP() throws Exception {
+        PollMeasurements measurements = runPolls(startSimulators(Transport.TCP, 0), 1);
+        assertThat(measurements.errors.get(), is(equalTo(0L)));
+        assertThat(measurements.mismatches.get(), is(equalTo(0L)));
+        assertTrue("every poll should have been executed", measurements.getMinCallbacks() > 0);
+    }
+
+    @Test
+    public void testManyRegularPollsOverUDP() throws Exception {
+        PollMeasurements measurements = runPolls(startSimulators(Transport.UDP, 0), 1);
+        assertThat(measurements.errors.get(), is(equalTo(0L)));
+        assertThat(measurements.mismatches.get(), is(equalTo(0L)));
+        assertTrue("every poll should have been executed", measurements.getMinCallbacks() > 0);
+    }
+
+    /**
+     * With slave exceptions injected to 10% of the responses, retries should hide nearly all of them from the
+     * callbacks
+     */
+    @Test
+    public void testRetriesWithInjectedErrors() throws Exception {
+        PollMeasurements measurements = runPolls(startSimulators(Transport.TCP, 0.1), 3);
+        long injected = simulators.stream().mapToLong(ModbusSlaveSimulator::getInjectedErrors).sum();
+        assertTrue("errors should have been injected", injected > 0);
+        assertTrue("retries should hide most errors", measurements.errors.get() < injected);
+        assertThat(measurements.mismatches.get(), is(equalTo(0L)));
+        assertTrue("every poll should have been executed", measurements.getMinCallbacks() > 0);
+    }
+}
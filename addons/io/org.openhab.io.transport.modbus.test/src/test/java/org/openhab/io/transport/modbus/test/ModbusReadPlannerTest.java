@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.CoalescedPollTask;
+import org.openhab.io.transport.modbus.internal.ModbusReadPlanner;
+
+/**
+ *
+ * @author agent - Initial contribution
+ *
+ */
+public class ModbusReadPlannerTest {
+
+    private final ModbusSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("127.0.0.1", 502);
+
+    private PollTask task(ModbusReadFunctionCode functionCode, int start, int length, ModbusReadCallback callback) {
+        return new BasicPollTaskImpl(endpoint, new BasicModbusReadRequestBlueprint(1, functionCode, start, length, 3),
+                callback);
+    }
+
+    @Test
+    public void testAdjacentReadsAreMerged() {
+        List<PollTask> planned = new ModbusReadPlanner(0).plan(Arrays.asList(
+                task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 10, 5, mock(ModbusReadCallback.class)),
+                task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 10, mock(ModbusReadCallback.class)),
+                task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 16, 2, mock(ModbusReadCallback.class))));
+
+        assertThat(planned.size(), is(equalTo(2)));
+        assertThat(planned.get(0), is(instanceOf(CoalescedPollTask.class)));
+        assertThat(planned.get(0).getRequest().getReference(), is(equalTo(0)));
+        assertThat(planned.get(0).getRequest().getDataLength(), is(equalTo(15)));
+        assertThat(planned.get(1).getRequest().getReference(), is(equalTo(16)));
+    }
+
+    @Test
+    public void testGapToleranceAndProtocolLimit() {
+        ModbusReadPlanner planner = new ModbusReadPlanner(2);
+        List<PollTask> planned = planner.plan(Arrays.asList(
+                task(ModbusReadFunctionCode.READ_INPUT_REGISTERS, 0, 100, mock(ModbusReadCallback.class)),
+                task(ModbusReadFunctionCode.READ_INPUT_REGISTERS, 102, 20, mock(ModbusReadCallback.class)),
+                task(ModbusReadFunctionCode.READ_INPUT_REGISTERS, 122, 10, mock(ModbusReadCallback.class))));
+
+        assertThat(planned.size(), is(equalTo(2)));
+        assertThat(planned.get(0).getRequest().getDataLength(), is(equalTo(122)));
+        assertThat(planned.get(1).getRequest().getReference(), is(equalTo(122)));
+
+        planned = planner.plan(Arrays.asList(
+                task(ModbusReadFunctionCode.READ_COILS, 0, 1990, mock(ModbusReadCallback.class)),
+                task(ModbusReadFunctionCode.READ_COILS, 1990, 10, mock(ModbusReadCallback.class))));
+        assertThat(planned.size(), is(equalTo(1)));
+        assertThat(planned.get(0).getRequest().getDataLength(), is(equalTo(ModbusReadPlanner.MAX_BITS_PER_READ)));
+    }
+
+    @Test
+    public void testDifferentFunctionCodesAreNotMerged() {
+        List<PollTask> planned = new ModbusReadPlanner(10).plan(Arrays.asList(
+                task(ModbusReadFunctionCode.READ_COILS, 0, 8, mock(ModbusReadCallback.class)),
+                task(ModbusReadFunctionCode.READ_INPUT_DISCRETES, 8, 8, mock(ModbusReadCallback.class))));
+
+        assertThat(planned.size(), is(equalTo(2)));
+        assertThat(planned.get(0), is(not(instanceOf(CoalescedPollTask.class))));
+        assertThat(planned.get(1), is(not(instanceOf(CoalescedPollTask.class))));
+    }
+
+    @Test
+    public void testRegistersAreSplitToOriginalCallbacks() {
+        ModbusReadCallback callback1 = mock(ModbusReadCallback.class);
+        ModbusReadCallback callback2 = mock(ModbusReadCallback.class);
+        PollTask task1 = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 5, 2, callback1);
+        PollTask task2 = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 8, 1, callback2);
+        PollTask merged = new ModbusReadPlanner(1).plan(Arrays.asList(task1, task2)).get(0);
+
+        merged.getCallback().onRegisters(merged.getRequest(), new BasicModbusRegisterArray(1, 2, 3, 4));
+
+        ArgumentCaptor<ModbusRegisterArray> registers1 = ArgumentCaptor.forClass(ModbusRegisterArray.class);
+        verify(callback1).onRegisters(eq(task1.getRequest()), registers1.capture());
+        assertThat(registers1.getValue().toHexString(), is(equalTo("00 01 00 02")));
+
+        ArgumentCaptor<ModbusRegisterArray> registers2 = ArgumentCaptor.forClass(ModbusRegisterArray.class);
+        verify(callback2).onRegisters(eq(task2.getRequest()), registers2.capture());
+        assertThat(registers2.getValue().toHexString(), is(equalTo("00 04")));
+    }
+
+    @Test
+    public void testBitsAndErrorsAreSplitToOriginalCallbacks() {
+        ModbusReadCallback callback1 = mock(ModbusReadCallback.class);
+        ModbusReadCallback callback2 = mock(ModbusReadCallback.class);
+        PollTask task1 = task(ModbusReadFunctionCode.READ_COILS, 0, 2, callback1);
+        PollTask task2 = task(ModbusReadFunctionCode.READ_COILS, 2, 3, callback2);
+        PollTask merged = new ModbusReadPlanner(0).plan(Arrays.asList(task1, task2)).get(0);
+
+        merged.getCallback().onBits(merged.getRequest(), new BasicBitArray(true, false, false, true, true));
+
+        verify(callback1).onBits(task1.getRequest(), new BasicBitArray(true, false));
+        verify(callback2).onBits(task2.getRequest(), new BasicBitArray(false, true, true));
+
+        Exception error = new Exception("test");
+        merged.getCallback().onError(merged.getRequest(), error);
+        verify(callback1).onError(task1.getRequest(), error);
+        verify(callback2).onError(task2.getRequest(), error);
+    }
+
+    @Test
+    public void testShortResponseIsReportedAsError() {
+        ModbusReadCallback callback1 = mock(ModbusReadCallback.class);
+        ModbusReadCallback callback2 = mock(ModbusReadCallback.class);
+        PollTask task1 = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 1, callback1);
+        PollTask task2 = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 1, 2, callback2);
+        PollTask merged = new ModbusReadPlanner(0).plan(Arrays.asList(task1, task2)).get(0);
+
+        merged.getCallback().onRegisters(merged.getRequest(), new BasicModbusRegisterArray(1, 2));
+
+        verify(callback1).onRegisters(any(ModbusReadRequestBlueprint.class), any(ModbusRegisterArray.class));
+        verify(callback2).onError(eq(task2.getRequest()), any(Exception.class));
+        verify(callback2, never()).onBits(any(ModbusReadRequestBlueprint.class), any(BitArray.class));
+    }
+}
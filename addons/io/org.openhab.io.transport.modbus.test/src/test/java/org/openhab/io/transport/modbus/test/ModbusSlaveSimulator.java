@@ -0,0 +1,386 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process Modbus TCP or UDP slave for load tests
+ *
+ * Unlike the jamod listeners used by {@link IntegrationTestSupport}, each simulator has its own register map, so
+ * many independent slaves can run at the same time. Responses can be delayed with a fixed latency and random jitter,
+ * and errors can be injected: slave exception responses (slave device failure) and dropped requests, which the
+ * master sees as timeouts.
+ *
+ * Requests of a connection are processed one at a time, like most real slaves do.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+public class ModbusSlaveSimulator implements AutoCloseable {
+
+    public enum Transport {
+        TCP,
+        UDP
+    }
+
+    private static final int MBAP_HEADER_LENGTH = 7;
+    private static final int ILLEGAL_FUNCTION = 1;
+    private static final int ILLEGAL_DATA_ADDRESS = 2;
+    private static final int SLAVE_DEVICE_FAILURE = 4;
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusSlaveSimulator.class);
+
+    private final Transport transport;
+    private final int[] holdingRegisters;
+    private final int[] inputRegisters;
+    private final boolean[] coils;
+    private final boolean[] discreteInputs;
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double errorRate;
+    private volatile double dropRate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong droppedRequests = new AtomicLong();
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private DatagramSocket datagramSocket;
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create simulator with the given number of each register and bit type. Holding and input registers are
+     * initialized to their address, and to ten times their address, respectively. Every other coil and every third
+     * discrete input is set.
+     *
+     * @param transport transport to listen
+     * @param size number of registers, coils and discrete inputs
+     */
+    public ModbusSlaveSimulator(Transport transport, int size) {
+        this.transport = transport;
+        holdingRegisters = new int[size];
+        inputRegisters = new int[size];
+        coils = new boolean[size];
+        discreteInputs = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            holdingRegisters[i] = i & 0xffff;
+            inputRegisters[i] = (i * 10) & 0xffff;
+            coils[i] = i % 2 == 0;
+            discreteInputs[i] = i % 3 == 0;
+        }
+    }
+
+    /**
+     * Delay each response
+     *
+     * @param latencyMillis fixed delay
+     * @param jitterMillis maximum random delay added to the fixed delay
+     * @return this simulator
+     */
+    public ModbusSlaveSimulator withLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        return this;
+    }
+
+    /**
+     * Inject errors
+     *
+     * @param errorRate probability of responding with slave device failure exception
+     * @param dropRate probability of not responding at all
+     * @return this simulator
+     */
+    public ModbusSlaveSimulator withErrors(double errorRate, double dropRate) {
+        this.errorRate = errorRate;
+        this.dropRate = dropRate;
+        return this;
+    }
+
+    public synchronized void setHoldingRegister(int address, int value) {
+        holdingRegisters[address] = value & 0xffff;
+    }
+
+    public synchronized int getHoldingRegister(int address) {
+        return holdingRegisters[address];
+    }
+
+    public synchronized boolean getCoil(int address) {
+        return coils[address];
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.get();
+    }
+
+    /**
+     * Start listening on a free local port
+     *
+     * @return this simulator
+     * @throws IOException when the port cannot be bound
+     */
+    public ModbusSlaveSimulator start() throws IOException {
+        running = true;
+        InetAddress address = InetAddress.getByName("127.0.0.1");
+        Thread thread;
+        if (transport == Transport.TCP) {
+            serverSocket = new ServerSocket(0, 50, address);
+            thread = new Thread(this::acceptConnections, "ModbusSlaveSimulator-" + serverSocket.getLocalPort());
+        } else {
+            datagramSocket = new DatagramSocket(0, address);
+            thread = new Thread(this::receiveDatagrams, "ModbusSlaveSimulator-" + datagramSocket.getLocalPort());
+        }
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    public int getPort() {
+        return transport == Transport.TCP ? serverSocket.getLocalPort() : datagramSocket.getLocalPort();
+    }
+
+    public ModbusSlaveEndpoint getEndpoint() {
+        return transport == Transport.TCP ? new ModbusTCPSlaveEndpoint("127.0.0.1", getPort())
+                : new ModbusUDPSlaveEndpoint("127.0.0.1", getPort());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+            for (Socket socket : connections) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Error closing simulator: {}", e.getMessage());
+        }
+        if (datagramSocket != null) {
+            datagramSocket.close();
+        }
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread thread = new Thread(() -> serveConnection(socket),
+                        "ModbusSlaveSimulatorConnection-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    logger.debug("Error accepting connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try (DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream()) {
+            while (running) {
+                byte[] header = new byte[MBAP_HEADER_LENGTH];
+                in.readFully(header);
+                int length = ((header[4] & 0xff) << 8) | (header[5] & 0xff);
+                byte[] request = Arrays.copyOf(header, MBAP_HEADER_LENGTH - 1 + length);
+                in.readFully(request, MBAP_HEADER_LENGTH, length - 1);
+                byte[] response = process(request);
+                if (response != null) {
+                    out.write(response);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // connection closed
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void receiveDatagrams() {
+        byte[] buffer = new byte[512];
+        while (running) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                datagramSocket.receive(packet);
+                byte[] response = process(Arrays.copyOf(packet.getData(), packet.getLength()));
+                if (response != null) {
+                    datagramSocket.send(
+                            new DatagramPacket(response, response.length, packet.getAddress(), packet.getPort()));
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.debug("Error receiving datagram: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Process a request
+     *
+     * @param request request including the MBAP header
+     * @return response including the MBAP header, or null to drop the request
+     */
+    private byte[] process(byte[] request) {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (random.nextDouble() < dropRate) {
+            droppedRequests.incrementAndGet();
+            return null;
+        }
+        ByteBuffer pdu = ByteBuffer.wrap(request, MBAP_HEADER_LENGTH, request.length - MBAP_HEADER_LENGTH);
+        int functionCode = pdu.get() & 0xff;
+        byte[] responsePdu;
+        if (random.nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            responsePdu = exception(functionCode, SLAVE_DEVICE_FAILURE);
+        } else {
+            synchronized (this) {
+                responsePdu = processPdu(functionCode, pdu);
+            }
+        }
+        ByteBuffer response = ByteBuffer.allocate(MBAP_HEADER_LENGTH + responsePdu.length);
+        // transaction id, protocol id
+        response.put(request, 0, 4);
+        response.putShort((short) (responsePdu.length + 1));
+        // unit id
+        response.put(request[6]);
+        response.put(responsePdu);
+        return response.array();
+    }
+
+    private byte[] processPdu(int functionCode, ByteBuffer pdu) {
+        int address = pdu.getShort() & 0xffff;
+        switch (functionCode) {
+            case 1:
+            case 2: {
+                boolean[] bits = functionCode == 1 ? coils : discreteInputs;
+                int count = pdu.getShort() & 0xffff;
+                if (address + count > bits.length) {
+                    return exception(functionCode, ILLEGAL_DATA_ADDRESS);
+                }
+                byte[] response = new byte[2 + (count + 7) / 8];
+                response[0] = (byte) functionCode;
+                response[1] = (byte) ((count + 7) / 8);
+                for (int i = 0; i < count; i++) {
+                    if (bits[address + i]) {
+                        response[2 + i / 8] |= 1 << (i % 8);
+                    }
+                }
+                return response;
+            }
+            case 3:
+            case 4: {
+                int[] registers = functionCode == 3 ? holdingRegisters : inputRegisters;
+                int count = pdu.getShort() & 0xffff;
+                if (address + count > registers.length) {
+                    return exception(functionCode, ILLEGAL_DATA_ADDRESS);
+                }
+                ByteBuffer response = ByteBuffer.allocate(2 + 2 * count);
+                response.put((byte) functionCode);
+                response.put((byte) (2 * count));
+                for (int i = 0; i < count; i++) {
+                    response.putShort((short) registers[address + i]);
+                }
+                return response.array();
+            }
+            case 5:
+            case 6: {
+                int value = pdu.getShort() & 0xffff;
+                if (address >= holdingRegisters.length) {
+                    return exception(functionCode, ILLEGAL_DATA_ADDRESS);
+                }
+                if (functionCode == 5) {
+                    coils[address] = value == 0xff00;
+                } else {
+                    holdingRegisters[address] = value;
+                }
+                // echo the request
+                return ByteBuffer.allocate(5).put((byte) functionCode).putShort((short) address)
+                        .putShort((short) value).array();
+            }
+            case 15:
+            case 16: {
+                int count = pdu.getShort() & 0xffff;
+                // skip byte count
+                pdu.get();
+                if (address + count > holdingRegisters.length) {
+                    return exception(functionCode, ILLEGAL_DATA_ADDRESS);
+                }
+                if (functionCode == 15) {
+                    byte[] bytes = new byte[(count + 7) / 8];
+                    pdu.get(bytes);
+                    for (int i = 0; i < count; i++) {
+                        coils[address + i] = (bytes[i / 8] & (1 << (i % 8))) != 0;
+                    }
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        holdingRegisters[address + i] = pdu.getShort() & 0xffff;
+                    }
+                }
+                return ByteBuffer.allocate(5).put((byte) functionCode).putShort((short) address)
+                        .putShort((short) count).array();
+            }
+            default:
+                return exception(functionCode, ILLEGAL_FUNCTION);
+        }
+    }
+
+    private static byte[] exception(int functionCode, int exceptionCode) {
+        return new byte[] { (byte) (functionCode | 0x80), (byte) exceptionCode };
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.LoggerFactory;
+
+import net.wimpi.modbus.procimg.SimpleRegister;
+
+/**
+ * Tests for endpoints with several transactions in flight
+ *
+ * @author agent - Initial contribution
+ *
+ */
+public class PipelinedTransactionsTest extends IntegrationTestSupport {
+
+    private static final int REGISTER_COUNT = 100;
+    private static final int POLL_COUNT = 500;
+
+    private void generateData() {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            spi.addRegister(new SimpleRegister(i));
+        }
+    }
+
+    /**
+     * Submit many concurrent polls, and verify that each callback receives the registers it requested
+     */
+    @Test
+    public void testConcurrentPollsReceiveOwnResponses() throws InterruptedException {
+        generateData();
+        ModbusSlaveEndpoint endpoint = getEndpoint();
+        EndpointPoolConfiguration configuration = new EndpointPoolConfiguration();
+        configuration.setInterTransactionDelayMillis(0);
+        configuration.setMaxInFlightTransactions(4);
+        modbusManager.setEndpointPoolConfiguration(endpoint, configuration);
+
+        AtomicInteger mismatchCount = new AtomicInteger();
+        AtomicInteger errorCount = new AtomicInteger();
+        CountDownLatch callbackCalled = new CountDownLatch(POLL_COUNT);
+        long start = System.nanoTime();
+        for (int i = 0; i < POLL_COUNT; i++) {
+            int reference = i % (REGISTER_COUNT - 2);
+            modbusManager.submitOneTimePoll(new BasicPollTaskImpl(endpoint,
+                    new BasicModbusReadRequestBlueprint(SLAVE_UNIT_ID,
+                            ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, reference, 2, 1),
+                    new ModbusReadCallback() {
+
+                        @Override
+                        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+                            if (registers.size() != 2 || registers.getRegister(0).getValue() != reference
+                                    || registers.getRegister(1).getValue() != reference + 1) {
+                                mismatchCount.incrementAndGet();
+                            }
+                            callbackCalled.countDown();
+                        }
+
+                        @Override
+                        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+                            errorCount.incrementAndGet();
+                            callbackCalled.countDown();
+                        }
+
+                        @Override
+                        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+                            mismatchCount.incrementAndGet();
+                            callbackCalled.countDown();
+                        }
+                    }));
+        }
+        assertThat(callbackCalled.await(60, TimeUnit.SECONDS), is(true));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LoggerFactory.getLogger(PipelinedTransactionsTest.class).info("{} pipelined polls took {} ms", POLL_COUNT,
+                elapsedMillis);
+
+        assertThat(errorCount.get(), is(equalTo(0)));
+        assertThat(mismatchCount.get(), is(equalTo(0)));
+        // all transactions used the same connection
+        waitForConnectionsReceived(1);
+    }
+}
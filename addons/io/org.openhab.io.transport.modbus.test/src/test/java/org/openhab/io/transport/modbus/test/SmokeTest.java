@@ -31,6 +31,7 @@ import org.openhab.io.transport.modbus.BasicWriteTask;
 import org.openhab.io.transport.modbus.BitArray;
 import org.openhab.io.transport.modbus.ModbusConnectionException;
 import org.openhab.io.transport.modbus.ModbusManagerListener;
+import org.openhab.io.transport.modbus.ModbusOperationStatistics;
 import org.openhab.io.transport.modbus.ModbusReadCallback;
 import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
 import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
@@ -905,4 +906,49 @@ public class SmokeTest extends IntegrationTestSupport {
         assertThat(modbusManager.getRegisteredRegularPolls(), is(equalTo(ImmutableSet.of(task2))));
 
     }
+
+    /**
+     * Statistics are collected for both successful and failed operations
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testOperationStatistics() throws InterruptedException {
+        generateData();
+        ModbusSlaveEndpoint endpoint = getEndpoint();
+
+        CountDownLatch callbackCalled = new CountDownLatch(2);
+        ModbusReadCallback callback = new ModbusReadCallback() {
+
+            @Override
+            public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+                callbackCalled.countDown();
+            }
+
+            @Override
+            public void onError(ModbusReadRequestBlueprint request, Exception error) {
+                callbackCalled.countDown();
+            }
+
+            @Override
+            public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+                callbackCalled.countDown();
+            }
+        };
+        modbusManager.submitOneTimePoll(new BasicPollTaskImpl(endpoint, new BasicModbusReadRequestBlueprint(
+                SLAVE_UNIT_ID, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 1, 15, 1), callback));
+        // out of bounds, slave responds with an error
+        modbusManager.submitOneTimePoll(new BasicPollTaskImpl(endpoint, new BasicModbusReadRequestBlueprint(
+                SLAVE_UNIT_ID, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 200, 1, 1), callback));
+        assertTrue(callbackCalled.await(5, TimeUnit.SECONDS));
+
+        waitForAssert(() -> {
+            ModbusOperationStatistics statistics = modbusManager.getEndpointStatistics().get(endpoint);
+            assertNotNull(statistics);
+            assertThat(statistics.getOperations(), is(equalTo(2L)));
+            assertThat(statistics.getFailures(), is(equalTo(1L)));
+            assertThat(statistics.getErrorsByType().size(), is(equalTo(1)));
+            assertTrue(statistics.getTotalTimePercentileMillis(99) >= statistics.getTotalTimePercentileMillis(50));
+        });
+    }
 }
@@ -13,9 +13,6 @@
 package org.openhab.io.transport.modbus;
 
 import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.Optional;
 
@@ -98,6 +95,27 @@ public class ModbusBitUtilities {
      */
     public static DecimalType extractStateFromRegisters(ModbusRegisterArray registers, int index,
             ModbusConstants.ValueType type) {
+        return rawBitsToState(extractRawBitsFromRegisters(registers, index, type), type);
+    }
+
+    /**
+     * Read data from registers without allocating intermediate objects
+     *
+     * The value is returned as raw bits, suitable for change detection and for {@link #rawBitsToState}:
+     * - integer types are returned as their value, with UINT64 and UINT64_SWAP values exceeding
+     * {@link Long#MAX_VALUE} wrapping to negative values
+     * - FLOAT32 and FLOAT32_SWAP are returned as the bits of the float, see {@link Float#intBitsToFloat(int)}
+     *
+     * Interpretation of <tt>index</tt> and <tt>type</tt> are as with {@link #extractStateFromRegisters}.
+     *
+     * @param registers list of registers, each register represent 16bit of data
+     * @param index zero based item index
+     * @param type item type
+     * @return raw bits of the queried value
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of registers
+     */
+    public static long extractRawBitsFromRegisters(ModbusRegisterArray registers, int index,
+            ModbusConstants.ValueType type) {
         int endBitIndex = (type.getBits() >= 16 ? 16 * index : type.getBits() * index) + type.getBits() - 1;
         // each register has 16 bits
         int lastValidIndex = registers.size() * 16 - 1;
@@ -108,94 +126,121 @@ public class ModbusBitUtilities {
         }
         switch (type) {
             case BIT:
-                return new DecimalType((registers.getRegister(index / 16).toUnsignedShort() >> (index % 16)) & 1);
+                return (registers.getRegister(index / 16).toUnsignedShort() >> (index % 16)) & 1;
             case INT8:
-                return new DecimalType(registers.getRegister(index / 2).getBytes()[1 - (index % 2)]);
+                return (byte) (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2)));
             case UINT8:
-                return new DecimalType(
-                        (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff);
-            case INT16: {
-                ByteBuffer buff = ByteBuffer.allocate(2);
-                buff.put(registers.getRegister(index).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getShort(0));
-            }
+                return (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff;
+            case INT16:
+                return (short) registers.getRegister(index).toUnsignedShort();
             case UINT16:
-                return new DecimalType(registers.getRegister(index).toUnsignedShort());
-            case INT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0));
-            }
-            case UINT32: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0));
-            }
-            case FLOAT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0));
-            }
-            case INT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0));
-            }
-            case UINT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array())));
-            }
-            case INT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0));
-            }
-            case UINT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0));
-            }
-            case FLOAT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0));
-            }
-            case INT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0));
-            }
-            case UINT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array())));
-            }
+                return registers.getRegister(index).toUnsignedShort();
+            case INT32:
+                return (int) concatRegisters(registers, index, 2, false);
+            case UINT32:
+            case FLOAT32:
+                return concatRegisters(registers, index, 2, false);
+            case INT64:
+            case UINT64:
+                return concatRegisters(registers, index, 4, false);
+            case INT32_SWAP:
+                return (int) concatRegisters(registers, index, 2, true);
+            case UINT32_SWAP:
+            case FLOAT32_SWAP:
+                return concatRegisters(registers, index, 2, true);
+            case INT64_SWAP:
+            case UINT64_SWAP:
+                return concatRegisters(registers, index, 4, true);
             default:
                 throw new IllegalArgumentException(type.getConfigValue());
         }
     }
 
+    /**
+     * Read data from registers as long, without allocating intermediate objects
+     *
+     * @param registers list of registers, each register represent 16bit of data
+     * @param index zero based item index, see {@link #extractStateFromRegisters}
+     * @param type integer item type. With UINT64 and UINT64_SWAP, values exceeding {@link Long#MAX_VALUE} wrap to
+     *            negative values.
+     * @return queried value
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of registers, or with floating point types
+     */
+    public static long extractLongFromRegisters(ModbusRegisterArray registers, int index,
+            ModbusConstants.ValueType type) {
+        if (type == ModbusConstants.ValueType.FLOAT32 || type == ModbusConstants.ValueType.FLOAT32_SWAP) {
+            throw new IllegalArgumentException(
+                    String.format("Floating point type=%s cannot be extracted as integer", type));
+        }
+        return extractRawBitsFromRegisters(registers, index, type);
+    }
+
+    /**
+     * Read data from registers as double, without allocating intermediate objects
+     *
+     * Note that 64 bit integers with more than 53 significant bits cannot be represented exactly.
+     *
+     * @param registers list of registers, each register represent 16bit of data
+     * @param index zero based item index, see {@link #extractStateFromRegisters}
+     * @param type item type
+     * @return queried value
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of registers
+     */
+    public static double extractDoubleFromRegisters(ModbusRegisterArray registers, int index,
+            ModbusConstants.ValueType type) {
+        long rawBits = extractRawBitsFromRegisters(registers, index, type);
+        switch (type) {
+            case FLOAT32:
+            case FLOAT32_SWAP:
+                return Float.intBitsToFloat((int) rawBits);
+            case UINT64:
+            case UINT64_SWAP:
+                // unsigned conversion, keeping the lowest bit for correct rounding
+                return rawBits >= 0 ? rawBits : ((rawBits >>> 1) | (rawBits & 1)) * 2.0;
+            default:
+                return rawBits;
+        }
+    }
+
+    /**
+     * Convert raw bits returned by {@link #extractRawBitsFromRegisters} to DecimalType
+     *
+     * @param rawBits raw bits of the value
+     * @param type item type the raw bits were extracted with
+     * @return number representation of the value
+     */
+    public static DecimalType rawBitsToState(long rawBits, ModbusConstants.ValueType type) {
+        switch (type) {
+            case FLOAT32:
+            case FLOAT32_SWAP:
+                return new DecimalType(Float.intBitsToFloat((int) rawBits));
+            case UINT64:
+            case UINT64_SWAP:
+                return rawBits >= 0 ? new DecimalType(rawBits)
+                        : new DecimalType(new BigDecimal(Long.toUnsignedString(rawBits)));
+            default:
+                return new DecimalType(rawBits);
+        }
+    }
+
+    /**
+     * Concatenate registers to a long, first register being the most significant
+     *
+     * @param registers registers to read
+     * @param index index of the first register
+     * @param count number of registers to concatenate, at most 4
+     * @param swap whether to read the registers in reverse order
+     * @return registers as long
+     */
+    private static long concatRegisters(ModbusRegisterArray registers, int index, int count, boolean swap) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            int registerIndex = swap ? index + count - 1 - i : index + i;
+            value = (value << 16) | registers.getRegister(registerIndex).toUnsignedShort();
+        }
+        return value;
+    }
+
     /**
      * Read data from registers and convert the result to StringType
      * Strings should start the the first byte of a register, but could
@@ -12,6 +12,7 @@
  */
 package org.openhab.io.transport.modbus;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 
@@ -104,4 +105,18 @@ public interface ModbusManager {
      */
     public Set<PollTask> getRegisteredRegularPolls();
 
+    /**
+     * Get statistics of the operations executed with each endpoint
+     *
+     * @return operation statistics, per endpoint
+     */
+    public Map<ModbusSlaveEndpoint, ModbusOperationStatistics> getEndpointStatistics();
+
+    /**
+     * Get statistics of the registered regular polls
+     *
+     * @return operation statistics, per regular poll task. Statistics are discarded when the poll is unregistered.
+     */
+    public Map<PollTask, ModbusOperationStatistics> getRegularPollStatistics();
+
 }
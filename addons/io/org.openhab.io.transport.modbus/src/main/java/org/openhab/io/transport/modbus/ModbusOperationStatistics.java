@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus;
+
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Aggregated timings and outcomes of the operations (polls and writes) executed by {@link ModbusManager}
+ *
+ * Latency percentiles are computed from the most recent operations, so they show how the slave behaves now.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public interface ModbusOperationStatistics {
+
+    /**
+     * Number of executed operations, excluding canceled ones
+     *
+     * @return number of operations
+     */
+    public long getOperations();
+
+    /**
+     * Number of operations that failed after all tries
+     *
+     * @return number of failed operations
+     */
+    public long getFailures();
+
+    /**
+     * Number of retries, i.e. tries in addition to the first one
+     *
+     * @return number of retries
+     */
+    public long getRetries();
+
+    /**
+     * Number of times the connection was reset (disconnected) due to errors
+     *
+     * @return number of connection resets
+     */
+    public long getConnectionResets();
+
+    /**
+     * Failed operations by the simple class name of the last error
+     *
+     * @return number of failed operations, per error type
+     */
+    public Map<String, Long> getErrorsByType();
+
+    /**
+     * Given percentile of the total operation time of the recent operations, including waiting for connection and
+     * executing the callback
+     *
+     * @param percentile percentile between 0 and 100
+     * @return time in milliseconds, or 0 if no operations were executed
+     */
+    public long getTotalTimePercentileMillis(double percentile);
+
+    /**
+     * Given percentile of the time spent in transactions with the slave by the recent operations
+     *
+     * @param percentile percentile between 0 and 100
+     * @return time in milliseconds, or 0 if no operations were executed
+     */
+    public long getTransactionTimePercentileMillis(double percentile);
+}
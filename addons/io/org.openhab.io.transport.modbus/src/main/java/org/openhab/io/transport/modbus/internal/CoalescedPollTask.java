@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegister;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Poll task reading the data of several poll tasks with a single request.
+ *
+ * The response is split back into the data requested by the original tasks, and their callbacks are called with
+ * their original requests, in the order of the start addresses.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class CoalescedPollTask implements PollTask {
+
+    private final Logger logger = LoggerFactory.getLogger(CoalescedPollTask.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final BasicModbusReadRequestBlueprint request;
+    private final List<PollTask> tasks;
+    private final ModbusReadCallback callback = new SplittingCallback();
+
+    /**
+     *
+     * @param tasks tasks to merge, all with the same endpoint, unit id and function code
+     * @param start start address of the merged read
+     * @param length data length of the merged read
+     */
+    public CoalescedPollTask(List<PollTask> tasks, int start, int length) {
+        ModbusReadRequestBlueprint first = tasks.get(0).getRequest();
+        int maxTries = tasks.stream().mapToInt(task -> task.getRequest().getMaxTries()).max().orElse(1);
+        this.endpoint = tasks.get(0).getEndpoint();
+        this.request = new BasicModbusReadRequestBlueprint(first.getUnitID(), first.getFunctionCode(), start, length,
+                maxTries);
+        this.tasks = Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * Get the tasks merged into this task
+     *
+     * @return merged tasks, sorted by start address
+     */
+    public List<PollTask> getTasks() {
+        return tasks;
+    }
+
+    @Override
+    public ModbusSlaveEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public ModbusReadRequestBlueprint getRequest() {
+        return request;
+    }
+
+    @Override
+    public @Nullable ModbusReadCallback getCallback() {
+        return callback;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("CoalescedPollTask(request=").append(request).append(", endpoint=").append(endpoint)
+                .append(", tasks=").append(tasks.size()).append(')').toString();
+    }
+
+    private class SplittingCallback implements ModbusReadCallback {
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint mergedRequest, ModbusRegisterArray registers) {
+            for (PollTask task : tasks) {
+                ModbusReadCallback taskCallback = task.getCallback();
+                if (taskCallback == null) {
+                    continue;
+                }
+                ModbusReadRequestBlueprint taskRequest = task.getRequest();
+                int offset = taskRequest.getReference() - request.getReference();
+                int length = taskRequest.getDataLength();
+                try {
+                    if (offset + length > registers.size()) {
+                        taskCallback.onError(taskRequest, shortResponse(registers.size()));
+                        continue;
+                    }
+                    ModbusRegister[] slice = new ModbusRegister[length];
+                    for (int i = 0; i < length; i++) {
+                        slice[i] = registers.getRegister(offset + i);
+                    }
+                    taskCallback.onRegisters(taskRequest, new BasicModbusRegisterArray(slice));
+                } catch (RuntimeException e) {
+                    logger.error("Unhandled exception in callback {} for request {}: {}", taskCallback, taskRequest,
+                            e.getMessage(), e);
+                }
+            }
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint mergedRequest, BitArray bits) {
+            for (PollTask task : tasks) {
+                ModbusReadCallback taskCallback = task.getCallback();
+                if (taskCallback == null) {
+                    continue;
+                }
+                ModbusReadRequestBlueprint taskRequest = task.getRequest();
+                int offset = taskRequest.getReference() - request.getReference();
+                int length = taskRequest.getDataLength();
+                try {
+                    if (offset + length > bits.size()) {
+                        taskCallback.onError(taskRequest, shortResponse(bits.size()));
+                        continue;
+                    }
+                    BitSet slice = new BitSet(length);
+                    for (int i = 0; i < length; i++) {
+                        slice.set(i, bits.getBit(offset + i));
+                    }
+                    taskCallback.onBits(taskRequest, new BasicBitArray(slice, length));
+                } catch (RuntimeException e) {
+                    logger.error("Unhandled exception in callback {} for request {}: {}", taskCallback, taskRequest,
+                            e.getMessage(), e);
+                }
+            }
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint mergedRequest, Exception error) {
+            for (PollTask task : tasks) {
+                ModbusReadCallback taskCallback = task.getCallback();
+                if (taskCallback == null) {
+                    continue;
+                }
+                try {
+                    taskCallback.onError(task.getRequest(), error);
+                } catch (RuntimeException e) {
+                    logger.error("Unhandled exception in callback {} for request {}: {}", taskCallback,
+                            task.getRequest(), e.getMessage(), e);
+                }
+            }
+        }
+
+        private Exception shortResponse(int size) {
+            return new ModbusSlaveIOExceptionImpl(new IOException(String.format(
+                    "Response to merged request %s contained only %d items", request, size)));
+        }
+    }
+}
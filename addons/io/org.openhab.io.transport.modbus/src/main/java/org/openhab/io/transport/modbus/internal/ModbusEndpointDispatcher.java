@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queues the operations of a single endpoint, and executes them in order of priority.
+ *
+ * Operations are executed on the given executor, at most <code>parallelism</code> at a time. Whenever an operation
+ * finishes, the queued operation with the highest priority is executed next, so that writes do not need to wait
+ * for the regular polls queued before them.
+ *
+ * Regular polls are identified by a key. A regular poll is dropped if the previous poll with the same key is still
+ * waiting in the queue, e.g. when the slave cannot keep up with the poll period.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusEndpointDispatcher {
+
+    /**
+     * Priority classes, in order of decreasing priority
+     */
+    public enum Priority {
+        WRITE,
+        ONE_OFF_POLL,
+        REGULAR_POLL
+    }
+
+    /**
+     * Queued operation, and the future of it. Cancelling the future removes the operation from the queue.
+     */
+    private class DispatchedTask extends FutureTask<@Nullable Void> implements ScheduledFuture<@Nullable Void> {
+        private final Priority priority;
+        private final @Nullable Object key;
+        private final long queuedMillis = System.currentTimeMillis();
+
+        DispatchedTask(Priority priority, @Nullable Object key, Runnable operation) {
+            super(operation, null);
+            this.priority = priority;
+            this.key = key;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (queues) {
+                Object key = this.key;
+                if (queues.get(priority).remove(this) && key != null) {
+                    queuedKeys.remove(key);
+                }
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public long getDelay(@Nullable TimeUnit unit) {
+            return 0;
+        }
+
+        @Override
+        public int compareTo(@Nullable Delayed other) {
+            return other == null ? 0 : Long.compare(0, other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder("DispatchedTask(priority=").append(priority).append(", key=").append(key)
+                    .append(')').toString();
+        }
+    }
+
+    /**
+     * Snapshot of the queue of an endpoint
+     */
+    public static class Statistics {
+        private final Map<Priority, Integer> queueDepths;
+        private final Map<Priority, Long> executed;
+        private final Map<Priority, Long> totalWaitMillis;
+        private final Map<Priority, Long> maxWaitMillis;
+        private final long droppedRegularPolls;
+
+        private Statistics(Map<Priority, Integer> queueDepths, Map<Priority, Long> executed,
+                Map<Priority, Long> totalWaitMillis, Map<Priority, Long> maxWaitMillis, long droppedRegularPolls) {
+            this.queueDepths = queueDepths;
+            this.executed = executed;
+            this.totalWaitMillis = totalWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.droppedRegularPolls = droppedRegularPolls;
+        }
+
+        /**
+         * Number of operations waiting in the queue
+         */
+        public int getQueueDepth(Priority priority) {
+            return queueDepths.getOrDefault(priority, 0);
+        }
+
+        public int getQueueDepth() {
+            return queueDepths.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        /**
+         * Number of operations taken from the queue for execution
+         */
+        public long getExecuted(Priority priority) {
+            return executed.getOrDefault(priority, 0L);
+        }
+
+        /**
+         * Average time operations waited in the queue, in milliseconds
+         */
+        public double getAverageWaitMillis(Priority priority) {
+            long count = getExecuted(priority);
+            return count == 0 ? 0 : (double) totalWaitMillis.getOrDefault(priority, 0L) / count;
+        }
+
+        /**
+         * Longest time an operation waited in the queue, in milliseconds
+         */
+        public long getMaxWaitMillis(Priority priority) {
+            return maxWaitMillis.getOrDefault(priority, 0L);
+        }
+
+        /**
+         * Number of regular polls dropped since the previous poll was still queued
+         */
+        public long getDroppedRegularPolls() {
+            return droppedRegularPolls;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Statistics(");
+            for (Priority priority : Priority.values()) {
+                builder.append(priority).append("=[queued=").append(getQueueDepth(priority)).append(", executed=")
+                        .append(getExecuted(priority)).append(", avgWaitMillis=")
+                        .append(String.format("%.1f", getAverageWaitMillis(priority))).append(", maxWaitMillis=")
+                        .append(getMaxWaitMillis(priority)).append("], ");
+            }
+            return builder.append("droppedRegularPolls=").append(droppedRegularPolls).append(')').toString();
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusEndpointDispatcher.class);
+
+    private final Object endpoint;
+    private final Executor executor;
+    private final Map<Priority, Deque<DispatchedTask>> queues = new EnumMap<>(Priority.class);
+    // guarded by queues
+    private final Set<Object> queuedKeys = new HashSet<>();
+    private final Set<DispatchedTask> running = new HashSet<>();
+    private final Map<Priority, Long> executed = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> totalWaitMillis = new EnumMap<>(Priority.class);
+    private final Map<Priority, Long> maxWaitMillis = new EnumMap<>(Priority.class);
+    private long droppedRegularPolls;
+    private int parallelism;
+
+    /**
+     *
+     * @param endpoint endpoint of the operations, used in logging
+     * @param executor executor of the operations
+     * @param parallelism maximum number of operations executed at the same time
+     */
+    public ModbusEndpointDispatcher(Object endpoint, Executor executor, int parallelism) {
+        this.endpoint = endpoint;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Change the maximum number of operations executed at the same time
+     */
+    public void setParallelism(int parallelism) {
+        synchronized (queues) {
+            this.parallelism = Math.max(1, parallelism);
+            dispatch();
+        }
+    }
+
+    /**
+     * Queue operation for execution
+     *
+     * @param priority priority of the operation
+     * @param key key of a regular poll. If an operation with equal key is already queued, the new operation is
+     *            dropped, and the future of the queued operation returned. Null to never drop the operation.
+     * @param operation operation to execute
+     * @return future of the operation. Cancelling a queued operation removes it from the queue.
+     */
+    public ScheduledFuture<?> submit(Priority priority, @Nullable Object key, Runnable operation) {
+        synchronized (queues) {
+            Deque<DispatchedTask> queue = queues.get(priority);
+            if (key != null && !queuedKeys.add(key)) {
+                for (DispatchedTask queued : queue) {
+                    if (key.equals(queued.key)) {
+                        droppedRegularPolls++;
+                        logger.debug("Operation {} still queued for endpoint {}, dropping the new one", key,
+                                endpoint);
+                        return queued;
+                    }
+                }
+            }
+            DispatchedTask task = new DispatchedTask(priority, key, operation);
+            queue.add(task);
+            dispatch();
+            return task;
+        }
+    }
+
+    /**
+     * Cancel the operations with the given key
+     *
+     * @param key key of the operations
+     * @param mayInterruptIfRunning whether to interrupt the operation if it is already executing
+     */
+    public void cancel(Object key, boolean mayInterruptIfRunning) {
+        synchronized (queues) {
+            for (Deque<DispatchedTask> queue : queues.values()) {
+                for (Iterator<DispatchedTask> iterator = queue.iterator(); iterator.hasNext();) {
+                    DispatchedTask task = iterator.next();
+                    if (key.equals(task.key)) {
+                        iterator.remove();
+                        task.cancel(false);
+                    }
+                }
+            }
+            queuedKeys.remove(key);
+            if (mayInterruptIfRunning) {
+                running.stream().filter(task -> key.equals(task.key)).forEach(task -> task.cancel(true));
+            }
+        }
+    }
+
+    /**
+     * Cancel all queued operations
+     */
+    public void clear() {
+        synchronized (queues) {
+            for (Deque<DispatchedTask> queue : queues.values()) {
+                DispatchedTask task;
+                while ((task = queue.poll()) != null) {
+                    task.cancel(false);
+                }
+            }
+            queuedKeys.clear();
+        }
+    }
+
+    public Statistics getStatistics() {
+        synchronized (queues) {
+            Map<Priority, Integer> queueDepths = new EnumMap<>(Priority.class);
+            queues.forEach((priority, queue) -> queueDepths.put(priority, queue.size()));
+            return new Statistics(queueDepths, new HashMap<>(executed), new HashMap<>(totalWaitMillis),
+                    new HashMap<>(maxWaitMillis), droppedRegularPolls);
+        }
+    }
+
+    /**
+     * Start queued operations while below parallelism. Must be called while holding the lock of queues.
+     */
+    private void dispatch() {
+        while (running.size() < parallelism) {
+            DispatchedTask task = poll();
+            if (task == null) {
+                return;
+            }
+            running.add(task);
+            try {
+                executor.execute(() -> execute(task));
+            } catch (RejectedExecutionException e) {
+                logger.error("Could not execute operation {} for endpoint {}: {}", task, endpoint, e.getMessage());
+                running.remove(task);
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Take the queued operation with the highest priority. Must be called while holding the lock of queues.
+     */
+    private @Nullable DispatchedTask poll() {
+        for (Priority priority : Priority.values()) {
+            Deque<DispatchedTask> queue = queues.get(priority);
+            DispatchedTask task;
+            while ((task = queue.poll()) != null) {
+                Object key = task.key;
+                if (key != null) {
+                    queuedKeys.remove(key);
+                }
+                if (task.isCancelled()) {
+                    continue;
+                }
+                long waitMillis = System.currentTimeMillis() - task.queuedMillis;
+                executed.merge(priority, 1L, Long::sum);
+                totalWaitMillis.merge(priority, waitMillis, Long::sum);
+                maxWaitMillis.merge(priority, waitMillis, Math::max);
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void execute(DispatchedTask task) {
+        try {
+            task.run();
+        } finally {
+            synchronized (queues) {
+                running.remove(task);
+                dispatch();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("ModbusEndpointDispatcher(endpoint=").append(endpoint).append(", parallelism=")
+                .append(parallelism).append(')').toString();
+    }
+}
@@ -173,6 +173,10 @@ public class ModbusLibraryWrapper {
      */
     public static ModbusTransaction createTransactionForEndpoint(ModbusSlaveEndpoint endpoint,
             ModbusSlaveConnection connection) {
+        if (connection instanceof ModbusPipelinedTCPConnection) {
+            // pipelined transactions never retry on their own
+            return new ModbusPipelinedTCPTransaction((ModbusPipelinedTCPConnection) connection);
+        }
         ModbusTransaction transaction = endpoint.accept(new ModbusSlaveEndpointVisitor<ModbusTransaction>() {
 
             @Override
@@ -13,7 +13,12 @@
 package org.openhab.io.transport.modbus.internal;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -39,6 +44,7 @@ import org.openhab.io.transport.modbus.ModbusCallback;
 import org.openhab.io.transport.modbus.ModbusConnectionException;
 import org.openhab.io.transport.modbus.ModbusManager;
 import org.openhab.io.transport.modbus.ModbusManagerListener;
+import org.openhab.io.transport.modbus.ModbusOperationStatistics;
 import org.openhab.io.transport.modbus.ModbusReadCallback;
 import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
 import org.openhab.io.transport.modbus.ModbusRequestBlueprint;
@@ -54,6 +60,7 @@ import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpointVisitor;
 import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointDispatcher.Priority;
 import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -77,6 +84,12 @@ import net.wimpi.modbus.net.ModbusSlaveConnection;
  * important with serial slaves but practice has shown that even many tcp slaves have limited
  * capability to handle many connections at the same time
  *
+ * Modbus/TCP endpoints configured with more than one transaction in flight share a single
+ * {@link ModbusPipelinedTCPConnection} instead.
+ *
+ * Operations are queued per endpoint in a {@link ModbusEndpointDispatcher}, which executes writes before one-off
+ * polls, and one-off polls before regular polls.
+ *
  * @author Sami Salonen - Initial contribution
  */
 @Component(service = ModbusManager.class, immediate = true, configurationPid = "transport.modbus")
@@ -249,6 +262,30 @@ public class ModbusManagerImpl implements ModbusManager {
     private static final long WARN_QUEUE_SIZE = 500;
     private static final long MONITOR_QUEUE_INTERVAL_MILLIS = 10000;
 
+    /**
+     * Configuration key for the maximum gap between regular polls merged into a single read, see
+     * {@link ModbusReadPlanner}. Negative values (the default) disable merging of regular polls.
+     */
+    private static final String CONFIG_READ_COALESCING_MAX_GAP = "readCoalescingMaxGap";
+
+    /**
+     * Regular polls of the same endpoint and poll period, executed together with the reads planned by the
+     * {@link ModbusReadPlanner}
+     *
+     * @author agent - Initial contribution
+     *
+     */
+    private static class PollGroup {
+        private final Set<PollTask> tasks = new LinkedHashSet<>();
+        private final long pollPeriodMillis;
+        private @Nullable ScheduledFuture<?> future;
+        private List<PollTask> plannedTasks = Collections.emptyList();
+
+        PollGroup(long pollPeriodMillis) {
+            this.pollPeriodMillis = pollPeriodMillis;
+        }
+    }
+
     private final PollOperation pollOperation = new PollOperation();
     private final WriteOperation writeOperation = new WriteOperation();
 
@@ -276,6 +313,25 @@ public class ModbusManagerImpl implements ModbusManager {
     private volatile Collection<ModbusManagerListener> listeners = new CopyOnWriteArraySet<>();
     @Nullable
     private volatile ScheduledFuture<?> monitorFuture;
+    /**
+     * Planner merging regular polls, null if merging is disabled
+     */
+    @Nullable
+    private volatile ModbusReadPlanner readPlanner;
+    /**
+     * Regular polls merged by the read planner, keyed by endpoint and poll period. Guarded by this.
+     */
+    private final Map<List<Object>, PollGroup> pollGroups = new HashMap<>();
+    /**
+     * Shared connections of endpoints with more than one transaction in flight. These bypass the connection pool.
+     */
+    private final Map<ModbusSlaveEndpoint, ModbusPipelinedTCPConnection> pipelinedConnections = new ConcurrentHashMap<>();
+    /**
+     * Per endpoint queues of operations. Writes are executed before one-off polls, and these before regular polls.
+     */
+    private final Map<ModbusSlaveEndpoint, ModbusEndpointDispatcher> dispatchers = new ConcurrentHashMap<>();
+    private final Map<ModbusSlaveEndpoint, ModbusOperationStatisticsImpl> endpointStatistics = new ConcurrentHashMap<>();
+    private final Map<PollTask, ModbusOperationStatisticsImpl> regularPollStatistics = new ConcurrentHashMap<>();
 
     private void constructConnectionPool() {
         ModbusSlaveConnectionFactoryImpl connectionFactory = new ModbusSlaveConnectionFactoryImpl();
@@ -327,7 +383,83 @@ public class ModbusManagerImpl implements ModbusManager {
         this.connectionFactory = connectionFactory;
     }
 
+    /**
+     * Get the operation queue of the endpoint, creating it if necessary
+     *
+     * @param executor executor executing the operations
+     * @param endpoint endpoint of the operations
+     * @return dispatcher of the endpoint
+     */
+    private ModbusEndpointDispatcher getDispatcher(ScheduledExecutorService executor, ModbusSlaveEndpoint endpoint) {
+        return dispatchers.computeIfAbsent(endpoint,
+                key -> new ModbusEndpointDispatcher(key, executor, getMaxInFlightTransactions(key)));
+    }
+
+    private int getMaxInFlightTransactions(ModbusSlaveEndpoint endpoint) {
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        EndpointPoolConfiguration config = connectionFactory == null ? null
+                : connectionFactory.getEndpointPoolConfiguration(endpoint);
+        // only tcp endpoints support pipelining, see getPipelinedConnection
+        return config == null || !(endpoint instanceof ModbusTCPSlaveEndpoint) ? 1
+                : config.getMaxInFlightTransactions();
+    }
+
+    /**
+     * Get statistics of the operation queues
+     *
+     * @return queue statistics, per endpoint
+     */
+    public Map<ModbusSlaveEndpoint, ModbusEndpointDispatcher.Statistics> getQueueStatistics() {
+        Map<ModbusSlaveEndpoint, ModbusEndpointDispatcher.Statistics> statistics = new HashMap<>();
+        dispatchers.forEach((endpoint, dispatcher) -> statistics.put(endpoint, dispatcher.getStatistics()));
+        return statistics;
+    }
+
+    /**
+     * Get the shared pipelined connection of the endpoint, creating it if necessary
+     *
+     * @param endpoint endpoint of the connection
+     * @return pipelined connection, or null if the endpoint does not use pipelining
+     */
+    private @Nullable ModbusPipelinedTCPConnection getPipelinedConnection(ModbusSlaveEndpoint endpoint) {
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        if (connectionFactory == null || !(endpoint instanceof ModbusTCPSlaveEndpoint)) {
+            return null;
+        }
+        EndpointPoolConfiguration config = connectionFactory.getEndpointPoolConfiguration(endpoint);
+        if (config == null || config.getMaxInFlightTransactions() <= 1) {
+            return null;
+        }
+        return pipelinedConnections.computeIfAbsent(endpoint,
+                key -> new ModbusPipelinedTCPConnection((ModbusTCPSlaveEndpoint) key,
+                        config.getMaxInFlightTransactions(), config.getConnectTimeoutMillis()));
+    }
+
+    private Optional<ModbusSlaveConnection> borrowPipelinedConnection(ModbusSlaveEndpoint endpoint,
+            ModbusPipelinedTCPConnection connection) {
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        EndpointPoolConfiguration config = connectionFactory == null ? null
+                : connectionFactory.getEndpointPoolConfiguration(endpoint);
+        int maxTries = config == null ? 1 : Math.max(1, config.getConnectMaxTries());
+        for (int tryIndex = 1; !connection.isConnected(); tryIndex++) {
+            try {
+                connection.connect();
+            } catch (Exception e) {
+                logger.warn("Error connecting pipelined connection to endpoint {} (try {}/{}). Error was: {} {}",
+                        endpoint, tryIndex, maxTries, e.getClass().getName(), e.getMessage());
+                if (tryIndex >= maxTries) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(connection);
+    }
+
     private Optional<ModbusSlaveConnection> borrowConnection(ModbusSlaveEndpoint endpoint) {
+        ModbusPipelinedTCPConnection pipelinedConnection = getPipelinedConnection(endpoint);
+        if (pipelinedConnection != null) {
+            return borrowPipelinedConnection(endpoint, pipelinedConnection);
+        }
         Optional<ModbusSlaveConnection> connection = Optional.empty();
         KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> pool = connectionPool;
         if (pool == null) {
@@ -359,6 +491,15 @@ public class ModbusManagerImpl implements ModbusManager {
         if (pool == null) {
             return;
         }
+        if (connection.orElse(null) instanceof ModbusPipelinedTCPConnection) {
+            // Shared by other transactions in flight. Resets itself on socket errors, while errors of single
+            // transactions (e.g. timeouts) should not affect the others.
+            return;
+        }
+        if (connection.isPresent()) {
+            endpointStatistics.computeIfAbsent(endpoint, key -> new ModbusOperationStatisticsImpl())
+                    .recordConnectionReset();
+        }
         long start = System.currentTimeMillis();
         connection.ifPresent(con -> {
             try {
@@ -377,6 +518,10 @@ public class ModbusManagerImpl implements ModbusManager {
         if (pool == null) {
             return;
         }
+        if (connection.orElse(null) instanceof ModbusPipelinedTCPConnection) {
+            // not borrowed from the pool
+            return;
+        }
         long start = System.currentTimeMillis();
         connection.ifPresent(con -> {
             try {
@@ -468,7 +613,14 @@ public class ModbusManagerImpl implements ModbusManager {
     }
 
     private void verifyTaskIsRegistered(PollTask task) throws PollTaskUnregistered {
-        if (!this.scheduledPollTasks.containsKey(task)) {
+        boolean registered;
+        if (task instanceof CoalescedPollTask) {
+            // merged tasks are re-planned whenever one of them is unregistered
+            registered = ((CoalescedPollTask) task).getTasks().stream().allMatch(scheduledPollTasks::containsKey);
+        } else {
+            registered = scheduledPollTasks.containsKey(task);
+        }
+        if (!registered) {
             String msg = String.format("Poll task %s is unregistered", task);
             logger.debug(msg);
             throw new PollTaskUnregistered(msg);
@@ -517,6 +669,11 @@ public class ModbusManagerImpl implements ModbusManager {
         }
 
         Optional<ModbusSlaveConnection> connection = Optional.empty();
+        int tryIndex = 0;
+        // error type for the statistics, remains null on success
+        @Nullable
+        String failure = null;
+        boolean aborted = false;
         try {
             logger.trace("Starting new operation with task {}. Trying to get connection [operation ID {}]", task,
                     operationId);
@@ -527,16 +684,17 @@ public class ModbusManagerImpl implements ModbusManager {
                 // Could not acquire connection, time to abort
                 // Error logged already, error callback called as well
                 logger.trace("Initial connection was not successful, aborting. [operation ID {}]", operationId);
+                failure = ModbusConnectionException.class.getSimpleName();
                 return;
             }
 
             if (scheduledThreadPoolExecutor == null) {
                 logger.debug("Manager has been shut down, aborting proecssing request {} [operation ID {}]", request,
                         operationId);
+                aborted = true;
                 return;
             }
 
-            int tryIndex = 0;
             /**
              * last execution is tracked such that the endpoint is not spammed on retry. First retry can be executed
              * right away since getConnection ensures enough time has passed since last transaction. More precisely,
@@ -551,10 +709,12 @@ public class ModbusManagerImpl implements ModbusManager {
                     // re-established. Error has been logged, time to abort.
                     logger.trace("Try {} out of {}. Connection was not successful, aborting. [operation ID {}]",
                             tryIndex + 1, maxTries, operationId);
+                    failure = ModbusConnectionException.class.getSimpleName();
                     return;
                 }
                 if (Thread.interrupted()) {
                     logger.warn("Thread interrupted. Aborting operation [operation ID {}]", operationId);
+                    aborted = true;
                     return;
                 }
                 // Check poll task is still registered (this is all asynchronous)
@@ -665,6 +825,7 @@ public class ModbusManagerImpl implements ModbusManager {
             }
             Exception exception = lastError.get();
             if (exception != null) {
+                failure = exception.getClass().getSimpleName();
                 // All retries failed with some error
                 if (callback != null) {
                     timer.callback.timeRunnable(() -> {
@@ -675,10 +836,12 @@ public class ModbusManagerImpl implements ModbusManager {
         } catch (PollTaskUnregistered e) {
             logger.warn("Poll task was unregistered -- not executing/proceeding with the poll: {} [operation ID {}]",
                     e.getMessage(), operationId);
+            aborted = true;
             return;
         } catch (InterruptedException e) {
             logger.warn("Poll task was canceled -- not executing/proceeding with the poll: {} [operation ID {}]",
                     e.getMessage(), operationId);
+            aborted = true;
             // Invalidate connection, and empty (so that new connection is acquired before new retry)
             timer.connection.timeConsumer(c -> invalidate(endpoint, c), connection);
             connection = Optional.empty();
@@ -687,6 +850,27 @@ public class ModbusManagerImpl implements ModbusManager {
             logger.trace("Connection was returned to the pool, ending operation [operation ID {}]", operationId);
             timer.suspendAllRunning();
             logger.debug("Modbus operation ended, timing info: {} [operation ID {}]", timer, operationId);
+            if (!aborted) {
+                recordStatistics(task, oneOffTask, timer, tryIndex, failure);
+            }
+        }
+    }
+
+    private void recordStatistics(TaskWithEndpoint<?, ?> task, boolean oneOffTask, AggregateStopWatch timer, int tries,
+            @Nullable String failure) {
+        endpointStatistics.computeIfAbsent(task.getEndpoint(), key -> new ModbusOperationStatisticsImpl())
+                .record(timer, tries, failure);
+        if (oneOffTask || !(task instanceof PollTask)) {
+            return;
+        }
+        Collection<PollTask> pollTasks = task instanceof CoalescedPollTask ? ((CoalescedPollTask) task).getTasks()
+                : Collections.singleton((PollTask) task);
+        for (PollTask pollTask : pollTasks) {
+            // only registered tasks, statistics of unregistered ones are discarded
+            if (scheduledPollTasks.containsKey(pollTask)) {
+                regularPollStatistics.computeIfAbsent(pollTask, key -> new ModbusOperationStatisticsImpl())
+                        .record(timer, tries, failure);
+            }
         }
     }
 
@@ -696,13 +880,12 @@ public class ModbusManagerImpl implements ModbusManager {
         Objects.requireNonNull(executor, "Not activated!");
         long scheduleTime = System.currentTimeMillis();
         logger.debug("Scheduling one-off poll task {}", task);
-        ScheduledFuture<?> future = executor.schedule(() -> {
+        return getDispatcher(executor, task.getEndpoint()).submit(Priority.ONE_OFF_POLL, null, () -> {
             long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
-            logger.debug("Will now execute one-off poll task {}, waited in thread pool for {}", task,
+            logger.debug("Will now execute one-off poll task {}, waited in queue for {}", task,
                     millisInThreadPoolWaiting);
             executeOperation(task, true, pollOperation);
-        }, 0L, TimeUnit.MILLISECONDS);
-        return future;
+        });
     }
 
     @Override
@@ -716,16 +899,29 @@ public class ModbusManagerImpl implements ModbusManager {
                 logger.trace("Unregistering previous poll task (possibly with different period)");
                 unregisterRegularPoll(task);
             }
-            ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> {
-                long started = System.currentTimeMillis();
-                logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis, task,
-                        started);
-                executeOperation(task, false, pollOperation);
-                long finished = System.currentTimeMillis();
-                logger.debug(
-                        "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
-                        pollPeriodMillis, task, finished, started, finished - started);
-            }, initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
+            ModbusReadPlanner readPlanner = this.readPlanner;
+            if (readPlanner != null) {
+                PollGroup group = pollGroups.computeIfAbsent(Arrays.asList(task.getEndpoint(), pollPeriodMillis),
+                        key -> new PollGroup(pollPeriodMillis));
+                group.tasks.add(task);
+                schedulePollGroup(executor, readPlanner, group, initialDelayMillis);
+                logger.trace("Registered poll task {} with period {} using initial delay {} as part of {} merged polls",
+                        task, pollPeriodMillis, initialDelayMillis, group.tasks.size());
+                return;
+            }
+            ModbusEndpointDispatcher dispatcher = getDispatcher(executor, task.getEndpoint());
+            // the poll is only queued here, stale polls still in the queue are not queued again
+            ScheduledFuture<?> future = executor.scheduleWithFixedDelay(
+                    () -> dispatcher.submit(Priority.REGULAR_POLL, task, () -> {
+                        long started = System.currentTimeMillis();
+                        logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis,
+                                task, started);
+                        executeOperation(task, false, pollOperation);
+                        long finished = System.currentTimeMillis();
+                        logger.debug(
+                                "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
+                                pollPeriodMillis, task, finished, started, finished - started);
+                    }), initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
 
             scheduledPollTasks.put(task, future);
             logger.trace("Registered poll task {} with period {} using initial delay {}", task, pollPeriodMillis,
@@ -733,6 +929,47 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    /**
+     * (Re)schedule the reads planned for the regular polls of a poll group. Must be called while holding the lock of
+     * this.
+     */
+    private void schedulePollGroup(ScheduledExecutorService executor, ModbusReadPlanner readPlanner, PollGroup group,
+            long initialDelayMillis) {
+        ScheduledFuture<?> previous = group.future;
+        if (previous != null) {
+            // do not interrupt, an ongoing read might belong to other tasks of the group
+            previous.cancel(false);
+        }
+        for (PollTask plannedTask : group.plannedTasks) {
+            getDispatcher(executor, plannedTask.getEndpoint()).cancel(plannedTask, false);
+        }
+        group.plannedTasks = Collections.emptyList();
+        if (group.tasks.isEmpty()) {
+            group.future = null;
+            pollGroups.values().remove(group);
+            return;
+        }
+        List<PollTask> plannedTasks = readPlanner.plan(group.tasks);
+        long pollPeriodMillis = group.pollPeriodMillis;
+        logger.debug("Planned {} reads for {} regular poll tasks with period {}ms", plannedTasks.size(),
+                group.tasks.size(), pollPeriodMillis);
+        ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> {
+            for (PollTask plannedTask : plannedTasks) {
+                getDispatcher(executor, plannedTask.getEndpoint()).submit(Priority.REGULAR_POLL, plannedTask, () -> {
+                    long started = System.currentTimeMillis();
+                    executeOperation(plannedTask, false, pollOperation);
+                    logger.debug("Execution of merged ({}ms) poll task {} took {} millis", pollPeriodMillis,
+                            plannedTask, System.currentTimeMillis() - started);
+                });
+            }
+        }, initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
+        group.future = future;
+        group.plannedTasks = plannedTasks;
+        for (PollTask task : group.tasks) {
+            scheduledPollTasks.put(task, future);
+        }
+    }
+
     @SuppressWarnings({ "null", "unused" })
     @Override
     public boolean unregisterRegularPoll(PollTask task) {
@@ -756,8 +993,19 @@ public class ModbusManagerImpl implements ModbusManager {
             // is usually pretty soon as transactions should be relatively short-lived)
             factory.disconnectOnReturn(task.getEndpoint(), System.currentTimeMillis());
 
-            future.cancel(true);
+            PollGroup group = pollGroups.values().stream().filter(g -> g.tasks.contains(task)).findFirst()
+                    .orElse(null);
+            ModbusReadPlanner readPlanner = this.readPlanner;
+            if (group != null && readPlanner != null) {
+                // re-plan the remaining tasks of the group without the unregistered one
+                group.tasks.remove(task);
+                schedulePollGroup(executor, readPlanner, group, group.pollPeriodMillis);
+            } else {
+                future.cancel(true);
+                getDispatcher(executor, task.getEndpoint()).cancel(task, true);
+            }
 
+            regularPollStatistics.remove(task);
             logger.info("Poll task {} canceled", task);
 
             try {
@@ -781,13 +1029,12 @@ public class ModbusManagerImpl implements ModbusManager {
         Objects.requireNonNull(scheduledThreadPoolExecutor, "Not activated!");
         long scheduleTime = System.currentTimeMillis();
         logger.debug("Scheduling one-off write task {}", task);
-        ScheduledFuture<?> future = scheduledThreadPoolExecutor.schedule(() -> {
+        return getDispatcher(scheduledThreadPoolExecutor, task.getEndpoint()).submit(Priority.WRITE, null, () -> {
             long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
-            logger.debug("Will now execute one-off write task {}, waited in thread pool for {}", task,
+            logger.debug("Will now execute one-off write task {}, waited in queue for {}", task,
                     millisInThreadPoolWaiting);
             executeOperation(task, true, writeOperation);
-        }, 0L, TimeUnit.MILLISECONDS);
-        return future;
+        });
     }
 
     @Override
@@ -795,6 +1042,15 @@ public class ModbusManagerImpl implements ModbusManager {
             @Nullable EndpointPoolConfiguration configuration) {
         Objects.requireNonNull(connectionFactory, "Not activated!");
         connectionFactory.setEndpointPoolConfiguration(endpoint, configuration);
+        ModbusEndpointDispatcher dispatcher = dispatchers.get(endpoint);
+        if (dispatcher != null) {
+            dispatcher.setParallelism(getMaxInFlightTransactions(endpoint));
+        }
+        // re-created with the new configuration on next use
+        ModbusPipelinedTCPConnection pipelinedConnection = pipelinedConnections.remove(endpoint);
+        if (pipelinedConnection != null) {
+            pipelinedConnection.resetConnection();
+        }
         for (ModbusManagerListener listener : listeners) {
             listener.onEndpointPoolConfigurationSet(endpoint, configuration);
         }
@@ -821,6 +1077,16 @@ public class ModbusManagerImpl implements ModbusManager {
         return this.scheduledPollTasks.keySet();
     }
 
+    @Override
+    public Map<ModbusSlaveEndpoint, ModbusOperationStatistics> getEndpointStatistics() {
+        return Collections.unmodifiableMap(endpointStatistics);
+    }
+
+    @Override
+    public Map<PollTask, ModbusOperationStatistics> getRegularPollStatistics() {
+        return Collections.unmodifiableMap(regularPollStatistics);
+    }
+
     @Activate
     protected void activate(Map<String, Object> configProperties) {
         synchronized (this) {
@@ -828,6 +1094,7 @@ public class ModbusManagerImpl implements ModbusManager {
             if (connectionPool == null) {
                 constructConnectionPool();
             }
+            readPlanner = createReadPlanner(configProperties);
             ScheduledExecutorService scheduledThreadPoolExecutor = this.scheduledThreadPoolExecutor;
             if (scheduledThreadPoolExecutor == null) {
                 this.scheduledThreadPoolExecutor = scheduledThreadPoolExecutor = ThreadPoolManager
@@ -842,6 +1109,24 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    private @Nullable ModbusReadPlanner createReadPlanner(@Nullable Map<String, Object> configProperties) {
+        Object maxGap = configProperties == null ? null : configProperties.get(CONFIG_READ_COALESCING_MAX_GAP);
+        if (maxGap == null) {
+            return null;
+        }
+        try {
+            int gap = Integer.parseInt(maxGap.toString().trim());
+            if (gap < 0) {
+                return null;
+            }
+            logger.info("Merging regular polls with gaps of at most {} registers or bits", gap);
+            return new ModbusReadPlanner(gap);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} '{}', not merging regular polls", CONFIG_READ_COALESCING_MAX_GAP, maxGap);
+            return null;
+        }
+    }
+
     @Deactivate
     protected void deactivate() {
         synchronized (this) {
@@ -855,6 +1140,11 @@ public class ModbusManagerImpl implements ModbusManager {
                 connectionPool.close();
                 this.connectionPool = connectionPool = null;
             }
+            pollGroups.clear();
+            pipelinedConnections.values().forEach(ModbusPipelinedTCPConnection::resetConnection);
+            pipelinedConnections.clear();
+            dispatchers.values().forEach(ModbusEndpointDispatcher::clear);
+            dispatchers.clear();
 
             if (monitorFuture != null) {
                 monitorFuture.cancel(true);
@@ -898,6 +1188,15 @@ public class ModbusManagerImpl implements ModbusManager {
                             executor.getQueue().size());
                 }
             }
+            dispatchers.forEach((endpoint, dispatcher) -> {
+                ModbusEndpointDispatcher.Statistics statistics = dispatcher.getStatistics();
+                pollMonitorLogger.trace("POLL MONITOR: endpoint {} queue: {}", endpoint, statistics);
+                if (statistics.getQueueDepth() >= WARN_QUEUE_SIZE) {
+                    pollMonitorLogger.warn(
+                            "Many ({}) operations queued for endpoint {}! The slave cannot keep up with the requests.",
+                            statistics.getQueueDepth(), endpoint);
+                }
+            });
 
             pollMonitorLogger.trace("</POLL MONITOR>");
         }
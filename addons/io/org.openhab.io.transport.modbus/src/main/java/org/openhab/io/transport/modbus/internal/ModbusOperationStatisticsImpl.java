@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.ModbusOperationStatistics;
+
+/**
+ * Thread-safe implementation of {@link ModbusOperationStatistics}, updated with the timings of
+ * {@link AggregateStopWatch}
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusOperationStatisticsImpl implements ModbusOperationStatistics {
+
+    /**
+     * Number of operations the timing percentiles are computed from
+     */
+    static final int RECENT_OPERATIONS = 256;
+
+    /**
+     * Timings of the most recent operations. Slaves are polled at most a few times per second, so the timings are
+     * kept as they are and percentiles are exact, and they show how the slave behaves now rather than since startup.
+     */
+    private static class RecentTimings {
+        private final long[] values = new long[RECENT_OPERATIONS];
+        private int size;
+        private int next;
+
+        synchronized void record(long millis) {
+            values[next] = millis;
+            next = (next + 1) % values.length;
+            if (size < values.length) {
+                size++;
+            }
+        }
+
+        synchronized long getPercentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(size * percentile / 100.0);
+            return sorted[Math.min(size - 1, Math.max(0, rank - 1))];
+        }
+    }
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder connectionResets = new LongAdder();
+    private final Map<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final RecentTimings totalTime = new RecentTimings();
+    private final RecentTimings transactionTime = new RecentTimings();
+
+    /**
+     * Record an executed operation
+     *
+     * @param timer timings of the operation, with all stop watches suspended
+     * @param tries number of tries used
+     * @param errorType type of the error if the operation failed, otherwise null
+     */
+    public void record(AggregateStopWatch timer, int tries, @Nullable String errorType) {
+        operations.increment();
+        if (tries > 1) {
+            retries.add(tries - 1);
+        }
+        if (errorType != null) {
+            failures.increment();
+            errorsByType.computeIfAbsent(errorType, type -> new LongAdder()).increment();
+        }
+        totalTime.record(timer.total.getTotalTimeMillis());
+        transactionTime.record(timer.transaction.getTotalTimeMillis());
+    }
+
+    public void recordConnectionReset() {
+        connectionResets.increment();
+    }
+
+    @Override
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getConnectionResets() {
+        return connectionResets.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByType() {
+        Map<String, Long> errors = new TreeMap<>();
+        errorsByType.forEach((type, count) -> errors.put(type, count.sum()));
+        return errors;
+    }
+
+    @Override
+    public long getTotalTimePercentileMillis(double percentile) {
+        return totalTime.getPercentile(percentile);
+    }
+
+    @Override
+    public long getTransactionTimePercentileMillis(double percentile) {
+        return transactionTime.getPercentile(percentile);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("ModbusOperationStatistics(operations=").append(getOperations())
+                .append(", failures=").append(getFailures()).append(", retries=").append(getRetries())
+                .append(", connectionResets=").append(getConnectionResets()).append(", total p50=")
+                .append(getTotalTimePercentileMillis(50)).append("ms p99=").append(getTotalTimePercentileMillis(99))
+                .append("ms, transaction p50=").append(getTransactionTimePercentileMillis(50)).append("ms p99=")
+                .append(getTransactionTimePercentileMillis(99)).append("ms, errors=").append(getErrorsByType())
+                .append(')').toString();
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.wimpi.modbus.Modbus;
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.io.ModbusTransport;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+import net.wimpi.modbus.net.ModbusSlaveConnection;
+import net.wimpi.modbus.net.TCPMasterConnection;
+
+/**
+ * Modbus/TCP connection with several outstanding transactions.
+ *
+ * Requests of concurrent callers are written to the same socket without waiting for the previous response. A
+ * dedicated reader thread matches the responses to the requests using the transaction id of the MBAP header, so
+ * responses may arrive in any order. The number of outstanding transactions is limited by a window, and each
+ * transaction has its own timeout: a timed out transaction fails alone, its late response is discarded.
+ *
+ * Unlike pooled connections, the connection is shared by all callers. It is reset only on I/O errors of the socket
+ * or when a whole window of transactions timed out in a row.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusPipelinedTCPConnection implements ModbusSlaveConnection {
+
+    private static final int MAX_TRANSACTION_ID = 0xFFFF;
+
+    /**
+     * Socket and reader thread of one established connection
+     */
+    private class Session {
+        private final TCPMasterConnection connection;
+        private final ModbusTransport transport;
+        private final Thread reader;
+
+        Session(TCPMasterConnection connection) {
+            this.connection = connection;
+            this.transport = connection.getModbusTransport();
+            this.reader = new Thread(this::readResponses, "modbusPipelineReader-" + endpoint);
+            this.reader.setDaemon(true);
+        }
+
+        private void readResponses() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    ModbusResponse response = transport.readResponse();
+                    consecutiveTimeouts.set(0);
+                    CompletableFuture<ModbusResponse> pending = inFlight.remove(response.getTransactionID());
+                    if (pending == null) {
+                        logger.debug("Discarding response with unknown or timed out transaction id {} from {}",
+                                response.getTransactionID(), endpoint);
+                    } else {
+                        pending.complete(response);
+                    }
+                }
+            } catch (ModbusIOException | RuntimeException e) {
+                if (session == this) {
+                    logger.debug("Reading responses from {} failed, resetting the connection: {}", endpoint,
+                            e.getMessage());
+                    resetConnection();
+                }
+            }
+        }
+
+        private void close() {
+            reader.interrupt();
+            connection.close();
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusPipelinedTCPConnection.class);
+
+    private final ModbusTCPSlaveEndpoint endpoint;
+    private final int maxInFlightTransactions;
+    private final int connectTimeoutMillis;
+    private final long transactionTimeoutMillis;
+    private final Semaphore window;
+    private final Map<Integer, CompletableFuture<ModbusResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+    private final Object writeLock = new Object();
+    // guarded by writeLock
+    private int lastTransactionId;
+    private volatile @Nullable Session session;
+
+    /**
+     *
+     * @param endpoint endpoint to connect to
+     * @param maxInFlightTransactions maximum number of outstanding transactions
+     * @param connectTimeoutMillis connect timeout, zero for system default
+     */
+    public ModbusPipelinedTCPConnection(ModbusTCPSlaveEndpoint endpoint, int maxInFlightTransactions,
+            int connectTimeoutMillis) {
+        this(endpoint, maxInFlightTransactions, connectTimeoutMillis, Modbus.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     *
+     * @param endpoint endpoint to connect to
+     * @param maxInFlightTransactions maximum number of outstanding transactions
+     * @param connectTimeoutMillis connect timeout, zero for system default
+     * @param transactionTimeoutMillis how long to wait for the response of a single transaction
+     */
+    public ModbusPipelinedTCPConnection(ModbusTCPSlaveEndpoint endpoint, int maxInFlightTransactions,
+            int connectTimeoutMillis, long transactionTimeoutMillis) {
+        if (maxInFlightTransactions <= 0) {
+            throw new IllegalArgumentException("maxInFlightTransactions should be positive");
+        }
+        this.endpoint = endpoint;
+        this.maxInFlightTransactions = maxInFlightTransactions;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.transactionTimeoutMillis = transactionTimeoutMillis;
+        this.window = new Semaphore(maxInFlightTransactions, true);
+    }
+
+    public int getMaxInFlightTransactions() {
+        return maxInFlightTransactions;
+    }
+
+    /**
+     * Get the number of transactions waiting for their response
+     *
+     * @return number of outstanding transactions
+     */
+    public int getInFlightTransactions() {
+        return inFlight.size();
+    }
+
+    @Override
+    public synchronized boolean connect() throws Exception {
+        Session session = this.session;
+        if (session != null && session.connection.isConnected()) {
+            return true;
+        }
+        TCPMasterConnection connection = new TCPMasterConnection(InetAddress.getByName(endpoint.getAddress()),
+                endpoint.getPort(), connectTimeoutMillis);
+        // no read timeout on the socket, transactions time out individually
+        connection.setTimeout(0);
+        connection.connect();
+        session = new Session(connection);
+        this.session = session;
+        consecutiveTimeouts.set(0);
+        session.reader.start();
+        logger.debug("Connected pipelined connection to {} with up to {} outstanding transactions", endpoint,
+                maxInFlightTransactions);
+        return true;
+    }
+
+    @Override
+    public synchronized void resetConnection() {
+        Session session = this.session;
+        this.session = null;
+        if (session != null) {
+            session.close();
+        }
+        ModbusIOException error = new ModbusIOException("Connection to " + endpoint + " was reset");
+        inFlight.values().forEach(pending -> pending.completeExceptionally(error));
+        inFlight.clear();
+    }
+
+    @Override
+    public boolean isConnected() {
+        Session session = this.session;
+        return session != null && session.connection.isConnected();
+    }
+
+    /**
+     * Send a request and wait for its response. The transaction id of the request is overwritten.
+     *
+     * @param request request to send
+     * @return response with the same transaction id
+     * @throws ModbusIOException on I/O errors, and when no response was received in time
+     */
+    public ModbusResponse execute(ModbusRequest request) throws ModbusIOException {
+        try {
+            if (!window.tryAcquire(transactionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ModbusIOException(
+                        String.format("All %d transactions to %s outstanding", maxInFlightTransactions, endpoint));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusIOException("Interrupted while waiting for a free transaction slot");
+        }
+        try {
+            CompletableFuture<ModbusResponse> pending = new CompletableFuture<>();
+            int transactionId;
+            synchronized (writeLock) {
+                Session session = this.session;
+                if (session == null) {
+                    throw new ModbusIOException("Not connected to " + endpoint);
+                }
+                transactionId = nextTransactionId();
+                request.setTransactionID(transactionId);
+                inFlight.put(transactionId, pending);
+                try {
+                    session.transport.writeMessage(request);
+                } catch (ModbusIOException e) {
+                    inFlight.remove(transactionId);
+                    resetConnection();
+                    throw e;
+                }
+            }
+            try {
+                return pending.get(transactionTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (consecutiveTimeouts.incrementAndGet() >= maxInFlightTransactions) {
+                    logger.debug("{} transactions to {} timed out in a row, resetting the connection",
+                            consecutiveTimeouts.get(), endpoint);
+                    resetConnection();
+                }
+                throw new ModbusIOException(String.format("No response to transaction %d from %s within %d ms",
+                        transactionId, endpoint, transactionTimeoutMillis));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ModbusIOException) {
+                    throw (ModbusIOException) cause;
+                }
+                throw new ModbusIOException(String.valueOf(cause));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ModbusIOException("Interrupted while waiting for response");
+            } finally {
+                inFlight.remove(transactionId);
+            }
+        } finally {
+            window.release();
+        }
+    }
+
+    /**
+     * Must be called while holding writeLock
+     */
+    private int nextTransactionId() {
+        do {
+            lastTransactionId = lastTransactionId >= MAX_TRANSACTION_ID ? 1 : lastTransactionId + 1;
+        } while (inFlight.containsKey(lastTransactionId));
+        return lastTransactionId;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("ModbusPipelinedTCPConnection(endpoint=").append(endpoint)
+                .append(", maxInFlightTransactions=").append(maxInFlightTransactions).append(", connected=")
+                .append(isConnected()).append(')').toString();
+    }
+}
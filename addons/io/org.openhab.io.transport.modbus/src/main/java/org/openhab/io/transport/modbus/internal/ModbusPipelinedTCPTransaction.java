@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import net.wimpi.modbus.ModbusException;
+import net.wimpi.modbus.ModbusSlaveException;
+import net.wimpi.modbus.io.ModbusTransaction;
+import net.wimpi.modbus.msg.ExceptionResponse;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+
+/**
+ * Transaction executed over a {@link ModbusPipelinedTCPConnection}
+ *
+ * Retries are not implemented here, they are handled by the manager just like with the other transaction types.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusPipelinedTCPTransaction implements ModbusTransaction {
+
+    private final ModbusPipelinedTCPConnection connection;
+    private @Nullable ModbusRequest request;
+    private @Nullable ModbusResponse response;
+    private int retries;
+    private long retryDelayMillis;
+    private boolean checkingValidity;
+
+    public ModbusPipelinedTCPTransaction(ModbusPipelinedTCPConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void setRequest(@Nullable ModbusRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public @Nullable ModbusRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public @Nullable ModbusResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public int getTransactionID() {
+        ModbusRequest request = this.request;
+        return request == null ? 0 : request.getTransactionID();
+    }
+
+    @Override
+    public void setRetries(int retries) {
+        this.retries = retries;
+    }
+
+    @Override
+    public int getRetries() {
+        return retries;
+    }
+
+    @Override
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    @Override
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    @Override
+    public void setCheckingValidity(boolean checkingValidity) {
+        this.checkingValidity = checkingValidity;
+    }
+
+    @Override
+    public boolean isCheckingValidity() {
+        return checkingValidity;
+    }
+
+    @Override
+    public void execute() throws ModbusException {
+        ModbusRequest request = this.request;
+        if (request == null) {
+            throw new ModbusException("No request set");
+        }
+        ModbusResponse response = connection.execute(request);
+        this.response = response;
+        if (response instanceof ExceptionResponse) {
+            throw new ModbusSlaveException(((ExceptionResponse) response).getExceptionCode());
+        }
+    }
+}
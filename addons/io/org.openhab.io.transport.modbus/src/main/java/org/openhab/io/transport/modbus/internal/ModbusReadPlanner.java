@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.PollTask;
+
+/**
+ * Plans the reads of poll tasks by merging compatible tasks into larger reads.
+ *
+ * Poll tasks are compatible when they share the endpoint, unit id and function code. Sorted by start address, a task
+ * is merged with its predecessor if at most <code>maxGap</code> unrequested registers (or bits) lie between them and
+ * the merged read does not exceed the protocol limits of 125 registers or 2000 bits per request.
+ *
+ * Note that registers in the gaps are read as well, so gaps should only be allowed if the slave accepts reads of them.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusReadPlanner {
+
+    /**
+     * Maximum number of registers in a single read request (function codes 3 and 4)
+     */
+    public static final int MAX_REGISTERS_PER_READ = 125;
+
+    /**
+     * Maximum number of coils or discrete inputs in a single read request (function codes 1 and 2)
+     */
+    public static final int MAX_BITS_PER_READ = 2000;
+
+    private final int maxGap;
+
+    /**
+     *
+     * @param maxGap maximum number of unrequested registers (or bits) between two merged reads
+     */
+    public ModbusReadPlanner(int maxGap) {
+        if (maxGap < 0) {
+            throw new IllegalArgumentException("maxGap should be non-negative");
+        }
+        this.maxGap = maxGap;
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    /**
+     * Returns the maximum number of registers or bits a single read with the given function code may request
+     *
+     * @param functionCode function code of the read
+     * @return maximum data length
+     */
+    public static int getMaxDataLength(ModbusReadFunctionCode functionCode) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_INPUT_DISCRETES:
+                return MAX_BITS_PER_READ;
+            default:
+                return MAX_REGISTERS_PER_READ;
+        }
+    }
+
+    /**
+     * Plan the reads for the given poll tasks
+     *
+     * @param tasks poll tasks to plan
+     * @return poll tasks to execute instead of the given ones. Tasks which could not be merged are returned as is,
+     *         merged tasks are returned as {@link CoalescedPollTask}
+     */
+    public List<PollTask> plan(Collection<PollTask> tasks) {
+        Map<GroupKey, List<PollTask>> groups = new LinkedHashMap<>();
+        for (PollTask task : tasks) {
+            groups.computeIfAbsent(new GroupKey(task), key -> new ArrayList<>()).add(task);
+        }
+
+        List<PollTask> planned = new ArrayList<>(tasks.size());
+        for (List<PollTask> group : groups.values()) {
+            group.sort(Comparator.comparingInt((PollTask task) -> task.getRequest().getReference())
+                    .thenComparingInt(task -> task.getRequest().getDataLength()));
+            int maxLength = getMaxDataLength(group.get(0).getRequest().getFunctionCode());
+
+            List<PollTask> block = new ArrayList<>();
+            int blockStart = 0;
+            int blockEnd = 0;
+            for (PollTask task : group) {
+                ModbusReadRequestBlueprint request = task.getRequest();
+                int start = request.getReference();
+                int end = start + request.getDataLength();
+                boolean fits = Math.max(blockEnd, end) - blockStart <= maxLength;
+                if (!block.isEmpty() && start - blockEnd <= maxGap && fits) {
+                    block.add(task);
+                    blockEnd = Math.max(blockEnd, end);
+                    continue;
+                }
+                addBlock(planned, block, blockStart, blockEnd);
+                block = new ArrayList<>();
+                block.add(task);
+                blockStart = start;
+                blockEnd = end;
+            }
+            addBlock(planned, block, blockStart, blockEnd);
+        }
+        return planned;
+    }
+
+    private static void addBlock(List<PollTask> planned, List<PollTask> block, int start, int end) {
+        if (block.size() == 1) {
+            planned.add(block.get(0));
+        } else if (block.size() > 1) {
+            planned.add(new CoalescedPollTask(block, start, end - start));
+        }
+    }
+
+    /**
+     * Tasks with equal keys can be merged
+     */
+    private static class GroupKey {
+        private final Object endpoint;
+        private final int unitId;
+        private final ModbusReadFunctionCode functionCode;
+
+        GroupKey(PollTask task) {
+            endpoint = task.getEndpoint();
+            unitId = task.getRequest().getUnitID();
+            functionCode = task.getRequest().getFunctionCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, unitId, functionCode);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof GroupKey)) {
+                return false;
+            }
+            GroupKey other = (GroupKey) obj;
+            return endpoint.equals(other.endpoint) && unitId == other.unitId && functionCode == other.functionCode;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal.console;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.openhab.io.transport.modbus.ModbusManager;
+import org.openhab.io.transport.modbus.ModbusOperationStatistics;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands for inspecting the operation statistics of the Modbus transport
+ *
+ * Entries are sorted by the 99th percentile of the total operation time, slowest first.
+ *
+ * @author agent - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+@NonNullByDefault
+public class ModbusCommandExtension extends AbstractConsoleCommandExtension {
+
+    private static final String SUBCMD_ENDPOINTS = "endpoints";
+    private static final String SUBCMD_POLLS = "polls";
+
+    private @Nullable ModbusManager manager;
+
+    public ModbusCommandExtension() {
+        super("modbus", "Show statistics of the Modbus transport.");
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        ModbusManager manager = this.manager;
+        if (args.length != 1 || manager == null) {
+            printUsage(console);
+            return;
+        }
+        switch (args[0]) {
+            case SUBCMD_ENDPOINTS:
+                print(console, manager.getEndpointStatistics());
+                break;
+            case SUBCMD_POLLS:
+                print(console, manager.getRegularPollStatistics());
+                break;
+            default:
+                console.println("Unknown command '" + args[0] + "'");
+                printUsage(console);
+                break;
+        }
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Arrays.asList(buildCommandUsage(SUBCMD_ENDPOINTS, "show operation statistics per endpoint"),
+                buildCommandUsage(SUBCMD_POLLS, "show operation statistics per regular poll"));
+    }
+
+    private void print(Console console, Map<?, ModbusOperationStatistics> statistics) {
+        if (statistics.isEmpty()) {
+            console.println("No operations executed");
+            return;
+        }
+        List<Entry<?, ModbusOperationStatistics>> entries = new ArrayList<>(statistics.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Entry<?, ModbusOperationStatistics> entry) -> entry.getValue().getTotalTimePercentileMillis(99))
+                .reversed());
+        for (Entry<?, ModbusOperationStatistics> entry : entries) {
+            ModbusOperationStatistics value = entry.getValue();
+            console.println(entry.getKey().toString());
+            console.println(String.format("  operations: %d, failures: %d, retries: %d, connection resets: %d",
+                    value.getOperations(), value.getFailures(), value.getRetries(), value.getConnectionResets()));
+            console.println(String.format("  total time: p50 %d ms, p99 %d ms; transaction time: p50 %d ms, "
+                    + "p99 %d ms", value.getTotalTimePercentileMillis(50), value.getTotalTimePercentileMillis(99),
+                    value.getTransactionTimePercentileMillis(50), value.getTransactionTimePercentileMillis(99)));
+            if (!value.getErrorsByType().isEmpty()) {
+                console.println("  errors: " + value.getErrorsByType());
+            }
+        }
+    }
+
+    @Reference
+    protected void setModbusManager(ModbusManager manager) {
+        this.manager = manager;
+    }
+
+    protected void unsetModbusManager(ModbusManager manager) {
+        this.manager = null;
+    }
+}
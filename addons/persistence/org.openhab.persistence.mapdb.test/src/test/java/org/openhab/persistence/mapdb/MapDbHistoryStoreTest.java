@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Operator;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.openhab.persistence.mapdb.internal.MapDbHistoryStore;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbHistoryStoreTest {
+    private DB db;
+    private MapDbHistoryStore store;
+
+    @Before
+    public void setUp() {
+        db = DBMaker.newMemoryDB().make();
+        store = new MapDbHistoryStore(db);
+        for (int i = 0; i < 10; i++) {
+            store.append("number", new DecimalType(i), new Date(1000L * i));
+        }
+        store.append("other", new DecimalType(42), new Date(5000L));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void queryShouldHonorTimeRangeAndOrdering() {
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName("number");
+        filter.setBeginDate(new Date(2000L));
+        filter.setEndDate(new Date(4000L));
+        filter.setOrdering(Ordering.ASCENDING);
+
+        assertThat(values(store.query(filter)), is(equalTo(asList(2, 3, 4))));
+
+        filter.setOrdering(Ordering.DESCENDING);
+        assertThat(values(store.query(filter)), is(equalTo(asList(4, 3, 2))));
+    }
+
+    @Test
+    public void queryShouldHonorPaging() {
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName("number");
+        filter.setOrdering(Ordering.ASCENDING);
+        filter.setPageSize(3);
+        filter.setPageNumber(1);
+
+        assertThat(values(store.query(filter)), is(equalTo(asList(3, 4, 5))));
+    }
+
+    @Test
+    public void queryShouldHonorStateOperator() {
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName("number");
+        filter.setOrdering(Ordering.ASCENDING);
+        filter.setOperator(Operator.GTE);
+        filter.setState(new DecimalType(7));
+
+        assertThat(values(store.query(filter)), is(equalTo(asList(7, 8, 9))));
+    }
+
+    @Test
+    public void removeOlderThanShouldKeepNewerRecordsOfAllItems() {
+        assertThat(store.removeOlderThan(new Date(5000L)), is(5));
+
+        FilterCriteria filter = new FilterCriteria();
+        filter.setItemName("number");
+        filter.setOrdering(Ordering.ASCENDING);
+        assertThat(values(store.query(filter)), is(equalTo(asList(5, 6, 7, 8, 9))));
+
+        filter.setItemName("other");
+        assertThat(values(store.query(filter)), is(equalTo(asList(42))));
+    }
+
+    private static List<Integer> values(List<HistoricItem> items) {
+        List<Integer> values = new ArrayList<>();
+        for (HistoricItem item : items) {
+            values.add(((DecimalType) item.getState()).intValue());
+        }
+        return values;
+    }
+}
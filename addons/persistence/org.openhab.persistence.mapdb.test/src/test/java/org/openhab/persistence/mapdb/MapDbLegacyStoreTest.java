@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbLegacyStore;
+import org.openhab.persistence.mapdb.internal.StateCodec;
+import org.openhab.persistence.mapdb.internal.StateTypeAdapter;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbLegacyStoreTest {
+    // the legacy records keep the timestamp in seconds
+    private static final Date TIMESTAMP = new Date(1_500_000_000_000L);
+
+    private final Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
+            .create();
+
+    private DB db;
+    private Map<String, byte[]> map;
+    private Map<String, String> legacyMap;
+
+    @Before
+    public void setUp() {
+        db = DBMaker.newMemoryDB().make();
+        map = db.createTreeMap("itemStates").valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        legacyMap = db.createTreeMap(MapDbLegacyStore.LEGACY_STORE_NAME).makeOrGet();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void migrateShouldConvertTheLegacyRecords() throws IOException {
+        legacyMap.put("switch", toJson("switch", OnOffType.ON));
+        legacyMap.put("dimmer", toJson("dimmer", PercentType.HUNDRED));
+        legacyMap.put("color", toJson("color", HSBType.GREEN));
+
+        assertThat(new MapDbLegacyStore(db).migrateTo(map), is(equalTo(Collections.emptyList())));
+
+        assertThat(map.size(), is(3));
+        assertMigrated("switch", OnOffType.ON);
+        assertMigrated("dimmer", PercentType.HUNDRED);
+        assertMigrated("color", HSBType.GREEN);
+        assertThat(db.exists(MapDbLegacyStore.LEGACY_STORE_NAME), is(false));
+    }
+
+    @Test
+    public void migrateShouldReportTheRecordsWhichCannotBeConverted() throws IOException {
+        legacyMap.put("switch", toJson("switch", OnOffType.ON));
+        legacyMap.put("malformed", "{\"name\":\"malformed\",");
+        legacyMap.put("unknownType",
+                toJson("unknownType", OnOffType.ON).replace(OnOffType.class.getName(), "org.example.UnknownType"));
+
+        assertThat(new MapDbLegacyStore(db).migrateTo(map), is(equalTo(asList("malformed", "unknownType"))));
+
+        assertThat(map.keySet(), is(equalTo(Collections.singleton("switch"))));
+        assertMigrated("switch", OnOffType.ON);
+        assertThat(db.exists(MapDbLegacyStore.LEGACY_STORE_NAME), is(false));
+    }
+
+    @Test
+    public void migrateShouldKeepNewerRecords() throws IOException {
+        MapDbItem newer = new MapDbItem();
+        newer.setName("switch");
+        newer.setState(OnOffType.OFF);
+        newer.setTimestamp(TIMESTAMP);
+        map.put("switch", StateCodec.encodeItem(newer));
+        legacyMap.put("switch", toJson("switch", OnOffType.ON));
+
+        assertThat(new MapDbLegacyStore(db).migrateTo(map), is(equalTo(Collections.emptyList())));
+
+        assertMigrated("switch", OnOffType.OFF);
+        assertThat(db.exists(MapDbLegacyStore.LEGACY_STORE_NAME), is(false));
+    }
+
+    @Test
+    public void migrateShouldDoNothingWithoutLegacyStore() {
+        db.delete(MapDbLegacyStore.LEGACY_STORE_NAME);
+
+        assertThat(new MapDbLegacyStore(db).migrateTo(map), is(equalTo(Collections.emptyList())));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    /**
+     * Creates a record like previous versions stored it.
+     */
+    private String toJson(String name, State state) {
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setState(state);
+        item.setTimestamp(TIMESTAMP);
+        return mapper.toJson(item);
+    }
+
+    private void assertMigrated(String name, State state) throws IOException {
+        MapDbItem item = StateCodec.decodeItem(name, map.get(name));
+        assertThat(item, is(notNullValue()));
+        assertThat(item.getName(), is(equalTo(name)));
+        assertThat(item.getState(), is(equalTo(state)));
+        assertThat(item.getTimestamp(), is(equalTo(TIMESTAMP)));
+    }
+}
@@ -132,4 +132,19 @@ public class MapDbPersistenceServiceOSGiTest extends JavaOSGiTest {
         assertThat(persistenceService.query(filterByAlias),
                 contains(allOf(hasProperty("name", equalTo(alias)), hasProperty("state", equalTo(state)))));
     }
+
+    @Test
+    public void restoreAllShouldReturnTheLastStateOfAllStoredItems() {
+        String name = "restored";
+        State state = PercentType.ZERO;
+
+        GenericItem item = new DimmerItem(name);
+        item.setState(PercentType.HUNDRED);
+        persistenceService.store(item);
+        item.setState(state);
+        persistenceService.store(item);
+
+        assertThat(persistenceService.restoreAll().get(name),
+                allOf(hasProperty("name", equalTo(name)), hasProperty("state", equalTo(state))));
+    }
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbWriteBehindQueue;
+import org.openhab.persistence.mapdb.internal.MapDbWriteBehindQueue.OverflowPolicy;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class MapDbWriteBehindQueueTest {
+    private ScheduledExecutorService scheduler;
+    private final Map<String, MapDbItem> written = new LinkedHashMap<>();
+    private final AtomicInteger commits = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        // ignore triggered flushes, they are executed explicitly by the tests
+        scheduler = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public void execute(Runnable command) {
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private MapDbWriteBehindQueue createQueue(int capacity, OverflowPolicy policy) {
+        return new MapDbWriteBehindQueue(capacity, capacity, 60000, policy, item -> {
+            synchronized (written) {
+                written.put(item.getName(), item);
+            }
+        }, commits::incrementAndGet, scheduler);
+    }
+
+    private static MapDbItem item(String name, int value) {
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setState(new DecimalType(value));
+        return item;
+    }
+
+    @Test
+    public void repeatedUpdatesShouldBeCoalescedIntoOneCommit() {
+        MapDbWriteBehindQueue queue = createQueue(100, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(item("a", i));
+            queue.offer(item("b", i));
+        }
+
+        assertThat(queue.getQueueDepth(), is(2));
+        assertThat(queue.getCoalescedCount(), is(18L));
+        assertThat(queue.getPending("a").getState(), is(equalTo(new DecimalType(9))));
+
+        queue.flush();
+
+        assertThat(commits.get(), is(1));
+        assertThat(queue.getQueueDepth(), is(0));
+        assertThat(written.get("a").getState(), is(equalTo(new DecimalType(9))));
+        assertThat(written.get("b").getState(), is(equalTo(new DecimalType(9))));
+    }
+
+    @Test
+    public void fullQueueShouldDropOldestUpdate() {
+        MapDbWriteBehindQueue queue = createQueue(2, OverflowPolicy.DROP_OLDEST);
+        queue.offer(item("a", 1));
+        queue.offer(item("b", 1));
+        queue.offer(item("c", 1));
+
+        assertThat(queue.getDroppedCount(), is(1L));
+        assertThat(queue.getPending("a"), is(nullValue()));
+        assertThat(queue.getPending("c"), is(notNullValue()));
+    }
+
+    @Test
+    public void flushAfterStopShouldNotWriteToTheDatabase() {
+        MapDbWriteBehindQueue queue = createQueue(100, OverflowPolicy.BLOCK);
+        queue.offer(item("a", 1));
+        queue.stop();
+
+        assertThat(commits.get(), is(1));
+
+        queue.offer(item("a", 2));
+        queue.flush();
+
+        assertThat(commits.get(), is(1));
+        assertThat(written.get("a").getState(), is(equalTo(new DecimalType(1))));
+    }
+
+    @Test
+    public void stopShouldWaitForRunningFlush() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MapDbWriteBehindQueue queue = new MapDbWriteBehindQueue(100, 100, 60000, OverflowPolicy.BLOCK, item -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, commits::incrementAndGet, scheduler);
+        queue.offer(item("a", 1));
+
+        Thread flush = new Thread(queue::flush);
+        flush.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        Thread stop = new Thread(queue::stop);
+        stop.start();
+        stop.join(200);
+        assertTrue(stop.isAlive());
+
+        release.countDown();
+        stop.join(5000);
+        flush.join(5000);
+        assertFalse(stop.isAlive());
+        assertThat(commits.get(), is(1));
+    }
+}
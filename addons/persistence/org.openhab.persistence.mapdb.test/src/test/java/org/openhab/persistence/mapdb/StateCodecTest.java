@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.library.types.UpDownType;
+import org.eclipse.smarthome.core.library.unit.SmartHomeUnits;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.StateCodec;
+import org.openhab.persistence.mapdb.internal.StateTypeAdapter;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ *
+ * @author agent - Initial contribution
+ */
+public class StateCodecTest {
+    Gson mapper = new GsonBuilder()
+        .registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
+        .create();
+
+    @Test
+    public void encodeDecodeRoundtripShouldRecreateTheEncodedState() throws IOException {
+        assertRoundtrip(OnOffType.ON);
+        assertRoundtrip(OpenClosedType.CLOSED);
+        assertRoundtrip(UpDownType.DOWN);
+        assertRoundtrip(new DecimalType("21.53"));
+        assertRoundtrip(new DecimalType(new BigDecimal("123456789012345678901234567890.123")));
+        assertRoundtrip(PercentType.HUNDRED);
+        assertRoundtrip(HSBType.GREEN);
+        assertRoundtrip(new DateTimeType("2019-01-14T12:30:15.123+0100"));
+        assertRoundtrip(new QuantityType<>("21.5 °C"));
+        assertRoundtrip(new QuantityType<>("50 %"));
+        assertRoundtrip(new QuantityType<>(new BigDecimal("0.25"), SmartHomeUnits.ONE));
+        assertRoundtrip(StringType.valueOf("test"));
+    }
+
+    @Test
+    public void encodedItemShouldBeSmallerThanJson() throws IOException {
+        MapDbItem item = new MapDbItem();
+        item.setName("temperature");
+        item.setState(new DecimalType("21.53"));
+        item.setTimestamp(new Date());
+
+        byte[] record = StateCodec.encodeItem(item);
+        MapDbItem decoded = StateCodec.decodeItem(item.getName(), record);
+
+        assertThat(decoded.getState(), is(equalTo(item.getState())));
+        assertThat(decoded.getTimestamp(), is(equalTo(item.getTimestamp())));
+        assertTrue(record.length < mapper.toJson(item).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void assertRoundtrip(State state) throws IOException {
+        assertThat(StateCodec.decode(StateCodec.encode(state)), is(equalTo(state)));
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.types.State;
+import org.mapdb.BTreeKeySerializer;
+import org.mapdb.DB;
+import org.mapdb.Fun;
+import org.mapdb.Fun.Tuple2;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only history of item states, stored in a MapDB tree map keyed by (item name, timestamp). The states are
+ * encoded by the {@link StateCodec}.
+ * <p>
+ * The composite key keeps all records of one item physically adjacent and ordered by time, so range, paging and
+ * ordering queries are answered by a single sub-map scan without touching any other item.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbHistoryStore {
+
+    private static final String HISTORY_STORE_NAME = "itemHistory";
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbHistoryStore.class);
+
+    private final ConcurrentNavigableMap<Tuple2<String, Long>, byte[]> history;
+
+    public MapDbHistoryStore(DB db) {
+        history = db.createTreeMap(HISTORY_STORE_NAME).keySerializer(BTreeKeySerializer.TUPLE2)
+                .valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+    }
+
+    /**
+     * Appends a state to the history of the given item.
+     * Two updates of the same item within the same millisecond replace each other.
+     *
+     * @param name the item name or alias
+     * @param state the state to store
+     * @param timestamp the time of the update
+     */
+    public void append(String name, State state, Date timestamp) {
+        byte[] record = encode(state);
+        if (record != null) {
+            history.put(Fun.t2(name, timestamp.getTime()), record);
+        }
+    }
+
+    /**
+     * Returns all records matching the given filter, honoring the time range, state operator, ordering and paging.
+     *
+     * @param filter the filter to apply, the item name is mandatory
+     * @return the matching historic items
+     */
+    public List<HistoricItem> query(FilterCriteria filter) {
+        String name = filter.getItemName();
+        if (name == null) {
+            return Collections.emptyList();
+        }
+
+        long begin = filter.getBeginDate() != null ? filter.getBeginDate().getTime() : Long.MIN_VALUE;
+        long end = filter.getEndDate() != null ? filter.getEndDate().getTime() : Long.MAX_VALUE;
+        if (begin > end) {
+            return Collections.emptyList();
+        }
+
+        NavigableMap<Tuple2<String, Long>, byte[]> range = history.subMap(Fun.t2(name, begin), true,
+                Fun.t2(name, end), true);
+        if (filter.getOrdering() == Ordering.DESCENDING) {
+            range = range.descendingMap();
+        }
+
+        int pageSize = filter.getPageSize();
+        long skip = (long) filter.getPageNumber() * pageSize;
+        List<HistoricItem> result = new ArrayList<>(Math.min(pageSize, 64));
+        for (Entry<Tuple2<String, Long>, byte[]> entry : range.entrySet()) {
+            State state = decode(entry.getValue());
+            if (state == null || !StateFilter.matches(filter, state)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(name);
+            item.setState(state);
+            item.setTimestamp(new Date(entry.getKey().b));
+            result.add(item);
+            if (result.size() >= pageSize) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all records older than the given point in time.
+     *
+     * @param cutoff records with a timestamp before this time are removed
+     * @return the number of removed records
+     */
+    public int removeOlderThan(Date cutoff) {
+        long limit = cutoff.getTime();
+        int removed = 0;
+        @Nullable
+        Tuple2<String, Long> key = history.isEmpty() ? null : history.firstKey();
+        while (key != null) {
+            String name = key.a;
+            // records of one item are contiguous, so only the head of each item's range has to be scanned
+            removed += removeAll(history.subMap(Fun.t2(name, Long.MIN_VALUE), true, Fun.t2(name, limit), false));
+            key = history.higherKey(Fun.t2(name, Long.MAX_VALUE));
+        }
+        return removed;
+    }
+
+    private int removeAll(NavigableMap<Tuple2<String, Long>, byte[]> range) {
+        int removed = 0;
+        Iterator<Tuple2<String, Long>> it = range.keySet().iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    private byte @Nullable [] encode(State state) {
+        try {
+            return StateCodec.encode(state);
+        } catch (IOException e) {
+            logger.warn("Couldn't serialize state '{}': {}", state, e.getMessage());
+            return null;
+        }
+    }
+
+    private @Nullable State decode(byte[] record) {
+        try {
+            return StateCodec.decode(record);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Couldn't deserialize history record: {}", e.getMessage());
+            return null;
+        }
+    }
+}
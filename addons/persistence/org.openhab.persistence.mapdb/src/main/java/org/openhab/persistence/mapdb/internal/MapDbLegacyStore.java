@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.types.State;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The map of previous versions, which holds the items as JSON strings. Its records are converted into the binary
+ * records of the {@link StateCodec} once, the map is removed afterwards.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbLegacyStore {
+
+    /** name of the legacy map which holds the items as JSON strings */
+    public static final String LEGACY_STORE_NAME = "itemStore";
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbLegacyStore.class);
+
+    private final DB db;
+
+    public MapDbLegacyStore(DB db) {
+        this.db = db;
+    }
+
+    /**
+     * Converts the records of the legacy map into binary records and removes the legacy map afterwards. Records of
+     * items which are already in the given map are newer and are not converted.
+     * <p>
+     * Records which cannot be converted are logged together with their JSON, so that they can be recovered manually.
+     *
+     * @param map the map of the binary records
+     * @return the names of the items whose records could not be converted
+     */
+    public List<String> migrateTo(Map<String, byte[]> map) {
+        List<String> failed = new ArrayList<>();
+        if (!db.exists(LEGACY_STORE_NAME)) {
+            return failed;
+        }
+        Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter()).create();
+        Map<String, String> legacyMap = db.getTreeMap(LEGACY_STORE_NAME);
+        int migrated = 0;
+        for (Map.Entry<String, String> entry : legacyMap.entrySet()) {
+            String name = entry.getKey();
+            if (map.containsKey(name)) {
+                continue;
+            }
+            Optional<byte[]> record = convert(mapper, name, entry.getValue());
+            if (record.isPresent()) {
+                map.put(name, record.get());
+                migrated++;
+            } else {
+                failed.add(name);
+            }
+        }
+        db.delete(LEGACY_STORE_NAME);
+        db.commit();
+        logger.info("Migrated {} items of the MapDB store to the binary format, {} items could not be migrated",
+                migrated, failed.size());
+        return failed;
+    }
+
+    /**
+     * Converts a JSON record into a binary record, see {@link StateCodec#encodeItem(MapDbItem)}.
+     *
+     * @return the binary record, empty if the JSON record could not be converted
+     */
+    private Optional<byte[]> convert(Gson mapper, String name, String json) {
+        try {
+            MapDbItem item = mapper.<MapDbItem>fromJson(json, MapDbItem.class);
+            if (item != null && item.isValid()) {
+                return Optional.of(StateCodec.encodeItem(item));
+            }
+            logger.warn("Couldn't migrate invalid item '{}' of the MapDB store, dropping record {}", name, json);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Couldn't migrate item '{}' of the MapDB store, dropping record {}: {}", name, json,
+                    e.getMessage());
+        }
+        return Optional.empty();
+    }
+}
@@ -13,13 +13,21 @@
 package org.openhab.persistence.mapdb.internal;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,6 +37,7 @@ import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
 import org.eclipse.smarthome.core.persistence.HistoricItem;
 import org.eclipse.smarthome.core.persistence.PersistenceItemInfo;
 import org.eclipse.smarthome.core.persistence.PersistenceService;
@@ -37,13 +46,13 @@ import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 /**
  * This is the implementation of the MapDB {@link PersistenceService}. To learn
  * more about MapDB please visit their <a
@@ -53,15 +62,40 @@ import com.google.gson.GsonBuilder;
  * @author Martin Kühl - Port to Eclipse SmartHome
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
+@Component(service = { PersistenceService.class,
+        QueryablePersistenceService.class }, configurationPid = "org.openhab.mapdb")
 public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String SERVICE_NAME = "mapdb";
 
+    private static final String CONFIG_HISTORY = "history";
+    private static final String CONFIG_RETENTION_DAYS = "retentionDays";
+    private static final String CONFIG_COMPACTION_INTERVAL = "compactionInterval";
+
+    private static final String CONFIG_COMMIT_INTERVAL = "commitInterval";
+    private static final String CONFIG_COMMIT_BATCH_SIZE = "commitBatchSize";
+    private static final String CONFIG_QUEUE_CAPACITY = "queueCapacity";
+    private static final String CONFIG_QUEUE_OVERFLOW = "queueOverflow";
+
+    private static final String CONFIG_PRELOAD = "preload";
+    private static final String CONFIG_MEMORY_MAPPED = "mmap";
+
+    private static final int DEFAULT_COMPACTION_INTERVAL_HOURS = 24;
+    /** write-behind is opt-in, by default every update is committed on its own */
+    private static final int DEFAULT_COMMIT_INTERVAL_MILLIS = 0;
+    private static final int DEFAULT_COMMIT_BATCH_SIZE = 500;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    /** preloaded states which were not restored within this time are dropped */
+    private static final int RESTORE_CACHE_EXPIRY_MINUTES = 5;
+
     private static final String DB_FOLDER_NAME = ConfigConstants.getUserDataFolder() + File.separator + "persistence" + File.separator + "mapdb";
 
     private static final String DB_FILE_NAME = "storage.mapdb";
 
+    /** name of the map which holds the items as binary records, see {@link StateCodec} */
+    private static final String STORE_NAME = "itemStates";
+
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
     @NonNullByDefault({})
@@ -71,13 +105,25 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
     @NonNullByDefault({})
     private DB db;
     @NonNullByDefault({})
-    private Map<String, String> map;
+    private Map<String, byte[]> map;
+
+    /** holds the item history if the history mode is enabled */
+    private @Nullable MapDbHistoryStore historyStore;
 
-    private transient Gson mapper = new GsonBuilder()
-            .registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
-            .create();
+    private @Nullable ScheduledFuture<?> retentionJob;
 
-    public void activate() {
+    /** coalesces and group-commits updates, null if every update is committed on its own */
+    private @Nullable MapDbWriteBehindQueue writeBehindQueue;
+
+    /** last known states decoded in bulk on startup, entries are handed out once to the restore of each item */
+    private final Map<String, MapDbItem> restoreCache = new ConcurrentHashMap<>();
+
+    private @Nullable ScheduledFuture<?> restoreCacheExpiryJob;
+
+    private volatile long startupRestoreMillis = -1;
+
+    @Activate
+    public void activate(Map<String, Object> config) {
         logger.debug("MapDB persistence service is being activated");
 
         threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
@@ -92,13 +138,74 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         }
 
         File dbFile = new File(DB_FOLDER_NAME, DB_FILE_NAME);
-        db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-        map = db.createTreeMap("itemStore").makeOrGet();
+        DBMaker<?> dbMaker = DBMaker.newFileDB(dbFile).closeOnJvmShutdown();
+        if (getBoolean(config, CONFIG_MEMORY_MAPPED, false)) {
+            dbMaker = dbMaker.mmapFileEnableIfSupported();
+        }
+        db = dbMaker.make();
+        map = db.createTreeMap(STORE_NAME).valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        new MapDbLegacyStore(db).migrateTo(map);
+
+        ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
+        if (getBoolean(config, CONFIG_PRELOAD, true)) {
+            long start = System.nanoTime();
+            restoreCache.putAll(restoreAll());
+            startupRestoreMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            logger.debug("Preloaded {} item states from MapDB in {} ms", restoreCache.size(), startupRestoreMillis);
+            // items which are not restored on startup, e.g. because they are gone, must not be held forever
+            restoreCacheExpiryJob = scheduler.schedule(this::expireRestoreCache, RESTORE_CACHE_EXPIRY_MINUTES,
+                    TimeUnit.MINUTES);
+        }
+
+        int commitInterval = getInteger(config, CONFIG_COMMIT_INTERVAL, DEFAULT_COMMIT_INTERVAL_MILLIS);
+        if (commitInterval > 0) {
+            MapDbWriteBehindQueue.OverflowPolicy overflowPolicy = "dropOldest"
+                    .equalsIgnoreCase(String.valueOf(config.get(CONFIG_QUEUE_OVERFLOW)))
+                            ? MapDbWriteBehindQueue.OverflowPolicy.DROP_OLDEST
+                            : MapDbWriteBehindQueue.OverflowPolicy.BLOCK;
+            MapDbWriteBehindQueue queue = new MapDbWriteBehindQueue(
+                    getInteger(config, CONFIG_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY),
+                    getInteger(config, CONFIG_COMMIT_BATCH_SIZE, DEFAULT_COMMIT_BATCH_SIZE), commitInterval,
+                    overflowPolicy, this::write, () -> db.commit(), scheduler);
+            queue.start();
+            writeBehindQueue = queue;
+            logger.debug("MapDB write-behind enabled, commit interval {} ms", commitInterval);
+        }
+
+        if (getBoolean(config, CONFIG_HISTORY, false)) {
+            historyStore = new MapDbHistoryStore(db);
+            int retentionDays = getInteger(config, CONFIG_RETENTION_DAYS, 0);
+            if (retentionDays > 0) {
+                int interval = getInteger(config, CONFIG_COMPACTION_INTERVAL, DEFAULT_COMPACTION_INTERVAL_HOURS);
+                retentionJob = scheduler.scheduleWithFixedDelay(() -> applyRetention(retentionDays), 1,
+                        Math.max(1, interval), TimeUnit.HOURS);
+            }
+            logger.debug("MapDB history mode enabled, retention {} days", retentionDays);
+        }
         logger.debug("MapDB persistence service is now activated");
     }
 
+    @Deactivate
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
+        ScheduledFuture<?> job = retentionJob;
+        if (job != null) {
+            job.cancel(false);
+            retentionJob = null;
+        }
+        job = restoreCacheExpiryJob;
+        if (job != null) {
+            job.cancel(false);
+            restoreCacheExpiryJob = null;
+        }
+        MapDbWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            queue.stop();
+            logger.debug("MapDB write-behind statistics: {}", queue);
+            writeBehindQueue = null;
+        }
+        historyStore = null;
+        restoreCache.clear();
         if (db != null) {
             db.close();
         }
@@ -117,12 +224,59 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return map.values().stream()
-                .map(this::deserialize)
-                .flatMap(MapDbPersistenceService::streamOptional)
+        // the info only consists of the name, so the stored records don't have to be decoded
+        Set<String> names = new HashSet<>(map.keySet());
+        MapDbWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            for (MapDbItem pending : queue.getPending()) {
+                names.add(pending.getName());
+            }
+        }
+        return names.stream().map(MapDbPersistenceService::createItemInfo)
                 .collect(Collectors.<PersistenceItemInfo>toSet());
     }
 
+    /**
+     * Returns the last known state of all stored items.
+     * <p>
+     * The records are read in one sequential scan of the store and decoded in parallel, which is considerably faster
+     * than one {@link #query(FilterCriteria)} per item.
+     *
+     * @return the last known states, keyed by item name or alias
+     */
+    public Map<String, MapDbItem> restoreAll() {
+        List<Map.Entry<String, byte[]>> records = new ArrayList<>(map.entrySet());
+        Map<String, MapDbItem> items = records.parallelStream()
+                .map(entry -> deserialize(entry.getKey(), entry.getValue()))
+                .flatMap(item -> item.isPresent() ? Stream.of(item.get()) : Stream.empty())
+                .collect(Collectors.toMap(MapDbItem::getName, item -> item));
+        MapDbWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            for (MapDbItem pending : queue.getPending()) {
+                items.put(pending.getName(), pending);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Returns the time it took to preload the last known states on startup.
+     *
+     * @return the duration in milliseconds, -1 if the states were not preloaded
+     */
+    public long getStartupRestoreMillis() {
+        return startupRestoreMillis;
+    }
+
+    /**
+     * Returns the write-behind queue, which exposes queue depth and commit latency metrics.
+     *
+     * @return the write-behind queue or null if write-behind is disabled
+     */
+    public @Nullable MapDbWriteBehindQueue getWriteBehindQueue() {
+        return writeBehindQueue;
+    }
+
     @Override
     public void store(Item item) {
         store(item, item.getName());
@@ -141,50 +295,139 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         logger.debug("store called for {}", alias);
 
         State state = item.getState();
+        Date timestamp = new Date();
         MapDbItem mItem = new MapDbItem();
         mItem.setName(alias);
         mItem.setState(state);
-        mItem.setTimestamp(new Date());
-        String json = serialize(mItem);
-        map.put(alias, json);
-        commit();
+        mItem.setTimestamp(timestamp);
+        MapDbHistoryStore history = historyStore;
+        if (history != null) {
+            history.append(alias, state, timestamp);
+        }
+        restoreCache.remove(alias);
+        MapDbWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            queue.offer(mItem);
+        } else {
+            write(mItem);
+            commit();
+        }
         logger.debug("Stored '{}' with state '{}' in MapDB database", alias, state.toString());
     }
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
+        MapDbHistoryStore history = historyStore;
+        String itemName = filter.getItemName();
+        if (itemName != null && !restoreCache.isEmpty() && (history == null || isLatestStateQuery(filter))) {
+            MapDbItem preloaded = restoreCache.remove(itemName);
+            if (preloaded != null) {
+                return Collections.singletonList(preloaded);
+            }
+        }
+
+        if (history != null) {
+            return history.query(filter);
+        }
+
+        MapDbWriteBehindQueue queue = writeBehindQueue;
+        MapDbItem pending = queue != null && filter.getItemName() != null ? queue.getPending(filter.getItemName())
+                : null;
+        if (pending != null) {
+            return Collections.singletonList(pending);
+        }
+
+        String name = filter.getItemName();
+        byte[] record = name != null ? map.get(name) : null;
+        if (name == null || record == null) {
             return Collections.emptyList();
         }
-        Optional<MapDbItem> item = deserialize(json);
+        Optional<MapDbItem> item = deserialize(name, record);
         if (!item.isPresent()) {
             return Collections.emptyList();
         }
         return Collections.singletonList(item.get());
     }
 
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
+    private void write(MapDbItem item) {
+        try {
+            map.put(item.getName(), StateCodec.encodeItem(item));
+        } catch (IOException e) {
+            logger.warn("Couldn't serialize item '{}': {}", item.getName(), e.getMessage());
+        }
     }
 
-    private Optional<MapDbItem> deserialize(String json) {
-        MapDbItem item = mapper.<MapDbItem>fromJson(json, MapDbItem.class);
-        if (item == null || !item.isValid()) {
+    private Optional<MapDbItem> deserialize(String name, byte[] record) {
+        try {
+            MapDbItem item = StateCodec.decodeItem(name, record);
+            if (item != null && item.isValid()) {
+                return Optional.of(item);
+            }
             logger.warn("Deserialized invalid item: {}", item);
-            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Couldn't deserialize item '{}': {}", name, e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Checks whether the filter asks for the last known state only, like the restore on startup does.
+     */
+    private static boolean isLatestStateQuery(FilterCriteria filter) {
+        return filter.getBeginDate() == null && filter.getEndDate() == null && filter.getState() == null
+                && filter.getPageNumber() == 0 && filter.getPageSize() == 1
+                && filter.getOrdering() == Ordering.DESCENDING;
+    }
+
+    private void expireRestoreCache() {
+        if (!restoreCache.isEmpty()) {
+            logger.debug("Dropping {} preloaded item states which were not restored", restoreCache.size());
+            restoreCache.clear();
         }
-        return Optional.of(item);
+    }
+
+    private static PersistenceItemInfo createItemInfo(String name) {
+        MapDbItem info = new MapDbItem();
+        info.setName(name);
+        return info;
     }
 
     private void commit() {
         threadPool.submit(() -> db.commit());
     }
 
-    private static <T> Stream<T> streamOptional(Optional<T> opt) {
-        if (!opt.isPresent()) {
-            return Stream.empty();
+    private void applyRetention(int retentionDays) {
+        MapDbHistoryStore history = historyStore;
+        if (history == null) {
+            return;
+        }
+        try {
+            Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+            int removed = history.removeOlderThan(cutoff);
+            if (removed > 0) {
+                db.commit();
+                db.compact();
+            }
+            logger.debug("Removed {} history records older than {}", removed, cutoff);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to apply MapDB history retention: {}", e.getMessage());
+        }
+    }
+
+    private static boolean getBoolean(Map<String, Object> config, String key, boolean defaultValue) {
+        Object value = config.get(key);
+        return value != null ? Boolean.parseBoolean(value.toString()) : defaultValue;
+    }
+
+    private static int getInteger(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
         }
-        return Stream.of(opt.get());
     }
 }
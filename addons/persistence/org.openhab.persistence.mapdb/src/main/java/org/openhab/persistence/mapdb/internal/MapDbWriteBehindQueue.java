@@ -0,0 +1,304 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind stage between {@link MapDbPersistenceService#store} and the MapDB database.
+ * <p>
+ * Pending updates are kept per alias, so repeated updates of the same item between two commits are coalesced into a
+ * single write. The queue is flushed as one group followed by a single commit, either when {@code batchSize} distinct
+ * aliases are pending or when the oldest pending update has waited for {@code commitInterval} milliseconds. The commit
+ * interval is therefore the durability window: updates not yet flushed are lost on a crash.
+ * <p>
+ * If the queue holds {@code capacity} distinct aliases, new updates either wait for the next flush
+ * ({@link OverflowPolicy#BLOCK}) or replace the oldest pending update ({@link OverflowPolicy#DROP_OLDEST}).
+ * <p>
+ * Once {@link #stop()} returned, no flush touches the database anymore, so it can be closed.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbWriteBehindQueue {
+
+    /**
+     * Defines what happens to a new update when the queue is full.
+     */
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_OLDEST
+    }
+
+    private static final long MAX_BLOCK_MILLIS = 5000;
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbWriteBehindQueue.class);
+
+    private final Map<String, MapDbItem> pending = new LinkedHashMap<>();
+
+    private final int capacity;
+    private final int batchSize;
+    private final long commitInterval;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<MapDbItem> writer;
+    private final Runnable committer;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean stopped;
+    private @Nullable ScheduledFuture<?> intervalJob;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private volatile long lastCommitNanos;
+    private volatile long maxCommitNanos;
+
+    /**
+     * Creates a new write-behind queue.
+     *
+     * @param capacity maximum number of distinct pending aliases
+     * @param batchSize number of pending aliases that triggers an immediate flush
+     * @param commitInterval maximum time in milliseconds an update stays in the queue
+     * @param overflowPolicy behavior when the queue is full
+     * @param writer writes a single item into the database, without committing
+     * @param committer commits the database
+     * @param scheduler executes the flushes
+     */
+    public MapDbWriteBehindQueue(int capacity, int batchSize, long commitInterval, OverflowPolicy overflowPolicy,
+            Consumer<MapDbItem> writer, Runnable committer, ScheduledExecutorService scheduler) {
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, Math.min(batchSize, this.capacity));
+        this.commitInterval = Math.max(1, commitInterval);
+        this.overflowPolicy = overflowPolicy;
+        this.writer = writer;
+        this.committer = committer;
+        this.scheduler = scheduler;
+    }
+
+    public void start() {
+        intervalJob = scheduler.scheduleWithFixedDelay(this::flush, commitInterval, commitInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic flush and writes all pending updates. Waits for a running flush to finish, flushes which are
+     * triggered afterwards do nothing.
+     */
+    public void stop() {
+        ScheduledFuture<?> job = intervalJob;
+        if (job != null) {
+            job.cancel(false);
+            intervalJob = null;
+        }
+        synchronized (flushLock) {
+            flushPending();
+            stopped = true;
+        }
+        synchronized (pending) {
+            // wake up blocked callers, nothing will make room anymore
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * Adds an update to the queue, replacing any pending update of the same alias.
+     *
+     * @param item the update
+     */
+    public void offer(MapDbItem item) {
+        int size;
+        synchronized (pending) {
+            if (pending.remove(item.getName()) != null) {
+                coalescedCount.incrementAndGet();
+            } else if (pending.size() >= capacity) {
+                makeRoom();
+            }
+            pending.put(item.getName(), item);
+            size = pending.size();
+        }
+        enqueuedCount.incrementAndGet();
+        if (size >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    private void makeRoom() {
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            if (flushScheduled.compareAndSet(false, true)) {
+                scheduler.execute(this::flush);
+            }
+            long deadline = System.currentTimeMillis() + MAX_BLOCK_MILLIS;
+            long remaining = MAX_BLOCK_MILLIS;
+            while (!stopped && pending.size() >= capacity && remaining > 0) {
+                try {
+                    pending.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+            if (pending.size() < capacity) {
+                return;
+            }
+            logger.debug("MapDB write-behind queue still full after waiting, dropping oldest update");
+        }
+        Iterator<MapDbItem> it = pending.values().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the pending update of the given alias, if any.
+     *
+     * @param alias the alias
+     * @return the pending update or null
+     */
+    public @Nullable MapDbItem getPending(String alias) {
+        synchronized (pending) {
+            return pending.get(alias);
+        }
+    }
+
+    /**
+     * Returns a snapshot of all pending updates.
+     *
+     * @return the pending updates
+     */
+    public Collection<MapDbItem> getPending() {
+        synchronized (pending) {
+            return new ArrayList<>(pending.values());
+        }
+    }
+
+    /**
+     * Writes all pending updates into the database and commits them as one group.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (!stopped) {
+                flushPending();
+            }
+        }
+    }
+
+    private void flushPending() {
+        flushScheduled.set(false);
+        Collection<MapDbItem> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.values());
+        }
+
+        long start = System.nanoTime();
+        try {
+            for (MapDbItem item : batch) {
+                writer.accept(item);
+            }
+            committer.run();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to commit {} updates to MapDB: {}", batch.size(), e.getMessage());
+            return;
+        }
+        long duration = System.nanoTime() - start;
+
+        synchronized (pending) {
+            // only remove entries that were not updated again while the batch was written
+            for (MapDbItem item : batch) {
+                pending.remove(item.getName(), item);
+            }
+            pending.notifyAll();
+        }
+
+        writtenCount.addAndGet(batch.size());
+        commitCount.incrementAndGet();
+        totalCommitNanos.addAndGet(duration);
+        lastCommitNanos = duration;
+        maxCommitNanos = Math.max(maxCommitNanos, duration);
+        logger.debug("Committed {} updates to MapDB in {} ms, queue depth {}", batch.size(),
+                TimeUnit.NANOSECONDS.toMillis(duration), getQueueDepth());
+    }
+
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    public long getLastCommitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastCommitNanos);
+    }
+
+    public long getMaxCommitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxCommitNanos);
+    }
+
+    public double getAverageCommitMillis() {
+        long commits = commitCount.get();
+        return commits == 0 ? 0 : totalCommitNanos.get() / 1_000_000.0 / commits;
+    }
+
+    @Override
+    public String toString() {
+        return "MapDbWriteBehindQueue [depth=" + getQueueDepth() + ", enqueued=" + getEnqueuedCount()
+                + ", coalesced=" + getCoalescedCount() + ", dropped=" + getDroppedCount() + ", written="
+                + getWrittenCount() + ", commits=" + getCommitCount() + ", lastCommitMillis="
+                + getLastCommitMillis() + ", maxCommitMillis=" + getMaxCommitMillis() + ", avgCommitMillis="
+                + getAverageCommitMillis() + "]";
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.measure.Unit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.library.types.UpDownType;
+import org.eclipse.smarthome.core.library.unit.SmartHomeUnits;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.TypeParser;
+import org.eclipse.smarthome.core.types.util.UnitUtils;
+
+/**
+ * Compact, versioned binary encoding of {@link State} values and {@link MapDbItem}s.
+ * <p>
+ * Every record starts with a format version byte followed by a type tag. The common state types are written in a
+ * dedicated binary form, all other types fall back to their class name and {@link State#toFullString()}, so any
+ * state can be stored.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public final class StateCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_GENERIC = 0;
+    private static final byte TAG_DECIMAL = 1;
+    private static final byte TAG_PERCENT = 2;
+    private static final byte TAG_QUANTITY = 3;
+    private static final byte TAG_ON_OFF = 4;
+    private static final byte TAG_OPEN_CLOSED = 5;
+    private static final byte TAG_UP_DOWN = 6;
+    private static final byte TAG_HSB = 7;
+    private static final byte TAG_DATE_TIME = 8;
+    private static final byte TAG_STRING = 9;
+
+    private StateCodec() {
+        // utility class
+    }
+
+    /**
+     * Encodes a state into a binary record.
+     *
+     * @param state the state
+     * @return the binary record
+     * @throws IOException if the state cannot be encoded
+     */
+    public static byte[] encode(State state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(24);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        writeState(out, state);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a state from a binary record.
+     *
+     * @param record the binary record
+     * @return the decoded state, null if the state could not be parsed
+     * @throws IOException if the record is malformed
+     */
+    public static @Nullable State decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        checkVersion(in.readByte());
+        return readState(in);
+    }
+
+    /**
+     * Encodes an item, i.e. its timestamp and state, into a binary record. The name is not part of the record since it
+     * is used as key.
+     *
+     * @param item the item
+     * @return the binary record
+     * @throws IOException if the item cannot be encoded
+     */
+    public static byte[] encodeItem(MapDbItem item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeLong(item.getTimestamp().getTime());
+        writeState(out, item.getState());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes an item from a binary record.
+     *
+     * @param name the name of the item, i.e. the key of the record
+     * @param record the binary record
+     * @return the decoded item, null if the state could not be parsed
+     * @throws IOException if the record is malformed
+     */
+    public static @Nullable MapDbItem decodeItem(String name, byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        checkVersion(in.readByte());
+        long timestamp = in.readLong();
+        State state = readState(in);
+        if (state == null) {
+            return null;
+        }
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setTimestamp(new Date(timestamp));
+        item.setState(state);
+        return item;
+    }
+
+    private static void checkVersion(byte version) throws IOException {
+        if (version != VERSION) {
+            throw new IOException("Unsupported record version " + version);
+        }
+    }
+
+    private static void writeState(DataOutput out, State state) throws IOException {
+        // exact class checks, so subclasses are not narrowed to their super class
+        Class<?> type = state.getClass();
+        if (type == HSBType.class) {
+            HSBType hsb = (HSBType) state;
+            out.writeByte(TAG_HSB);
+            writeDecimal(out, hsb.getHue().toBigDecimal());
+            writeDecimal(out, hsb.getSaturation().toBigDecimal());
+            writeDecimal(out, hsb.getBrightness().toBigDecimal());
+        } else if (type == PercentType.class) {
+            out.writeByte(TAG_PERCENT);
+            writeDecimal(out, ((PercentType) state).toBigDecimal());
+        } else if (type == DecimalType.class) {
+            out.writeByte(TAG_DECIMAL);
+            writeDecimal(out, ((DecimalType) state).toBigDecimal());
+        } else if (type == QuantityType.class) {
+            QuantityType<?> quantity = (QuantityType<?>) state;
+            out.writeByte(TAG_QUANTITY);
+            writeDecimal(out, quantity.toBigDecimal());
+            // the symbol of dimensionless quantities is empty, so it is written on its own
+            writeString(out, SmartHomeUnits.ONE.equals(quantity.getUnit()) ? "" : quantity.getUnit().toString());
+        } else if (state instanceof OnOffType) {
+            out.writeByte(TAG_ON_OFF);
+            out.writeByte(((OnOffType) state).ordinal());
+        } else if (state instanceof OpenClosedType) {
+            out.writeByte(TAG_OPEN_CLOSED);
+            out.writeByte(((OpenClosedType) state).ordinal());
+        } else if (state instanceof UpDownType) {
+            out.writeByte(TAG_UP_DOWN);
+            out.writeByte(((UpDownType) state).ordinal());
+        } else if (type == DateTimeType.class) {
+            ZonedDateTime dateTime = ((DateTimeType) state).getZonedDateTime();
+            out.writeByte(TAG_DATE_TIME);
+            out.writeLong(dateTime.toInstant().toEpochMilli());
+            writeString(out, dateTime.getZone().getId());
+        } else if (type == StringType.class) {
+            out.writeByte(TAG_STRING);
+            writeString(out, state.toFullString());
+        } else {
+            out.writeByte(TAG_GENERIC);
+            writeString(out, state.getClass().getName());
+            writeString(out, state.toFullString());
+        }
+    }
+
+    private static @Nullable State readState(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_DECIMAL:
+                return new DecimalType(readDecimal(in));
+            case TAG_PERCENT:
+                return new PercentType(readDecimal(in));
+            case TAG_QUANTITY:
+                return new QuantityType<>(readDecimal(in), readUnit(in));
+            case TAG_ON_OFF:
+                return OnOffType.values()[in.readByte()];
+            case TAG_OPEN_CLOSED:
+                return OpenClosedType.values()[in.readByte()];
+            case TAG_UP_DOWN:
+                return UpDownType.values()[in.readByte()];
+            case TAG_HSB:
+                return new HSBType(new DecimalType(readDecimal(in)), new PercentType(readDecimal(in)),
+                        new PercentType(readDecimal(in)));
+            case TAG_DATE_TIME:
+                Instant instant = Instant.ofEpochMilli(in.readLong());
+                return new DateTimeType(ZonedDateTime.ofInstant(instant, ZoneId.of(readString(in))));
+            case TAG_STRING:
+                return new StringType(readString(in));
+            case TAG_GENERIC:
+                return parseGeneric(readString(in), readString(in));
+            default:
+                throw new IOException("Unknown state type tag " + tag);
+        }
+    }
+
+    private static Unit<?> readUnit(DataInput in) throws IOException {
+        String symbol = readString(in);
+        if (symbol.isEmpty()) {
+            return SmartHomeUnits.ONE;
+        }
+        Unit<?> unit = UnitUtils.parseUnit(symbol);
+        if (unit == null) {
+            throw new IOException("Unknown unit " + symbol);
+        }
+        return unit;
+    }
+
+    private static @Nullable State parseGeneric(String valueTypeName, String valueAsString) throws IOException {
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends State> valueType = (Class<? extends State>) Class.forName(valueTypeName);
+            return TypeParser.parseState(Collections.singletonList(valueType), valueAsString);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown state type " + valueTypeName, e);
+        }
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            // fast path for all values that fit into a long, the sign of the length tells the layouts apart
+            out.writeByte(-1);
+            out.writeLong(unscaled.longValue());
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            if (bytes.length > Byte.MAX_VALUE) {
+                throw new IOException("Decimal value too large: " + value);
+            }
+            out.writeByte(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        int length = in.readByte();
+        BigInteger unscaled;
+        if (length < 0) {
+            unscaled = BigInteger.valueOf(in.readLong());
+        } else {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            unscaled = new BigInteger(bytes);
+        }
+        return new BigDecimal(unscaled, in.readInt());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
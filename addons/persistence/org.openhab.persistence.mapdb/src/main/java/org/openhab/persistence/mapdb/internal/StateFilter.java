@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.math.BigDecimal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Operator;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * Evaluates the state condition ({@link FilterCriteria#getOperator()} and {@link FilterCriteria#getState()}) of a
+ * filter against a stored state.
+ * <p>
+ * Numeric states are compared by value, all other states only support {@link Operator#EQ} and {@link Operator#NEQ}.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public final class StateFilter {
+
+    private StateFilter() {
+        // utility class
+    }
+
+    /**
+     * Checks whether the given state fulfills the state condition of the filter.
+     *
+     * @param filter the filter
+     * @param state the stored state
+     * @return true if the filter has no state condition or the state fulfills it
+     */
+    public static boolean matches(FilterCriteria filter, State state) {
+        State expected = filter.getState();
+        if (expected == null) {
+            return true;
+        }
+        Operator operator = filter.getOperator();
+
+        BigDecimal actualValue = toNumber(state);
+        BigDecimal expectedValue = toNumber(expected);
+        if (actualValue != null && expectedValue != null) {
+            int cmp = actualValue.compareTo(expectedValue);
+            switch (operator) {
+                case EQ:
+                    return cmp == 0;
+                case NEQ:
+                    return cmp != 0;
+                case GT:
+                    return cmp > 0;
+                case GTE:
+                    return cmp >= 0;
+                case LT:
+                    return cmp < 0;
+                case LTE:
+                    return cmp <= 0;
+                default:
+                    return false;
+            }
+        }
+
+        switch (operator) {
+            case EQ:
+                return state.equals(expected);
+            case NEQ:
+                return !state.equals(expected);
+            default:
+                return false;
+        }
+    }
+
+    private static @Nullable BigDecimal toNumber(State state) {
+        if (state instanceof DecimalType) {
+            return ((DecimalType) state).toBigDecimal();
+        }
+        if (state instanceof QuantityType) {
+            return ((QuantityType<?>) state).toBigDecimal();
+        }
+        return null;
+    }
+}
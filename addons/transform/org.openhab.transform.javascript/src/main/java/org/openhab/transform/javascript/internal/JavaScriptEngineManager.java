@@ -13,13 +13,18 @@
 package org.openhab.transform.javascript.internal;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.script.Bindings;
 import javax.script.Compilable;
 import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
@@ -27,53 +32,145 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.transform.TransformationException;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Simple cache for compiled JavaScript files.
+ * Cache for JavaScript files and a bounded pool of script engines evaluating them.
+ * <p>
+ * Script engines are not thread-safe, so every evaluation borrows an engine from the pool and evaluates the script
+ * compiled by that engine with fresh bindings. Transformations therefore run in parallel up to the pool size. The
+ * sources and the compiled scripts are kept in concurrent maps, so cached scripts are looked up without locking.
  *
  * @author Thomas Kordelle - pre compiled scripts
  *
  */
 @NonNullByDefault
-@Component(service = JavaScriptEngineManager.class)
+@Component(service = JavaScriptEngineManager.class, configurationPid = "org.openhab.transform.javascript")
 public class JavaScriptEngineManager {
 
+    private static final String CONFIG_ENGINE_POOL_SIZE = "enginePoolSize";
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
     private final Logger logger = LoggerFactory.getLogger(JavaScriptEngineManager.class);
     private final ScriptEngineManager manager = new ScriptEngineManager();
-    /* keep memory foot print low. max 2 concurrent threads are estimated */
-    private final Map<String, CompiledScript> compiledScriptMap = new ConcurrentHashMap<>(4, 0.5f, 2);
+
+    /* the sources of the loaded scripts, a new instance is created whenever a file is reloaded */
+    private final Map<String, ScriptSource> sources = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    private int poolSize = defaultPoolSize();
+    private BlockingQueue<PooledEngine> idleEngines = new ArrayBlockingQueue<>(poolSize);
+    private final AtomicInteger createdEngines = new AtomicInteger();
+
+    @Activate
+    protected void activate(@Nullable Map<String, Object> config) {
+        Object value = config == null ? null : config.get(CONFIG_ENGINE_POOL_SIZE);
+        if (value != null) {
+            try {
+                poolSize = Math.max(1, Integer.parseInt(value.toString().trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid JavaScript engine pool size '{}', using {}", value, poolSize);
+            }
+        }
+        idleEngines = new ArrayBlockingQueue<>(poolSize);
+        createdEngines.set(0);
+        logger.debug("JavaScript engine pool size is {}", poolSize);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        latencies.forEach((filename, histogram) -> logger.debug("JavaScript {}: {}", filename, histogram));
+        idleEngines.clear();
+        sources.clear();
+    }
+
+    private static int defaultPoolSize() {
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
 
     /**
-     * Get a pre compiled script {@link CompiledScript} from cache. If it is not in the cache, then load it from
-     * storage and put a pre compiled version into the cache.
+     * Evaluates a script with the given input. The script is loaded from storage and compiled if it is not yet in the
+     * cache.
      *
-     * @param filename name of the JavaScript file to load
-     * @return a pre compiled script {@link CompiledScript}
-     * @throws TransformationException if compile of JavaScript failed
+     * @param filename name of the JavaScript file to evaluate
+     * @param input the value of the 'input' variable
+     * @return the result of the script
+     * @throws TransformationException if the script could not be loaded, compiled or evaluated
      */
-    protected CompiledScript getScript(final String filename) throws TransformationException {
-        synchronized (compiledScriptMap) {
-            if (compiledScriptMap.containsKey(filename)) {
-                logger.debug("Loading JavaScript {} from cache.", filename);
-                return compiledScriptMap.get(filename);
-            } else {
-                final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
-                logger.debug("Loading script {} from storage ", path);
-                try (final Reader reader = new InputStreamReader(new FileInputStream(path))) {
-                    final ScriptEngine engine = manager.getEngineByName("javascript");
-                    final CompiledScript cScript = ((Compilable) engine).compile(reader);
-                    logger.debug("Putting compiled JavaScript {} to cache.", cScript);
-                    compiledScriptMap.put(filename, cScript);
-                    return cScript;
-                } catch (IOException | ScriptException e) {
-                    throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(),
-                            e);
-                }
+    protected @Nullable Object evaluate(final String filename, final String input) throws TransformationException {
+        final ScriptSource source = getSource(filename);
+        final PooledEngine engine = acquire();
+        final long startTime = System.nanoTime();
+        try {
+            final CompiledScript cScript = engine.getScript(filename, source);
+            final Bindings bindings = engine.engine.createBindings();
+            bindings.put("input", input);
+            return cScript.eval(bindings);
+        } catch (ScriptException e) {
+            throw new TransformationException("An error occurred while executing script. " + e.getMessage(), e);
+        } finally {
+            release(engine);
+            latencies.computeIfAbsent(filename, name -> new LatencyHistogram()).record(System.nanoTime() - startTime);
+        }
+    }
+
+    private ScriptSource getSource(final String filename) throws TransformationException {
+        ScriptSource source = sources.get(filename);
+        if (source != null) {
+            logger.debug("Loading JavaScript {} from cache.", filename);
+            return source;
+        }
+
+        final String path = TransformationScriptWatcher.TRANSFORM_FOLDER + File.separator + filename;
+        logger.debug("Loading script {} from storage ", path);
+        try {
+            source = new ScriptSource(new String(Files.readAllBytes(Paths.get(path))));
+        } catch (IOException e) {
+            throw new TransformationException("An error occurred while loading JavaScript. " + e.getMessage(), e);
+        }
+        // if another thread loaded the file concurrently, both sources are equal and the first one wins
+        ScriptSource previous = sources.putIfAbsent(filename, source);
+        return previous != null ? previous : source;
+    }
+
+    private PooledEngine acquire() throws TransformationException {
+        PooledEngine engine = idleEngines.poll();
+        if (engine != null) {
+            return engine;
+        }
+        if (createdEngines.incrementAndGet() <= poolSize) {
+            final ScriptEngine scriptEngine = manager.getEngineByName("javascript");
+            if (scriptEngine == null) {
+                createdEngines.decrementAndGet();
+                throw new TransformationException("No JavaScript engine available.");
             }
+            logger.debug("Created JavaScript engine {} of {}", createdEngines.get(), poolSize);
+            return new PooledEngine(scriptEngine);
+        }
+        createdEngines.decrementAndGet();
+
+        try {
+            engine = idleEngines.poll(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransformationException("Interrupted while waiting for a JavaScript engine.", e);
+        }
+        if (engine == null) {
+            throw new TransformationException("Timed out waiting for a JavaScript engine.");
+        }
+        return engine;
+    }
+
+    private void release(PooledEngine engine) {
+        if (!idleEngines.offer(engine)) {
+            // the pool was reconfigured in the meantime
+            logger.trace("Discarding JavaScript engine {}", engine);
         }
     }
 
@@ -84,6 +181,62 @@ public class JavaScriptEngineManager {
      */
     protected void removeFromCache(String fileName) {
         logger.debug("Removing JavaScript {} from cache.", fileName);
-        compiledScriptMap.remove(fileName);
+        // engines detect the removed source and recompile the script on their next evaluation
+        sources.remove(fileName);
+        LatencyHistogram histogram = latencies.remove(fileName);
+        if (histogram != null) {
+            logger.debug("JavaScript {}: {}", fileName, histogram);
+        }
+    }
+
+    /**
+     * Returns the evaluation latencies of all scripts evaluated since they were last loaded.
+     *
+     * @return the latency histograms by script file name
+     */
+    public Map<String, LatencyHistogram> getLatencyHistograms() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /**
+     * The source of a script, compared by identity to detect reloaded files.
+     */
+    private static class ScriptSource {
+        private final String code;
+
+        ScriptSource(String code) {
+            this.code = code;
+        }
+    }
+
+    /**
+     * A script engine with the scripts it compiled. It is only used by one thread at a time.
+     */
+    private static class PooledEngine {
+        private final ScriptEngine engine;
+        private final Map<String, CompiledEntry> compiledScripts = new ConcurrentHashMap<>();
+
+        PooledEngine(ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        CompiledScript getScript(String filename, ScriptSource source) throws ScriptException {
+            CompiledEntry entry = compiledScripts.get(filename);
+            if (entry == null || entry.source != source) {
+                entry = new CompiledEntry(source, ((Compilable) engine).compile(source.code));
+                compiledScripts.put(filename, entry);
+            }
+            return entry.script;
+        }
+    }
+
+    private static class CompiledEntry {
+        private final ScriptSource source;
+        private final CompiledScript script;
+
+        CompiledEntry(ScriptSource source, CompiledScript script) {
+            this.source = source;
+            this.script = script;
+        }
     }
 }
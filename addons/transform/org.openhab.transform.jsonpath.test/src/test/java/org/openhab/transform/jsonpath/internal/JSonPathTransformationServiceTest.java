@@ -14,6 +14,9 @@ package org.openhab.transform.jsonpath.internal;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.junit.Assert;
 import org.junit.Before;
@@ -99,4 +102,22 @@ public class JSonPathTransformationServiceTest {
         assertEquals("NULL", transformedResponse);
     }
 
+    @Test
+    public void testMultipleExpressionsOnSameSource() throws TransformationException {
+        Map<String, String> results = processor.transform(Arrays.asList("$[0].name", "$[1].name", "$[1].id"),
+                jsonArray);
+
+        assertEquals(3, results.size());
+        assertEquals("bob", results.get("$[0].name"));
+        assertEquals("alice", results.get("$[1].name"));
+        assertEquals("2", results.get("$[1].id"));
+    }
+
+    @Test
+    public void testRepeatedTransformOfSameSource() throws TransformationException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("bob", processor.transform("$[0].name", jsonArray));
+            assertEquals("alice", processor.transform("$[1].name", jsonArray));
+        }
+    }
 }
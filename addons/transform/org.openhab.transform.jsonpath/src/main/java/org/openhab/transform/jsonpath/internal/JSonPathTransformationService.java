@@ -12,7 +12,11 @@
  */
 package org.openhab.transform.jsonpath.internal;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -23,6 +27,7 @@ import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
@@ -31,6 +36,9 @@ import com.jayway.jsonpath.PathNotFoundException;
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by JSonPath Expressions.
+ * <p>
+ * Compiled expressions are cached. The parsed form of recently transformed documents is kept for a short time, so
+ * applying several expressions to the same payload, e.g. from several channels or profiles, parses it only once.
  *
  * @author Gaël L'hopital
  * @author Sebastian Janzen
@@ -40,8 +48,25 @@ import com.jayway.jsonpath.PathNotFoundException;
 @Component(immediate = true, property = { "smarthome.transform=JSONPATH" })
 public class JSonPathTransformationService implements TransformationService {
 
+    private static final int MAX_CACHED_PATHS = 512;
+    private static final int MAX_CACHED_DOCUMENTS = 8;
+    private static final long DOCUMENT_CACHE_TTL_MILLIS = 2000;
+
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    private final Map<String, JsonPath> pathCache = new ConcurrentHashMap<>();
+
+    /** recently parsed documents, keyed by their source. {@link String#hashCode()} is cached by the string itself. */
+    private final Map<String, ParsedDocument> documentCache = new LinkedHashMap<String, ParsedDocument>(16, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedDocument> eldest) {
+            return size() > MAX_CACHED_DOCUMENTS;
+        }
+    };
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -58,8 +83,32 @@ public class JSonPathTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, jsonPathExpression);
 
+        return read(parse(source), jsonPathExpression, source);
+    }
+
+    /**
+     * Transforms the input <code>source</code> by several JSonPath expressions, parsing the source only once.
+     *
+     * @param jsonPathExpressions JsonPath expressions
+     * @param source String which contains JSON
+     * @return the results keyed by expression, in the order of the given expressions
+     * @throws TransformationException If the source is no valid JSON or one of the expressions is invalid or doesn't
+     *             match.
+     */
+    public Map<String, @Nullable String> transform(Collection<String> jsonPathExpressions, String source)
+            throws TransformationException {
+        DocumentContext document = parse(source);
+        Map<String, @Nullable String> results = new LinkedHashMap<>();
+        for (String jsonPathExpression : jsonPathExpressions) {
+            results.put(jsonPathExpression, read(document, jsonPathExpression, source));
+        }
+        return results;
+    }
+
+    private @Nullable String read(DocumentContext document, String jsonPathExpression, String source)
+            throws TransformationException {
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            Object transformationResult = document.read(compile(jsonPathExpression));
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -75,6 +124,40 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    private JsonPath compile(String jsonPathExpression) {
+        JsonPath path = pathCache.get(jsonPathExpression);
+        if (path == null) {
+            path = JsonPath.compile(jsonPathExpression);
+            if (pathCache.size() >= MAX_CACHED_PATHS) {
+                // expressions are usually static, so simply start over if there are unexpectedly many of them
+                pathCache.clear();
+            }
+            pathCache.put(jsonPathExpression, path);
+        }
+        return path;
+    }
+
+    private DocumentContext parse(String source) throws TransformationException {
+        long now = System.currentTimeMillis();
+        synchronized (documentCache) {
+            ParsedDocument parsed = documentCache.get(source);
+            if (parsed != null && now - parsed.timestamp < DOCUMENT_CACHE_TTL_MILLIS) {
+                return parsed.document;
+            }
+        }
+
+        DocumentContext document;
+        try {
+            document = JsonPath.parse(source);
+        } catch (InvalidJsonException e) {
+            throw new TransformationException("An error occurred while transforming JSON expression.", e);
+        }
+        synchronized (documentCache) {
+            documentCache.put(source, new ParsedDocument(document, now));
+        }
+        return document;
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
@@ -87,4 +170,13 @@ public class JSonPathTransformationService implements TransformationService {
         return UnDefType.NULL.toFullString();
     }
 
+    private static class ParsedDocument {
+        private final DocumentContext document;
+        private final long timestamp;
+
+        ParsedDocument(DocumentContext document, long timestamp) {
+            this.document = document;
+            this.timestamp = timestamp;
+        }
+    }
 }
@@ -79,4 +79,35 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testCompiledExpressionsAreCached() throws TransformationException {
+        String regex = ".*?<current_conditions>.*?<temp_c data=\"(.*?)\".*";
+        String substitution = "s/temp_c/TEMP/g";
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("8", processor.transform(regex, source));
+            processor.transform(substitution, source);
+        }
+
+        assertEquals(2, processor.getCache().size());
+        assertEquals(2, processor.getCache().getMissCount());
+        assertEquals(18, processor.getCache().getHitCount());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        RegExCache<String> cache = new RegExCache<>(2);
+        cache.get("a", String::toUpperCase);
+        cache.get("b", String::toUpperCase);
+        cache.get("a", String::toUpperCase);
+        cache.get("c", String::toUpperCase);
+
+        // "b" was the least recently used entry and has been evicted
+        assertEquals(2, cache.size());
+        cache.get("a", String::toUpperCase);
+        cache.get("b", String::toUpperCase);
+        assertEquals(4, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+    }
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.regex.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * A bounded, thread-safe cache which keeps the most recently used compiled regular expressions.
+ * <p>
+ * Compiling is done outside of the lock, so a slow compilation never blocks lookups of other expressions. If two
+ * threads compile the same expression concurrently, both results are equivalent and the last one is kept.
+ *
+ * @author agent - Initial contribution
+ */
+@NonNullByDefault
+public class RegExCache<V> {
+
+    private final Map<String, V> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum number of cached expressions
+     */
+    public RegExCache(int maxSize) {
+        entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled form of the given expression, compiling and caching it if necessary.
+     *
+     * @param expression the expression
+     * @param compiler compiles the expression
+     * @return the compiled expression
+     * @throws PatternSyntaxException if the expression is invalid, invalid expressions are not cached
+     */
+    public V get(String expression, Function<String, V> compiler) {
+        V value;
+        synchronized (entries) {
+            value = entries.get(expression);
+        }
+        if (value != null) {
+            hits.incrementAndGet();
+            return value;
+        }
+
+        misses.incrementAndGet();
+        value = compiler.apply(expression);
+        synchronized (entries) {
+            entries.put(expression, value);
+        }
+        return value;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+}
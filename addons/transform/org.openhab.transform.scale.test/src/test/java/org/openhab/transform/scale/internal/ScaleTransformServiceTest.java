@@ -14,7 +14,10 @@ package org.openhab.transform.scale.internal;
 
 import static org.junit.Assert.fail;
 
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.measure.quantity.Dimensionless;
 
@@ -134,4 +137,56 @@ public class ScaleTransformServiceTest {
         Assert.assertEquals(expected, transformedResponse);
     }
 
+    @Test
+    public void testTransformQuantityTypeWithoutSpace() throws TransformationException {
+        String aqScaleFile = "scale/netatmo_aq.scale";
+
+        Assert.assertEquals("Excellente qualite d'air", processor.transform(aqScaleFile, "21.5°C"));
+        Assert.assertEquals("Excellente qualite d'air", processor.transform(aqScaleFile, "50%"));
+    }
+
+    @Test
+    public void testScaleIndexKeepsEvaluationOrderOfOverlappingRanges() {
+        Map<Range, String> scale = new LinkedHashMap<>();
+        scale.put(Range.closed(new BigDecimal(10), new BigDecimal(20)), "first");
+        scale.put(Range.atLeast(new BigDecimal(0)), "second");
+        scale.put(Range.lessThan(new BigDecimal(-5)), "third");
+        ScaleIndex index = new ScaleIndex(scale);
+
+        Assert.assertEquals("first", index.lookup(new BigDecimal(10)));
+        Assert.assertEquals("first", index.lookup(15.0, "15"));
+        Assert.assertEquals("second", index.lookup(new BigDecimal("20.0001")));
+        Assert.assertEquals("second", index.lookup(-0.0, "-0"));
+        Assert.assertEquals("third", index.lookup(-5.5, "-5.5"));
+        Assert.assertNull(index.lookup(new BigDecimal(-5)));
+        Assert.assertNull(index.lookup(-1.0, "-1"));
+    }
+
+    @Test
+    public void testScaleIndexWithManyRanges() {
+        Map<Range, String> scale = new LinkedHashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            scale.put(Range.closedOpen(new BigDecimal(i), new BigDecimal(i + 1)), Integer.toString(i));
+        }
+        ScaleIndex index = new ScaleIndex(scale);
+
+        for (int i = 0; i < 10000; i++) {
+            String value = i + ".5";
+            Assert.assertEquals(Integer.toString(i), index.lookup(Double.parseDouble(value), value));
+            Assert.assertEquals(Integer.toString(i), index.lookup(new BigDecimal(i)));
+        }
+        Assert.assertNull(index.lookup(10000.0, "10000"));
+    }
+
+    @Test
+    public void testNumberLength() {
+        Assert.assertEquals(2, ScaleTransformationService.getNumberLength("12"));
+        Assert.assertEquals(6, ScaleTransformationService.getNumberLength("-1.5e3"));
+        Assert.assertEquals(3, ScaleTransformationService.getNumberLength("992 ppm"));
+        Assert.assertEquals(2, ScaleTransformationService.getNumberLength("12e"));
+        Assert.assertEquals(0, ScaleTransformationService.getNumberLength("-"));
+        Assert.assertEquals(0, ScaleTransformationService.getNumberLength("."));
+        Assert.assertEquals(0, ScaleTransformationService.getNumberLength("azerty"));
+    }
+
 }
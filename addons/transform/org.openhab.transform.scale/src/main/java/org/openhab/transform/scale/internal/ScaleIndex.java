@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.scale.internal;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A scale compiled into sorted, non-overlapping intervals for lookups by binary search.
+ * <p>
+ * All limits of the ranges of a scale split the number line into points (the limits themselves) and the open gaps
+ * between them. Within one of these elementary intervals every value matches the same ranges, so the result of the
+ * first matching range (in the order of the scale file) is computed once per interval when the index is built.
+ *
+ * @author agent - Initial contribution
+ */
+public class ScaleIndex {
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+    /** sorted, distinct limits of all ranges */
+    private final BigDecimal[] limits;
+
+    /** the limits converted to doubles, may contain equal neighbours if limits can't be told apart as doubles */
+    private final double[] limitsAsDouble;
+
+    /** result at exactly the limit with the same index, null if no range contains that limit */
+    private final String[] pointResults;
+
+    /** result between the limits at index - 1 and index, null if no range contains that gap */
+    private final String[] gapResults;
+
+    /**
+     * Builds the index for a scale.
+     *
+     * @param scale the ranges and their results, in the order of evaluation
+     */
+    public ScaleIndex(Map<Range, String> scale) {
+        TreeSet<BigDecimal> sortedLimits = new TreeSet<>();
+        for (Range range : scale.keySet()) {
+            if (range.min != null) {
+                sortedLimits.add(range.min);
+            }
+            if (range.max != null) {
+                sortedLimits.add(range.max);
+            }
+        }
+        limits = sortedLimits.toArray(new BigDecimal[sortedLimits.size()]);
+
+        int count = limits.length;
+        limitsAsDouble = new double[count];
+        pointResults = new String[count];
+        gapResults = new String[count + 1];
+        for (int i = 0; i < count; i++) {
+            limitsAsDouble[i] = limits[i].doubleValue();
+            pointResults[i] = firstMatch(scale, limits[i]);
+        }
+        for (int i = 0; i <= count; i++) {
+            gapResults[i] = firstMatch(scale, representativeOfGap(i));
+        }
+    }
+
+    private BigDecimal representativeOfGap(int index) {
+        if (limits.length == 0) {
+            return BigDecimal.ZERO;
+        } else if (index == 0) {
+            return limits[0].subtract(BigDecimal.ONE);
+        } else if (index == limits.length) {
+            return limits[index - 1].add(BigDecimal.ONE);
+        } else {
+            return limits[index - 1].add(limits[index]).divide(TWO);
+        }
+    }
+
+    private static String firstMatch(Map<Range, String> scale, BigDecimal value) {
+        for (Map.Entry<Range, String> entry : scale.entrySet()) {
+            if (entry.getKey().contains(value)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the result of the first range containing the value.
+     *
+     * @param value the value
+     * @return the result or null if no range contains the value
+     */
+    public String lookup(BigDecimal value) {
+        int index = Arrays.binarySearch(limits, value);
+        return index >= 0 ? pointResults[index] : gapResults[-index - 1];
+    }
+
+    /**
+     * Returns the result of the first range containing the value, using primitive comparisons.
+     * <p>
+     * Rounding to double is monotonic, so a value which is strictly smaller or greater than a limit as double is
+     * strictly smaller or greater as decimal too. Only if the value equals a limit as double it is compared exactly.
+     *
+     * @param value the value as double
+     * @param exactValue the exact decimal string of the value, used if the double is ambiguous
+     * @return the result or null if no range contains the value
+     */
+    public String lookup(double value, String exactValue) {
+        // adding 0.0 turns -0.0 into 0.0, which binarySearch would consider smaller than 0.0
+        int index = Arrays.binarySearch(limitsAsDouble, value + 0.0);
+        if (index >= 0) {
+            return lookup(new BigDecimal(exactValue));
+        }
+        return gapResults[-index - 1];
+    }
+
+    /**
+     * Returns the number of elementary intervals of this index.
+     *
+     * @return the number of intervals
+     */
+    public int size() {
+        return pointResults.length + gapResults.length;
+    }
+}
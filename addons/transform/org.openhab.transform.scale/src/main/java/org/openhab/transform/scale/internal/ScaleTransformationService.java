@@ -37,12 +37,14 @@ import org.slf4j.LoggerFactory;
 /**
  * The implementation of {@link TransformationService} which transforms the
  * input by matching it between limits of ranges in a scale file
+ * <p>
+ * Scale files are compiled into a {@link ScaleIndex}, so each transformation is a binary search.
  *
  * @author Gaël L'hopital
  * @author Markus Rathgeb - drop usage of Guava
  */
 @Component(immediate = true, service = TransformationService.class, property = { "smarthome.transform=SCALE" })
-public class ScaleTransformationService extends AbstractFileTransformationService<Map<Range, String>> {
+public class ScaleTransformationService extends AbstractFileTransformationService<ScaleIndex> {
 
     private final Logger logger = LoggerFactory.getLogger(ScaleTransformationService.class);
 
@@ -90,31 +92,80 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
      *
      */
     @Override
-    protected String internalTransform(Map<Range, String> data, String source) throws TransformationException {
-        try {
-            final BigDecimal value = new BigDecimal(source);
-
-            return getScaleResult(data, source, value);
-        } catch (NumberFormatException e) {
+    protected String internalTransform(ScaleIndex data, String source) throws TransformationException {
+        final int numberLength = getNumberLength(source);
+        final String result;
+        if (numberLength > 0 && numberLength == source.length()) {
+            result = data.lookup(Double.parseDouble(source), source);
+        } else {
             // Scale can only be used with numeric inputs, so lets try to see if ever its a valid quantity type
             try {
                 final QuantityType<?> quantity = new QuantityType<>(source);
-                return getScaleResult(data, source, quantity.toBigDecimal());
-            } catch (NumberFormatException e2) {
+                result = data.lookup(quantity.toBigDecimal());
+            } catch (IllegalArgumentException e) {
                 throw new TransformationException("Scale can only be used with numeric inputs or valid quantity types");
             }
         }
+
+        if (result == null) {
+            throw new TransformationException("No matching range for '" + source + "'");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the length of the decimal number at the start of the given string, in a syntax accepted by both
+     * {@link BigDecimal#BigDecimal(String)} and {@link Double#parseDouble(String)}.
+     *
+     * @param source the string
+     * @return the length of the number, 0 if the string doesn't start with a number
+     */
+    static int getNumberLength(String source) {
+        final int length = source.length();
+        int pos = 0;
+        if (pos < length && (source.charAt(pos) == '+' || source.charAt(pos) == '-')) {
+            pos++;
+        }
+        int digits = 0;
+        while (pos < length && isDigit(source.charAt(pos))) {
+            pos++;
+            digits++;
+        }
+        if (pos < length && source.charAt(pos) == '.') {
+            pos++;
+            while (pos < length && isDigit(source.charAt(pos))) {
+                pos++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return 0;
+        }
+        if (pos < length && (source.charAt(pos) == 'e' || source.charAt(pos) == 'E')) {
+            int exponentStart = pos;
+            pos++;
+            if (pos < length && (source.charAt(pos) == '+' || source.charAt(pos) == '-')) {
+                pos++;
+            }
+            int exponentDigits = 0;
+            while (pos < length && isDigit(source.charAt(pos))) {
+                pos++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                // not an exponent, e.g. the unit of a quantity
+                return exponentStart;
+            }
+        }
+        return pos;
     }
 
-    private String getScaleResult(Map<Range, String> data, String source, final BigDecimal value)
-            throws TransformationException {
-        return data.entrySet().stream().filter(entry -> entry.getKey().contains(value)).findFirst()
-                .map(Map.Entry::getValue)
-                .orElseThrow(() -> new TransformationException("No matching range for '" + source + "'"));
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     @Override
-    protected Map<Range, String> internalLoadTransform(String filename) throws TransformationException {
+    protected ScaleIndex internalLoadTransform(String filename) throws TransformationException {
         try (FileReader reader = new FileReader(filename)) {
             final Map<Range, String> data = new LinkedHashMap<>();
             final OrderedProperties properties = new OrderedProperties();
@@ -146,7 +197,7 @@ public class ScaleTransformationService extends AbstractFileTransformationServic
                 }
             }
 
-            return data;
+            return new ScaleIndex(data);
         } catch (final IOException ex) {
             throw new TransformationException("An error occurred while opening file.", ex);
         }
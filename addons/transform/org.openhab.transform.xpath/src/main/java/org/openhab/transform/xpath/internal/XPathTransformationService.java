@@ -12,13 +12,20 @@
  */
 package org.openhab.transform.xpath.internal;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -26,10 +33,12 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 /**
  * <p>
@@ -43,6 +52,25 @@ public class XPathTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    private static final int EXPRESSION_CACHE_SIZE = 64;
+
+    private static final int MAX_IDLE_EVALUATORS = 4;
+
+    /**
+     * Neither {@link DocumentBuilder}, {@link XPathExpression} nor the parsed DOM are thread-safe, so a transformation
+     * borrows an evaluator with its own parser, compiled expressions and last parsed document. Only a few idle
+     * evaluators are kept, so the memory held by parsed documents is bounded.
+     */
+    private final BlockingQueue<Evaluator> idleEvaluators = new ArrayBlockingQueue<>(MAX_IDLE_EVALUATORS);
+
+    private volatile boolean deactivated;
+
+    @Deactivate
+    protected void deactivate() {
+        deactivated = true;
+        idleEvaluators.clear();
+    }
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
@@ -51,22 +79,13 @@ public class XPathTransformationService implements TransformationService {
 
         logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
 
-        StringReader stringReader = null;
-
+        Evaluator evaluator = idleEvaluators.poll();
+        if (evaluator == null) {
+            evaluator = new Evaluator();
+        }
         try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            domFactory.setNamespaceAware(true);
-            domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
-
-            stringReader = new StringReader(source);
-            InputSource inputSource = new InputSource(stringReader);
-            inputSource.setEncoding("UTF-8");
-
-            Document doc = builder.parse(inputSource);
-
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
+            XPathExpression expr = evaluator.getExpression(xpathExpression);
+            Document doc = evaluator.getDocument(source);
 
             String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
 
@@ -76,10 +95,71 @@ public class XPathTransformationService implements TransformationService {
         } catch (Exception e) {
             throw new TransformationException("transformation throws exceptions", e);
         } finally {
-            if (stringReader != null) {
-                stringReader.close();
+            if (!deactivated) {
+                // dropped if enough evaluators are idle already
+                idleEvaluators.offer(evaluator);
             }
         }
     }
 
+    /**
+     * Evaluation state used by one thread at a time: a reusable parser, the recently used compiled expressions and the last parsed
+     * document. Channels which apply several expressions to the same payload therefore parse it only once.
+     */
+    private static class Evaluator {
+        private final XPath xpath = XPathFactory.newInstance().newXPath();
+
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(16,
+                0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                return size() > EXPRESSION_CACHE_SIZE;
+            }
+        };
+
+        private @Nullable DocumentBuilder builder;
+        private @Nullable String lastSource;
+        private @Nullable Document lastDocument;
+
+        XPathExpression getExpression(String xpathExpression) throws XPathExpressionException {
+            XPathExpression expr = expressions.get(xpathExpression);
+            if (expr == null) {
+                expr = xpath.compile(xpathExpression);
+                expressions.put(xpathExpression, expr);
+            }
+            return expr;
+        }
+
+        Document getDocument(String source) throws ParserConfigurationException, SAXException, IOException {
+            Document doc = lastDocument;
+            if (doc != null && source.equals(lastSource)) {
+                return doc;
+            }
+
+            DocumentBuilder builder = this.builder;
+            if (builder == null) {
+                DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+                domFactory.setNamespaceAware(true);
+                domFactory.setValidating(false);
+                builder = domFactory.newDocumentBuilder();
+                this.builder = builder;
+            } else {
+                builder.reset();
+            }
+
+            // forget the previous document first, so a failing parse doesn't leave a stale one behind
+            lastSource = null;
+            lastDocument = null;
+            try (StringReader stringReader = new StringReader(source)) {
+                InputSource inputSource = new InputSource(stringReader);
+                inputSource.setEncoding("UTF-8");
+                doc = builder.parse(inputSource);
+            }
+            lastSource = source;
+            lastDocument = doc;
+            return doc;
+        }
+    }
 }
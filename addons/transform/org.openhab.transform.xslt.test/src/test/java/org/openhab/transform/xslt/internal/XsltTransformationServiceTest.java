@@ -14,7 +14,20 @@ package org.openhab.transform.xslt.internal;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.transform.TransformationException;
+import org.eclipse.smarthome.core.transform.TransformationService;
 import org.junit.Before;
 import org.junit.Test;
 import org.openhab.transform.xslt.internal.XsltTransformationService;
@@ -41,4 +54,61 @@ public class XsltTransformationServiceTest extends AbstractTransformationService
         assertEquals("8", transformedResponse);
     }
 
+    @Test
+    public void testTransformWithCachedStylesheet() throws TransformationException, IOException {
+        Path stylesheet = Paths.get(ConfigConstants.getConfigFolder(), TransformationService.TRANSFORM_FOLDER_NAME,
+                "cached.xsl");
+        try {
+            writeStylesheet(stylesheet, "first");
+            assertEquals("first", processor.transform("cached.xsl", source));
+
+            // the compiled stylesheet is reused until the file is reported as modified
+            writeStylesheet(stylesheet, "second");
+            assertEquals("first", processor.transform("cached.xsl", source));
+
+            processor.removeFromCache(stylesheet);
+            assertEquals("second", processor.transform("cached.xsl", source));
+        } finally {
+            Files.deleteIfExists(stylesheet);
+        }
+    }
+
+    @Test
+    public void testConcurrentTransformations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> processor.transform("http/google_weather.xsl", source)));
+            }
+            for (Future<String> result : results) {
+                assertEquals("8", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDeactivateClearsCache() throws TransformationException, IOException {
+        Path stylesheet = Paths.get(ConfigConstants.getConfigFolder(), TransformationService.TRANSFORM_FOLDER_NAME,
+                "cached.xsl");
+        try {
+            writeStylesheet(stylesheet, "first");
+            assertEquals("first", processor.transform("cached.xsl", source));
+
+            writeStylesheet(stylesheet, "second");
+            processor.deactivate();
+            assertEquals("second", processor.transform("cached.xsl", source));
+        } finally {
+            Files.deleteIfExists(stylesheet);
+        }
+    }
+
+    private static void writeStylesheet(Path path, String output) throws IOException {
+        String xsl = "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                + "<xsl:output method=\"text\"/><xsl:template match=\"/\">" + output + "</xsl:template>"
+                + "</xsl:stylesheet>";
+        Files.write(path, xsl.getBytes(StandardCharsets.UTF_8));
+    }
 }
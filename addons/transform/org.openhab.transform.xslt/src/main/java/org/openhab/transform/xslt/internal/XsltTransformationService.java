@@ -12,12 +12,18 @@
  */
 package org.openhab.transform.xslt.internal;
 
-import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
-
-import javax.xml.transform.Source;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -28,21 +34,39 @@ import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XSLT.
+ * <p>
+ * Stylesheets are compiled once into {@link Templates} and cached until the {@link TransformationScriptWatcher}
+ * reports a modification of the file.
  *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
-@Component(immediate = true, property = { "smarthome.transform=XSLT" })
+@Component(immediate = true, service = { TransformationService.class,
+        XsltTransformationService.class }, property = { "smarthome.transform=XSLT" })
 public class XsltTransformationService implements TransformationService {
 
+    private static final int MAX_IDLE_TRANSFORMATIONS = 4;
+
+    /** output buffers larger than this are not kept for reuse */
+    private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
     private final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+    private final Map<String, Stylesheet> stylesheetCache = new ConcurrentHashMap<>();
+
+    @Deactivate
+    protected void deactivate() {
+        stylesheetCache.values().forEach(Stylesheet::discard);
+        stylesheetCache.clear();
+    }
+
     /**
      * Transforms the input <code>source</code> by XSLT.
      *
@@ -60,37 +84,121 @@ public class XsltTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
         }
 
-        Source xsl = null;
+        Stylesheet stylesheet = stylesheetCache.computeIfAbsent(filename, Stylesheet::new);
+
+        logger.debug("about to transform '{}' by the function '{}'", source, filename);
+
+        Transformation transformation = stylesheet.borrowTransformation();
+        StringWriter out = transformation.output;
+        out.getBuffer().setLength(0);
 
         try {
-            String path = ConfigConstants.getConfigFolder() + File.separator
-                    + TransformationService.TRANSFORM_FOLDER_NAME + File.separator + filename;
-            xsl = new StreamSource(new File(path));
+            transformation.transformer.transform(new StreamSource(new StringReader(source)), new StreamResult(out));
         } catch (Exception e) {
-            String message = "opening file '" + filename + "' throws exception";
-
-            logger.error("{}", message, e);
-            throw new TransformationException(message, e);
+            // a transformer may be left in an undefined state by a failed transformation, so it is not reused
+            logger.error("transformation throws exception", e);
+            throw new TransformationException("transformation throws exception", e);
         }
 
-        logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+        String result = out.toString();
+        stylesheet.releaseTransformation(transformation);
 
-        StringReader xml = new StringReader(source);
-        StringWriter out = new StringWriter();
+        logger.debug("transformation resulted in '{}'", result);
 
-        Transformer transformer;
+        return result;
+    }
 
-        try {
-            transformer = TransformerFactory.newInstance().newTransformer(xsl);
-            transformer.transform(new StreamSource(xml), new StreamResult(out));
-        } catch (Exception e) {
-            logger.error("transformation throws exception", e);
-            throw new TransformationException("transformation throws exception", e);
+    /**
+     * Removes the compiled stylesheet of the given file from the cache.
+     *
+     * @param path the path of the modified or deleted file
+     */
+    protected void removeFromCache(Path path) {
+        Path modified = path.toAbsolutePath().normalize();
+        stylesheetCache.values().removeIf(stylesheet -> {
+            if (getPath(stylesheet.filename).toAbsolutePath().normalize().equals(modified)) {
+                logger.debug("Removing XSLT {} from cache.", stylesheet.filename);
+                stylesheet.discard();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static Path getPath(String filename) {
+        return Paths.get(ConfigConstants.getConfigFolder(), TransformationService.TRANSFORM_FOLDER_NAME, filename);
+    }
+
+    /**
+     * A stylesheet file, compiled on first use. Concurrent first uses share a single compilation. A stylesheet removed
+     * from the cache is never added again, so a compilation overlapping a modification of the file only serves the
+     * transformations that started before it.
+     *
+     * {@link Templates} are thread-safe, the {@link Transformer}s created from them are not, so a transformation
+     * borrows one from a small pool of idle transformers.
+     */
+    private class Stylesheet {
+        private final String filename;
+        private final BlockingQueue<Transformation> idleTransformations = new ArrayBlockingQueue<>(
+                MAX_IDLE_TRANSFORMATIONS);
+        private @Nullable Templates templates;
+        private volatile boolean discarded;
+
+        Stylesheet(String filename) {
+            this.filename = filename;
         }
 
-        logger.debug("transformation resulted in '{}'", out.toString());
+        private synchronized Templates getTemplates() throws TransformationException {
+            Templates templates = this.templates;
+            if (templates == null) {
+                try {
+                    logger.debug("Compiling XSLT {}", filename);
+                    templates = TransformerFactory.newInstance()
+                            .newTemplates(new StreamSource(getPath(filename).toFile()));
+                } catch (Exception e) {
+                    logger.error("transformation throws exception", e);
+                    throw new TransformationException("transformation throws exception", e);
+                }
+                this.templates = templates;
+            }
+            return templates;
+        }
 
-        return out.toString();
+        Transformation borrowTransformation() throws TransformationException {
+            Transformation transformation = idleTransformations.poll();
+            if (transformation != null) {
+                return transformation;
+            }
+            try {
+                return new Transformation(getTemplates().newTransformer());
+            } catch (TransformerConfigurationException e) {
+                logger.error("transformation throws exception", e);
+                throw new TransformationException("transformation throws exception", e);
+            }
+        }
+
+        void releaseTransformation(Transformation transformation) {
+            if (!discarded && transformation.output.getBuffer().capacity() <= MAX_REUSED_BUFFER_SIZE) {
+                // dropped if enough transformations are idle already
+                idleTransformations.offer(transformation);
+            }
+        }
+
+        void discard() {
+            discarded = true;
+            idleTransformations.clear();
+        }
     }
 
+    /**
+     * A transformer with its reusable output buffer, used by one thread at a time.
+     */
+    private static class Transformation {
+        private final Transformer transformer;
+        private final StringWriter output = new StringWriter();
+
+        Transformation(Transformer transformer) {
+            this.transformer = transformer;
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.basic.internal.render;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.smarthome.core.i18n.LocaleProvider;
+import org.eclipse.smarthome.core.i18n.TranslationProvider;
+import org.eclipse.smarthome.model.sitemap.SitemapProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.ui.basic.internal.WebAppConfig;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Tests cases for the caches of the {@link PageRenderer}
+ *
+ * @author agent - Initial contribution
+ */
+public class PageRendererTest {
+
+    private final PageRenderer renderer = new PageRenderer();
+    private final WebAppConfig config = new WebAppConfig();
+    private Set<SitemapProvider> sitemapProviders;
+
+    @Before
+    public void setUp() {
+        // compiled snippets are used as they are, so the snippets need not be read from the bundle
+        AbstractWidgetRenderer.TEMPLATE_CACHE.put("main",
+                SnippetTemplate.compile("<html class=\"%htmlclass%\" data-theme=\"%theme%\">%label%%children%</html>"));
+        AbstractWidgetRenderer.TEMPLATE_CACHE.put("main_static",
+                SnippetTemplate.compile("<html class=\"%htmlclass%\">%content%</html>"));
+        AbstractWidgetRenderer.TEMPLATE_CACHE.put("sitemaps_list", SnippetTemplate.compile("%items%"));
+        AbstractWidgetRenderer.TEMPLATE_CACHE.put("sitemaps_list_item", SnippetTemplate.compile("[%sitemap%]"));
+
+        LocaleProvider localeProvider = mock(LocaleProvider.class);
+        when(localeProvider.getLocale()).thenReturn(Locale.ENGLISH);
+        renderer.setLocaleProvider(localeProvider);
+        TranslationProvider translationProvider = mock(TranslationProvider.class);
+        when(translationProvider.getText(any(), anyString(), anyString(), any())).thenReturn("text");
+        renderer.setTranslationProvider(translationProvider);
+        renderer.activate(mock(BundleContext.class));
+        renderer.setConfig(config);
+
+        SitemapProvider sitemapProvider = mock(SitemapProvider.class);
+        when(sitemapProvider.getSitemapNames()).thenReturn(Collections.singleton("demo"));
+        sitemapProviders = Collections.singleton(sitemapProvider);
+    }
+
+    @After
+    public void tearDown() {
+        AbstractWidgetRenderer.TEMPLATE_CACHE.clear();
+    }
+
+    @Test
+    public void skeletonIsBoundToTheConfiguration() throws Exception {
+        assertThat(renderPage(), is("<html class=\" ui-icons-enabled \" data-theme=\"default\">Home</html>"));
+
+        applyConfig("theme", WebAppConfig.THEME_NAME_DARK);
+        // the configuration object is shared, the cached skeleton is only dropped by setConfig
+        assertThat(renderPage(), is("<html class=\" ui-icons-enabled \" data-theme=\"default\">Home</html>"));
+
+        renderer.setConfig(config);
+        assertThat(renderPage(), is("<html class=\" \" data-theme=\"dark\">Home</html>"));
+    }
+
+    @Test
+    public void sitemapListIsBoundToTheConfiguration() throws Exception {
+        assertThat(renderer.renderSitemapList(sitemapProviders).toString(),
+                is("<html class=\" ui-icons-enabled  page-welcome-sitemaps\">[demo]</html>"));
+
+        applyConfig("condensedLayout", "true");
+        renderer.setConfig(config);
+        assertThat(renderer.renderSitemapList(sitemapProviders).toString(),
+                is("<html class=\" ui-layout-condensed  page-welcome-sitemaps\">[demo]</html>"));
+    }
+
+    @Test
+    public void sitemapListIsCachedBySitemaps() throws Exception {
+        SitemapProvider sitemapProvider = sitemapProviders.iterator().next();
+        CharSequence first = renderer.renderSitemapList(sitemapProviders);
+        assertThat(renderer.renderSitemapList(sitemapProviders), is(sameInstance(first)));
+
+        when(sitemapProvider.getSitemapNames()).thenReturn(Collections.singleton("other"));
+        assertThat(renderer.renderSitemapList(sitemapProviders).toString(),
+                is("<html class=\" ui-icons-enabled  page-welcome-sitemaps\">[other]</html>"));
+    }
+
+    private String renderPage() throws Exception {
+        return renderer.processPage("demo", "demo", "Home", new BasicEList<>(), false).toString();
+    }
+
+    /**
+     * Applies a configuration with the given property and without icons.
+     */
+    private void applyConfig(String key, String value) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enableIcons", "false");
+        properties.put(key, value);
+        config.applyConfig(properties);
+    }
+}
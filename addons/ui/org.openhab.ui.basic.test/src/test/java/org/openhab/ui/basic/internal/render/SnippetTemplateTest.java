@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.basic.internal.render;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests cases for {@link SnippetTemplate}
+ *
+ * @author agent - Initial contribution
+ */
+public class SnippetTemplateTest {
+
+    private static final String SNIPPET = "<div id=\"%widget_id%\" class=\"%visibility_class%\">"
+            + "<span>%label%</span><span class=\"value\">%value%</span>%children%</div>";
+
+    @Test
+    public void rendersAllPlaceholders() {
+        Map<String, String> values = new HashMap<>();
+        values.put("widget_id", "0001");
+        values.put("visibility_class", "hidden");
+        values.put("label", "Temperature");
+        values.put("value", "21 &deg;C");
+        values.put("children", "<p/>");
+
+        assertThat(SnippetTemplate.compile(SNIPPET).render(values), is("<div id=\"0001\" class=\"hidden\">"
+                + "<span>Temperature</span><span class=\"value\">21 &deg;C</span><p/></div>"));
+    }
+
+    @Test
+    public void rendersSnippetsWithoutPlaceholders() {
+        assertThat(SnippetTemplate.compile("").render(Collections.emptyMap()), is(""));
+        assertThat(SnippetTemplate.compile("<hr/> 100%").render(Collections.emptyMap()), is("<hr/> 100%"));
+    }
+
+    @Test
+    public void keepsUnknownPlaceholders() {
+        Map<String, String> values = new HashMap<>();
+        values.put("widget_id", "0001");
+
+        assertThat(SnippetTemplate.compile(SNIPPET).render(values),
+                is("<div id=\"0001\" class=\"%visibility_class%\">"
+                        + "<span>%label%</span><span class=\"value\">%value%</span>%children%</div>"));
+    }
+
+    @Test
+    public void doesNotScanValuesForPlaceholders() {
+        Map<String, String> values = new HashMap<>();
+        values.put("label", "%value%");
+        values.put("value", "42 %");
+
+        assertThat(SnippetTemplate.compile("%label%=%value%").render(values), is("%value%=42 %"));
+    }
+
+    @Test
+    public void appendsToBuffer() {
+        StringBuilder sb = new StringBuilder("<body>");
+        SnippetTemplate.compile("<p>%label%</p>").render(sb, Collections.singletonMap("label", "a"));
+
+        assertThat(sb.toString(), is("<body><p>a</p>"));
+    }
+
+    @Test
+    public void bindsSomePlaceholders() {
+        SnippetTemplate template = SnippetTemplate.compile(SNIPPET);
+        Map<String, String> bound = new HashMap<>();
+        bound.put("visibility_class", "%label%");
+        bound.put("value", "1");
+        SnippetTemplate boundTemplate = template.bind(bound);
+
+        Map<String, String> values = new HashMap<>();
+        values.put("widget_id", "0001");
+        values.put("label", "Counter");
+        values.put("visibility_class", "ignored");
+
+        // bound values are neither replaced again nor scanned for placeholders
+        assertThat(boundTemplate.render(values), is("<div id=\"0001\" class=\"%label%\">"
+                + "<span>Counter</span><span class=\"value\">1</span>%children%</div>"));
+        // the original template is not changed
+        assertThat(template.render(values), is("<div id=\"0001\" class=\"ignored\">"
+                + "<span>Counter</span><span class=\"value\">%value%</span>%children%</div>"));
+    }
+
+    @Test
+    public void bindsAllPlaceholders() {
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "1");
+        values.put("b", "2");
+
+        SnippetTemplate template = SnippetTemplate.compile("%a%-%b%").bind(values);
+        assertThat(template.render(Collections.emptyMap()), is("1-2"));
+    }
+
+    /**
+     * Compares rendering a widget snippet with the compiled template to replacing the placeholders one after the
+     * other, as the renderers did before.
+     *
+     * This is a manual benchmark, run it with -Dbasicui.snippet.benchmark=true.
+     */
+    @Test
+    public void renderBenchmark() {
+        assumeTrue("Manual benchmark", Boolean.getBoolean("basicui.snippet.benchmark"));
+
+        Map<String, String> values = new HashMap<>();
+        values.put("widget_id", "0001");
+        values.put("visibility_class", "");
+        values.put("label", "Temperature");
+        values.put("value", "21 &deg;C");
+        SnippetTemplate template = SnippetTemplate.compile(SNIPPET);
+        int iterations = 1_000_000;
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            renderWithTemplate(template, values, iterations);
+            renderWithReplace(values, iterations);
+        }
+        long templateNanos = renderWithTemplate(template, values, iterations);
+        long replaceNanos = renderWithReplace(values, iterations);
+
+        LoggerFactory.getLogger(SnippetTemplateTest.class).info(
+                "Rendering {} snippets took {} ms with the template and {} ms with String.replace", iterations,
+                TimeUnit.NANOSECONDS.toMillis(templateNanos), TimeUnit.NANOSECONDS.toMillis(replaceNanos));
+    }
+
+    private long renderWithTemplate(SnippetTemplate template, Map<String, String> values, int iterations) {
+        StringBuilder sb = new StringBuilder();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sb.setLength(0);
+            template.render(sb, values);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long renderWithReplace(Map<String, String> values, int iterations) {
+        StringBuilder sb = new StringBuilder();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            String snippet = SNIPPET;
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                snippet = snippet.replace("%" + value.getKey() + "%", value.getValue());
+            }
+            sb.setLength(0);
+            sb.append(snippet);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.basic.internal.servlet;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.openhab.ui.basic.internal.servlet.PageCache.Page;
+
+/**
+ * Tests cases for {@link PageCache}
+ *
+ * @author agent - Initial contribution
+ */
+public class PageCacheTest {
+
+    private final PageCache cache = new PageCache();
+
+    @Test
+    public void unchangedPagesAreReused() throws IOException {
+        Page page = cache.get("demo", bytes("<html/>"));
+
+        assertThat(cache.get("demo", bytes("<html/>")), is(sameInstance(page)));
+        // compressed only once
+        assertThat(cache.get("demo", bytes("<html/>")).getCompressedContent(),
+                is(sameInstance(page.getCompressedContent())));
+    }
+
+    @Test
+    public void changedPagesGetNewTags() {
+        Page page = cache.get("demo", bytes("<html>1</html>"));
+        Page changed = cache.get("demo", bytes("<html>2</html>"));
+
+        assertThat(changed, is(not(sameInstance(page))));
+        assertThat(changed.getETag(false), is(not(page.getETag(false))));
+        // the tag only depends on the content
+        assertThat(cache.get("other", bytes("<html>1</html>")).getETag(false), is(page.getETag(false)));
+    }
+
+    @Test
+    public void compressedContentHasItsOwnTag() throws IOException {
+        Page page = cache.get("demo", bytes("<html/>"));
+
+        assertThat(page.getETag(false).startsWith("\""), is(true));
+        assertThat(page.getETag(false).endsWith("\""), is(true));
+        assertThat(page.getETag(true), is(not(page.getETag(false))));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(page.getCompressedContent()))) {
+            assertThat(IOUtils.toString(in, "UTF-8"), is("<html/>"));
+        }
+    }
+
+    @Test
+    public void matchesIfNoneMatch() {
+        Page page = cache.get("demo", bytes("<html/>"));
+        String tag = page.getETag(false);
+        String gzipTag = page.getETag(true);
+
+        assertThat(page.matches(null), is(false));
+        assertThat(page.matches(""), is(false));
+        assertThat(page.matches("\"other\""), is(false));
+        assertThat(page.matches(tag), is(true));
+        assertThat(page.matches(gzipTag), is(true));
+        assertThat(page.matches("\"other\", " + tag), is(true));
+        assertThat(page.matches("\"other\",\"more\""), is(false));
+        assertThat(page.matches("*"), is(true));
+        // weak comparison
+        assertThat(page.matches("W/" + tag), is(true));
+    }
+
+    @Test
+    public void leastRecentlyServedPageIsDropped() {
+        Page first = cache.get("0", bytes("0"));
+        Page second = cache.get("1", bytes("1"));
+        for (int i = 2; i < PageCache.MAX_PAGES; i++) {
+            cache.get(Integer.toString(i), bytes(Integer.toString(i)));
+        }
+        // serving the first page again makes the second page the least recently served one
+        assertThat(cache.get("0", bytes("0")), is(sameInstance(first)));
+
+        cache.get("new", bytes("new"));
+
+        assertThat(cache.get("0", bytes("0")), is(sameInstance(first)));
+        assertThat(cache.get("1", bytes("1")), is(not(sameInstance(second))));
+    }
+
+    @Test
+    public void clearDropsAllPages() {
+        Page page = cache.get("demo", bytes("<html/>"));
+        cache.clear();
+
+        assertThat(cache.get("demo", bytes("<html/>")), is(not(sameInstance(page))));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.basic.internal.servlet;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+/**
+ * Tests cases for the conditional and compressed responses of the {@link WebAppServlet}
+ *
+ * @author agent - Initial contribution
+ */
+public class WebAppServletTest {
+
+    private static final String SMALL_PAGE = "<html/>";
+    private static final String LARGE_PAGE = "<html>" + StringUtils.repeat("x", WebAppServlet.MIN_COMPRESS_LENGTH)
+            + "</html>";
+
+    private final WebAppServlet servlet = new WebAppServlet();
+
+    /**
+     * A response recording the headers, the status and the body.
+     */
+    private static class Response {
+        private final HttpServletResponse response = mock(HttpServletResponse.class);
+        private final Map<String, String> headers = new HashMap<>();
+        private int status = HttpServletResponse.SC_OK;
+        private byte[] body;
+
+        Response() throws IOException {
+            ServletOutputStream out = mock(ServletOutputStream.class);
+            when(response.getOutputStream()).thenReturn(out);
+            doAnswer(invocation -> headers.put(invocation.getArgument(0), invocation.getArgument(1))).when(response)
+                    .setHeader(anyString(), anyString());
+            doAnswer(invocation -> status = invocation.getArgument(0)).when(response).setStatus(anyInt());
+            doAnswer(invocation -> body = invocation.getArgument(0)).when(out).write(any(byte[].class));
+        }
+
+        boolean isNotModified() {
+            return status == HttpServletResponse.SC_NOT_MODIFIED && body == null;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+    }
+
+    private Response send(String page, String ifNoneMatch, boolean acceptGzip) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+        when(request.getHeader("Accept-Encoding")).thenReturn(acceptGzip ? "gzip, deflate" : null);
+        Response response = new Response();
+        servlet.sendPage(request, response.response, "demo", "text/html;charset=UTF-8", page);
+        return response;
+    }
+
+    @Test
+    public void sendsPageWithTag() throws IOException {
+        Response response = send(SMALL_PAGE, null, false);
+
+        assertThat(response.isNotModified(), is(false));
+        assertThat(new String(response.getBody(), StandardCharsets.UTF_8), is(SMALL_PAGE));
+        assertThat(response.headers.get("ETag"), is(notNullValue()));
+        assertThat(response.headers.get("Cache-Control"), is("no-cache"));
+        assertThat(response.headers.get("Vary"), is("Accept-Encoding"));
+        assertThat(response.headers.containsKey("Content-Encoding"), is(false));
+    }
+
+    @Test
+    public void notModifiedForSingleTag() throws IOException {
+        String tag = send(SMALL_PAGE, null, false).headers.get("ETag");
+
+        Response response = send(SMALL_PAGE, tag, false);
+        assertThat(response.isNotModified(), is(true));
+        assertThat(response.headers.get("ETag"), is(tag));
+    }
+
+    @Test
+    public void notModifiedForTagList() throws IOException {
+        String tag = send(SMALL_PAGE, null, false).headers.get("ETag");
+
+        assertThat(send(SMALL_PAGE, "\"outdated\", " + tag, false).isNotModified(), is(true));
+        assertThat(send(SMALL_PAGE, "\"outdated\", \"older\"", false).isNotModified(), is(false));
+    }
+
+    @Test
+    public void notModifiedForAnyTag() throws IOException {
+        assertThat(send(SMALL_PAGE, "*", false).isNotModified(), is(true));
+    }
+
+    @Test
+    public void changedPageIsSent() throws IOException {
+        String tag = send(SMALL_PAGE, null, false).headers.get("ETag");
+
+        Response response = send("<html>changed</html>", tag, false);
+        assertThat(response.isNotModified(), is(false));
+        assertThat(response.headers.get("ETag"), is(not(tag)));
+    }
+
+    @Test
+    public void compressedPageHasItsOwnTag() throws IOException {
+        String tag = send(LARGE_PAGE, null, false).headers.get("ETag");
+
+        Response response = send(LARGE_PAGE, null, true);
+        assertThat(response.headers.get("Content-Encoding"), is("gzip"));
+        String gzipTag = response.headers.get("ETag");
+        assertThat(gzipTag, is(not(tag)));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertThat(IOUtils.toString(in, "UTF-8"), is(LARGE_PAGE));
+        }
+
+        assertThat(send(LARGE_PAGE, gzipTag, true).isNotModified(), is(true));
+    }
+
+    @Test
+    public void onlyLargePagesAreCompressed() throws IOException {
+        String belowThreshold = StringUtils.repeat("x", WebAppServlet.MIN_COMPRESS_LENGTH - 1);
+        Response response = send(belowThreshold, null, true);
+        assertThat(response.headers.containsKey("Content-Encoding"), is(false));
+        assertThat(response.getBody().length, is(WebAppServlet.MIN_COMPRESS_LENGTH - 1));
+
+        String atThreshold = StringUtils.repeat("x", WebAppServlet.MIN_COMPRESS_LENGTH);
+        assertThat(send(atThreshold, null, true).headers.get("Content-Encoding"), is("gzip"));
+    }
+}
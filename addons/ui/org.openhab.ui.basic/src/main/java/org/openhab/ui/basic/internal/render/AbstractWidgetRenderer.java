@@ -20,10 +20,10 @@ import java.net.URL;
 import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringEscapeUtils;
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.smarthome.core.i18n.I18nUtil;
 import org.eclipse.smarthome.core.i18n.LocaleProvider;
 import org.eclipse.smarthome.core.i18n.TranslationProvider;
@@ -67,7 +67,10 @@ public abstract class AbstractWidgetRenderer implements WidgetRenderer {
     protected static final String SNIPPET_LOCATION = "snippets/";
 
     /* a local cache so we do not have to read the snippets over and over again from the bundle */
-    protected static final Map<String, String> SNIPPET_CACHE = new HashMap<String, String>();
+    protected static final Map<String, String> SNIPPET_CACHE = new ConcurrentHashMap<>();
+
+    /* a local cache so we do not have to compile the snippets over and over again */
+    protected static final Map<String, SnippetTemplate> TEMPLATE_CACHE = new ConcurrentHashMap<>();
 
     protected void setItemUIRegistry(ItemUIRegistry itemUIRegistry) {
         this.itemUIRegistry = itemUIRegistry;
@@ -106,32 +109,30 @@ public abstract class AbstractWidgetRenderer implements WidgetRenderer {
     }
 
     /**
-     * Replace some common values in the widget template
+     * Provides the values of the placeholders which are common to all widget templates
      *
-     * @param snippet snippet html code
      * @param w corresponding widget
-     * @return
+     * @return the values by placeholder name, to be completed with the widget specific values
      */
-    protected String preprocessSnippet(String originalSnippet, Widget w) {
-        String snippet = originalSnippet;
-        snippet = StringUtils.replace(snippet, "%widget_id%", itemUIRegistry.getWidgetId(w));
-        snippet = StringUtils.replace(snippet, "%icon_type%", config.getIconType());
-        snippet = StringUtils.replace(snippet, "%item%", w.getItem() != null ? w.getItem() : "");
+    protected Map<String, String> preprocessSnippet(Widget w) {
+        Map<String, String> values = new HashMap<>();
+        values.put("widget_id", itemUIRegistry.getWidgetId(w));
+        values.put("icon_type", config.getIconType());
+        values.put("item", w.getItem() != null ? w.getItem() : "");
         // Optimization: avoid calling 3 times itemUIRegistry.getLabel(w)
         String text = itemUIRegistry.getLabel(w);
-        snippet = StringUtils.replace(snippet, "%label%", getLabel(text));
-        snippet = StringUtils.replace(snippet, "%value%", getValue(text));
-        snippet = StringUtils.replace(snippet, "%has_value%", new Boolean(hasValue(text)).toString());
-        snippet = StringUtils.replace(snippet, "%visibility_class%",
-                itemUIRegistry.getVisiblity(w) ? "" : "mdl-form__row--hidden");
+        values.put("label", getLabel(text));
+        values.put("value", getValue(text));
+        values.put("has_value", Boolean.toString(hasValue(text)));
+        values.put("visibility_class", itemUIRegistry.getVisiblity(w) ? "" : "mdl-form__row--hidden");
 
         String state = getState(w);
-        snippet = StringUtils.replace(snippet, "%state%", state == null ? "" : escapeURL(state));
+        values.put("state", state == null ? "" : escapeURL(state));
 
         String category = getCategory(w);
-        snippet = StringUtils.replace(snippet, "%category%", escapeURL(category));
+        values.put("category", escapeURL(category));
 
-        return snippet;
+        return values;
     }
 
     /**
@@ -141,7 +142,7 @@ public abstract class AbstractWidgetRenderer implements WidgetRenderer {
      * @return the html snippet to be used in the UI (including placeholders for variables)
      * @throws RenderException if snippet could not be read
      */
-    protected synchronized String getSnippet(String elementType) throws RenderException {
+    protected String getSnippet(String elementType) throws RenderException {
         String lowerTypeElementType = elementType.toLowerCase();
         String snippet = SNIPPET_CACHE.get(lowerTypeElementType);
         if (snippet == null) {
@@ -161,6 +162,27 @@ public abstract class AbstractWidgetRenderer implements WidgetRenderer {
         return snippet;
     }
 
+    /**
+     * This method provides the compiled html snippet for a given elementType of the sitemap model.
+     *
+     * @param elementType the name of the model type (e.g. "Group" or "Switch")
+     * @return the compiled html snippet to be used in the UI
+     * @throws RenderException if snippet could not be read
+     */
+    protected SnippetTemplate getTemplate(String elementType) throws RenderException {
+        String lowerTypeElementType = elementType.toLowerCase();
+        SnippetTemplate template = TEMPLATE_CACHE.get(lowerTypeElementType);
+        if (template == null) {
+            String snippet = getSnippet(lowerTypeElementType);
+            if (snippet == null) {
+                throw new RenderException("Cannot load a snippet for element type '" + lowerTypeElementType + "'");
+            }
+            template = SnippetTemplate.compile(snippet);
+            TEMPLATE_CACHE.put(lowerTypeElementType, template);
+        }
+        return template;
+    }
+
     /**
      * Retrieves the label for a widget
      *
@@ -258,21 +280,19 @@ public abstract class AbstractWidgetRenderer implements WidgetRenderer {
      *
      * @param w
      *            The widget to process
-     * @param snippet
-     *            The snippet to translate
-     * @return The updated snippet
+     * @param values
+     *            The values of the placeholders to add the color tags to
      */
-    protected String processColor(Widget w, String originalSnippet) {
+    protected void processColor(Widget w, Map<String, String> values) {
         String style = "";
         String color = "";
-        String snippet = originalSnippet;
 
         color = itemUIRegistry.getLabelColor(w);
 
         if (color != null) {
             style = "style=\"color:" + color + "\"";
         }
-        snippet = StringUtils.replace(snippet, "%labelstyle%", style);
+        values.put("labelstyle", style);
 
         style = "";
         color = itemUIRegistry.getValueColor(w);
@@ -280,9 +300,7 @@ public abstract class AbstractWidgetRenderer implements WidgetRenderer {
         if (color != null) {
             style = "style=\"color:" + color + "\"";
         }
-        snippet = StringUtils.replace(snippet, "%valuestyle%", style);
-
-        return snippet;
+        values.put("valuestyle", style);
     }
 
     protected String getCategory(Widget w) {
@@ -13,11 +13,13 @@
 package org.openhab.ui.basic.internal.render;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.smarthome.core.i18n.LocaleProvider;
@@ -59,6 +61,12 @@ public class PageRenderer extends AbstractWidgetRenderer {
 
     List<WidgetRenderer> widgetRenderers = new ArrayList<WidgetRenderer>();
 
+    /* the page skeletons with the configuration and the localized texts already filled in, by skeleton and locale */
+    private final Map<String, SnippetTemplate> skeletonCache = new ConcurrentHashMap<>();
+
+    /* the rendered sitemap lists, by locale and sitemap names */
+    private final Map<String, String> sitemapListCache = new ConcurrentHashMap<>();
+
     @Override
     @Activate
     protected void activate(BundleContext bundleContext) {
@@ -94,10 +102,13 @@ public class PageRenderer extends AbstractWidgetRenderer {
      */
     public StringBuilder processPage(String id, String sitemap, String label, EList<Widget> children, boolean async)
             throws RenderException {
-        String snippet = getSnippet(async ? "layer" : "main");
-        snippet = snippet.replaceAll("%main.offline-msg%", localizeText("@text/main.offline-msg"));
-        snippet = snippet.replaceAll("%main.long-polling-mode-msg%", localizeText("@text/main.long-polling-mode-msg"));
-        snippet = snippet.replaceAll("%id%", id);
+        String skeleton = async ? "layer" : "main";
+        SnippetTemplate skeletonTemplate = getTemplate(skeleton);
+        SnippetTemplate template = skeletonCache.computeIfAbsent(skeleton + "|" + localeProvider.getLocale(),
+                key -> bindSkeleton(skeletonTemplate));
+
+        Map<String, String> values = new HashMap<>();
+        values.put("id", id);
 
         // if the label contains a value span, we remove this span as
         // the title of a page/layer cannot deal with this
@@ -108,12 +119,9 @@ public class PageRenderer extends AbstractWidgetRenderer {
         if (labelPlain.contains("[") && labelPlain.endsWith("]")) {
             labelPlain = labelPlain.replace("[", "").replace("]", "");
         }
-        snippet = StringUtils.replace(snippet, "%label%", escapeHtml(labelPlain));
-        snippet = StringUtils.replace(snippet, "%servletname%", WebAppServlet.SERVLET_NAME);
-        snippet = StringUtils.replace(snippet, "%sitemap%", sitemap);
-        snippet = StringUtils.replace(snippet, "%htmlclass%", config.getCssClassList());
-        snippet = StringUtils.replace(snippet, "%icon_type%", config.getIconType());
-        snippet = StringUtils.replace(snippet, "%theme%", config.getTheme());
+        values.put("label", escapeHtml(labelPlain));
+        values.put("sitemap", sitemap);
+        String snippet = template.render(values);
 
         String[] parts = snippet.split("%children%");
 
@@ -124,11 +132,29 @@ public class PageRenderer extends AbstractWidgetRenderer {
             processChildren(preChildren, postChildren, children);
         } else if (parts.length > 2) {
             logger.error("Snippet '{}' contains multiple %children% sections, but only one is allowed!",
-                    async ? "layer" : "main");
+                    skeleton);
         }
         return preChildren.append(postChildren);
     }
 
+    /**
+     * Fills in the values of a page skeleton which are the same for all pages, i.e. the configuration and the
+     * localized texts.
+     *
+     * @param skeleton the compiled skeleton snippet
+     * @return the skeleton with the page specific placeholders left
+     */
+    private SnippetTemplate bindSkeleton(SnippetTemplate skeleton) {
+        Map<String, String> values = new HashMap<>();
+        values.put("main.offline-msg", localizeText("@text/main.offline-msg"));
+        values.put("main.long-polling-mode-msg", localizeText("@text/main.long-polling-mode-msg"));
+        values.put("servletname", WebAppServlet.SERVLET_NAME);
+        values.put("htmlclass", config.getCssClassList());
+        values.put("icon_type", config.getIconType());
+        values.put("theme", config.getTheme());
+        return skeleton.bind(values);
+    }
+
     private void processChildren(StringBuilder sb_pre, StringBuilder sb_post, EList<Widget> children)
             throws RenderException {
         // put a single frame around all children widgets, if there are no explicit frames
@@ -137,10 +163,11 @@ public class PageRenderer extends AbstractWidgetRenderer {
             EObject parent = itemUIRegistry.getParent((Widget) firstChild);
             if (!(firstChild instanceof Frame || parent instanceof Frame || parent instanceof Sitemap
                     || parent instanceof org.eclipse.smarthome.model.sitemap.List)) {
-                String frameSnippet = getSnippet("frame");
-                frameSnippet = StringUtils.replace(frameSnippet, "%widget_id%", "");
-                frameSnippet = StringUtils.replace(frameSnippet, "%label%", "");
-                frameSnippet = StringUtils.replace(frameSnippet, "%frame_class%", "mdl-form--no-label");
+                Map<String, String> values = new HashMap<>();
+                values.put("widget_id", "");
+                values.put("label", "");
+                values.put("frame_class", "mdl-form--no-label");
+                String frameSnippet = getTemplate("frame").render(values);
 
                 String[] parts = frameSnippet.split("%children%");
                 if (parts.length > 1) {
@@ -205,6 +232,8 @@ public class PageRenderer extends AbstractWidgetRenderer {
     @Override
     public void setConfig(WebAppConfig config) {
         this.config = config;
+        skeletonCache.clear();
+        sitemapListCache.clear();
         for (WidgetRenderer renderer : widgetRenderers) {
             renderer.setConfig(config);
         }
@@ -222,34 +251,42 @@ public class PageRenderer extends AbstractWidgetRenderer {
             }
         }
 
-        String pageSnippet = getSnippet("main_static");
-        String listSnippet = getSnippet("sitemaps_list");
-        String sitemapSnippet = getSnippet("sitemaps_list_item");
+        // the list only changes with the installed sitemaps, the configuration and the language
+        String cacheKey = localeProvider.getLocale() + "|" + sitemapList;
+        String page = sitemapListCache.get(cacheKey);
+        if (page == null) {
+            page = renderSitemapList(sitemapList);
+            sitemapListCache.put(cacheKey, page);
+        }
+        return page;
+    }
 
+    private String renderSitemapList(List<String> sitemapList) throws RenderException {
         StringBuilder sb = new StringBuilder();
         if (sitemapList.isEmpty()) {
-            String listEmptySnippet = getSnippet("sitemaps_list_empty");
-            listEmptySnippet = StringUtils.replace(listEmptySnippet, "%sitemaps-list-empty.info%",
-                    localizeText("@text/sitemaps-list-empty.info"));
-            sb.append(listEmptySnippet);
+            Map<String, String> emptyValues = new HashMap<>();
+            emptyValues.put("sitemaps-list-empty.info", localizeText("@text/sitemaps-list-empty.info"));
+            getTemplate("sitemaps_list_empty").render(sb, emptyValues);
         } else {
+            SnippetTemplate sitemapTemplate = getTemplate("sitemaps_list_item");
+            Map<String, String> sitemapValues = new HashMap<>();
             for (String sitemap : sitemapList) {
-                sb.append(StringUtils.replace(sitemapSnippet, "%sitemap%", sitemap));
+                sitemapValues.put("sitemap", sitemap);
+                sitemapTemplate.render(sb, sitemapValues);
             }
         }
 
-        listSnippet = StringUtils.replace(listSnippet, "%sitemaps-list.welcome%",
-                localizeText("@text/sitemaps-list.welcome"));
-        listSnippet = StringUtils.replace(listSnippet, "%sitemaps-list.available-sitemaps%",
-                localizeText("@text/sitemaps-list.available-sitemaps"));
-        listSnippet = StringUtils.replace(listSnippet, "%items%", sb.toString());
+        Map<String, String> listValues = new HashMap<>();
+        listValues.put("sitemaps-list.welcome", localizeText("@text/sitemaps-list.welcome"));
+        listValues.put("sitemaps-list.available-sitemaps", localizeText("@text/sitemaps-list.available-sitemaps"));
+        listValues.put("items", sb.toString());
 
-        pageSnippet = StringUtils.replace(pageSnippet, "%title%", "BasicUI");
-        pageSnippet = StringUtils.replace(pageSnippet, "%htmlclass%",
-                config.getCssClassList() + " page-welcome-sitemaps");
-        pageSnippet = StringUtils.replace(pageSnippet, "%content%", listSnippet);
+        Map<String, String> pageValues = new HashMap<>();
+        pageValues.put("title", "BasicUI");
+        pageValues.put("htmlclass", config.getCssClassList() + " page-welcome-sitemaps");
+        pageValues.put("content", getTemplate("sitemaps_list").render(listValues));
 
-        return pageSnippet;
+        return getTemplate("main_static").render(pageValues);
     }
 
     @Override
@@ -12,7 +12,8 @@
  */
 package org.openhab.ui.basic.internal.render;
 
-import org.apache.commons.lang.StringUtils;
+import java.util.Map;
+
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.smarthome.model.sitemap.Slider;
 import org.eclipse.smarthome.model.sitemap.Widget;
@@ -63,25 +64,25 @@ public class SliderRenderer extends AbstractWidgetRenderer {
         Slider s = (Slider) w;
 
         String snippetName = "slider";
-        String snippet = getSnippet(snippetName);
+        SnippetTemplate template = getTemplate(snippetName);
 
         // set the default send-update frequency to 200ms
         String frequency = s.getFrequency() == 0 ? "200" : Integer.toString(s.getFrequency());
 
         String unit = getUnitForWidget(w);
 
-        snippet = preprocessSnippet(snippet, w);
-        snippet = StringUtils.replace(snippet, "%frequency%", frequency);
-        snippet = StringUtils.replace(snippet, "%switch%", s.isSwitchEnabled() ? "1" : "0");
-        snippet = StringUtils.replace(snippet, "%unit%", unit);
-        snippet = StringUtils.replace(snippet, "%minValue%", minValueOf(s));
-        snippet = StringUtils.replace(snippet, "%maxValue%", maxValueOf(s));
-        snippet = StringUtils.replace(snippet, "%step%", stepOf(s));
+        Map<String, String> values = preprocessSnippet(w);
+        values.put("frequency", frequency);
+        values.put("switch", s.isSwitchEnabled() ? "1" : "0");
+        values.put("unit", unit);
+        values.put("minValue", minValueOf(s));
+        values.put("maxValue", maxValueOf(s));
+        values.put("step", stepOf(s));
 
         // Process the color tags
-        snippet = processColor(w, snippet);
+        processColor(w, values);
 
-        sb.append(snippet);
+        template.render(sb, values);
         return null;
     }
 
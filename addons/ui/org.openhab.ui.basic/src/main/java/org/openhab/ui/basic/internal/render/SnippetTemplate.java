@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.basic.internal.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A html snippet compiled into its literal parts and the placeholders between them, like
+ * <code>&lt;div id="%widget_id%"&gt;</code>.
+ *
+ * Rendering appends the literal parts and the values of the placeholders to a buffer in a single pass. In contrast
+ * to replacing the placeholders one after the other, values are never scanned for further placeholders.
+ * Placeholders without a value are kept as they are, e.g. <code>%children%</code>.
+ *
+ * Templates are immutable and can be shared between threads.
+ *
+ * @author agent - Initial contribution
+ */
+public class SnippetTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("%([a-zA-Z0-9_.\\-]+)%");
+
+    /* the literal parts, one more than placeholders */
+    private final String[] literals;
+
+    /* the names of the placeholders, without the surrounding % characters */
+    private final String[] placeholders;
+
+    private final int literalLength;
+
+    private SnippetTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a snippet.
+     *
+     * @param snippet html code containing placeholders
+     * @return the compiled snippet
+     */
+    public static SnippetTemplate compile(String snippet) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(snippet);
+        int start = 0;
+        while (matcher.find()) {
+            literals.add(snippet.substring(start, matcher.start()));
+            placeholders.add(matcher.group(1));
+            start = matcher.end();
+        }
+        literals.add(snippet.substring(start));
+        return new SnippetTemplate(literals.toArray(new String[literals.size()]),
+                placeholders.toArray(new String[placeholders.size()]));
+    }
+
+    /**
+     * Renders the snippet.
+     *
+     * @param sb the buffer to append the html code to
+     * @param values the values by placeholder name (without the surrounding % characters)
+     */
+    public void render(StringBuilder sb, Map<String, String> values) {
+        sb.ensureCapacity(sb.length() + literalLength + 16 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(literals[i]);
+            String value = values.get(placeholders[i]);
+            if (value != null) {
+                sb.append(value);
+            } else {
+                sb.append('%').append(placeholders[i]).append('%');
+            }
+        }
+        sb.append(literals[placeholders.length]);
+    }
+
+    /**
+     * Renders the snippet.
+     *
+     * @param values the values by placeholder name (without the surrounding % characters)
+     * @return the html code
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder sb = new StringBuilder();
+        render(sb, values);
+        return sb.toString();
+    }
+
+    /**
+     * Fills in some of the placeholders ahead of rendering, e.g. values which are the same for all pages.
+     *
+     * @param values the values by placeholder name (without the surrounding % characters)
+     * @return a template with the remaining placeholders
+     */
+    public SnippetTemplate bind(Map<String, String> values) {
+        List<String> newLiterals = new ArrayList<>();
+        List<String> newPlaceholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = values.get(placeholders[i]);
+            if (value != null) {
+                literal.append(value);
+            } else {
+                newLiterals.add(literal.toString());
+                newPlaceholders.add(placeholders[i]);
+                literal.setLength(0);
+            }
+            literal.append(literals[i + 1]);
+        }
+        newLiterals.add(literal.toString());
+        return new SnippetTemplate(newLiterals.toArray(new String[newLiterals.size()]),
+                newPlaceholders.toArray(new String[newPlaceholders.size()]));
+    }
+}
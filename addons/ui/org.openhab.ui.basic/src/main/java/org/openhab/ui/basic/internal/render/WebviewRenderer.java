@@ -12,7 +12,8 @@
  */
 package org.openhab.ui.basic.internal.render;
 
-import org.apache.commons.lang.StringUtils;
+import java.util.Map;
+
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.smarthome.model.sitemap.Webview;
 import org.eclipse.smarthome.model.sitemap.Widget;
@@ -55,21 +56,21 @@ public class WebviewRenderer extends AbstractWidgetRenderer {
     @Override
     public EList<Widget> renderWidget(Widget w, StringBuilder sb) throws RenderException {
         Webview webview = (Webview) w;
-        String snippet = getSnippet("webview");
-        snippet = preprocessSnippet(snippet, webview);
+        SnippetTemplate template = getTemplate("webview");
+        Map<String, String> values = preprocessSnippet(webview);
         // Process the color tags
-        snippet = processColor(w, snippet);
+        processColor(w, values);
 
-        snippet = StringUtils.replace(snippet, "%url%", webview.getUrl());
+        values.put("url", webview.getUrl());
 
         int height = webview.getHeight();
         if (height == 0) {
             height = 4; // set default height to something viewable
         }
         height = height * 36;
-        snippet = StringUtils.replace(snippet, "%height%", Integer.toString(height));
+        values.put("height", Integer.toString(height));
 
-        sb.append(snippet);
+        template.render(sb, values);
         return null;
     }
 
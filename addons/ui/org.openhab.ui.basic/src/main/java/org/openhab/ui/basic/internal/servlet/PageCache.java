@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.basic.internal.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class keeps the latest version of the pages served by the {@link WebAppServlet}, together with their entity
+ * tag and their gzip compressed content.
+ *
+ * The entity tag is computed from the rendered page, so it changes with anything shown on the page, e.g. item
+ * states, labels, visibility or the sitemap itself. As long as a page does not change, it is compressed only once.
+ *
+ * @author agent - Initial contribution
+ */
+public class PageCache {
+
+    /* the maximum number of pages kept, the least recently served page is dropped first */
+    static final int MAX_PAGES = 100;
+
+    private static final String GZIP_SUFFIX = "-gzip";
+
+    private final Map<String, Page> pages = new LinkedHashMap<String, Page>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    /**
+     * A rendered page.
+     */
+    public static class Page {
+        private final byte[] content;
+        private final String hash;
+        private byte[] compressed;
+
+        private Page(byte[] content, String hash) {
+            this.content = content;
+            this.hash = hash;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Returns the gzip compressed content, it is compressed on the first call.
+         */
+        public synchronized byte[] getCompressedContent() throws IOException {
+            if (compressed == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(content);
+                }
+                compressed = out.toByteArray();
+            }
+            return compressed;
+        }
+
+        /**
+         * Returns the strong entity tag of the page, including the quotes. The compressed content has its own tag.
+         *
+         * @param gzip true for the tag of the compressed content
+         */
+        public String getETag(boolean gzip) {
+            return "\"" + hash + (gzip ? GZIP_SUFFIX : "") + "\"";
+        }
+
+        /**
+         * Checks if a client has the current version of the page, either compressed or not.
+         *
+         * @param ifNoneMatch the value of the If-None-Match request header, may be null
+         * @return true if one of the tags matches
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                // If-None-Match uses the weak comparison, the weakness indicator is ignored
+                if (trimmed.startsWith("W/")) {
+                    trimmed = trimmed.substring(2);
+                }
+                if (trimmed.equals("*") || trimmed.equals(getETag(false)) || trimmed.equals(getETag(true))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the page for the given content. If the content did not change since the page was served the last time,
+     * the cached page is returned, including its compressed content.
+     *
+     * @param key identifies the page, e.g. by sitemap and widget
+     * @param content the rendered page
+     * @return the page
+     */
+    public Page get(String key, byte[] content) {
+        String hash = hash(content);
+        synchronized (pages) {
+            Page page = pages.get(key);
+            if (page == null || !page.hash.equals(hash)) {
+                page = new Page(content, hash);
+                pages.put(key, page);
+            }
+            return page;
+        }
+    }
+
+    /**
+     * Drops all pages.
+     */
+    public void clear() {
+        synchronized (pages) {
+            pages.clear();
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -13,14 +13,13 @@
 package org.openhab.ui.basic.internal.servlet;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
-import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -77,10 +76,14 @@ public class WebAppServlet extends BaseServlet {
     private static final String CONTENT_TYPE_ASYNC = "application/xml;charset=UTF-8";
     private static final String CONTENT_TYPE = "text/html;charset=UTF-8";
 
+    /* smaller pages are not worth compressing */
+    static final int MIN_COMPRESS_LENGTH = 1024;
+
     private PageRenderer renderer;
     private SitemapSubscriptionService subscriptions;
     private final WebAppConfig config = new WebAppConfig();
     protected Set<SitemapProvider> sitemapProviders = new CopyOnWriteArraySet<>();
+    private final PageCache pageCache = new PageCache();
 
     @Reference
     public void setSitemapSubscriptionService(SitemapSubscriptionService subscriptions) {
@@ -121,27 +124,78 @@ public class WebAppServlet extends BaseServlet {
             logger.error("Could not register static resources under {}", WEBAPP_ALIAS, e);
         }
 
-        config.applyConfig(configProps);
+        applyConfig(configProps);
     }
 
     @Modified
     protected void modified(Map<String, Object> configProps) {
+        applyConfig(configProps);
+    }
+
+    private void applyConfig(Map<String, Object> configProps) {
         config.applyConfig(configProps);
+        PageRenderer renderer = this.renderer;
+        if (renderer != null) {
+            // drops the pages rendered with the previous configuration
+            renderer.setConfig(config);
+        }
     }
 
     @Deactivate
     protected void deactivate() {
         super.deactivate(WEBAPP_ALIAS + "/" + SERVLET_NAME);
         httpService.unregister(WEBAPP_ALIAS);
+        pageCache.clear();
         logger.info("Stopped Basic UI");
     }
 
-    private void showSitemapList(ServletResponse res) throws IOException, RenderException {
-        PrintWriter resWriter;
-        resWriter = res.getWriter();
-        resWriter.append(renderer.renderSitemapList(sitemapProviders));
+    private void showSitemapList(HttpServletRequest req, HttpServletResponse res)
+            throws IOException, RenderException {
+        sendPage(req, res, "", CONTENT_TYPE, renderer.renderSitemapList(sitemapProviders));
+    }
+
+    /**
+     * Sends a rendered page. The page is tagged with an ETag computed from its content, so that clients which
+     * already have the current version get a 304 Not Modified response. If the client accepts it, the page is sent
+     * gzip compressed.
+     *
+     * @param req the request
+     * @param res the response
+     * @param key identifies the page
+     * @param contentType the content type of the page
+     * @param content the rendered page
+     */
+    void sendPage(HttpServletRequest req, HttpServletResponse res, String key, String contentType,
+            CharSequence content) throws IOException {
+        PageCache.Page page = pageCache.get(key, content.toString().getBytes(StandardCharsets.UTF_8));
+        boolean gzip = acceptsGzip(req) && page.getContent().length >= MIN_COMPRESS_LENGTH;
+
+        res.setContentType(contentType);
+        res.setHeader("ETag", page.getETag(gzip));
+        // clients may keep the page, but have to check whether it is still current
+        res.setHeader("Cache-Control", "no-cache");
+        res.setHeader("Vary", "Accept-Encoding");
+
+        if (page.matches(req.getHeader("If-None-Match"))) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
 
-        res.setContentType(CONTENT_TYPE);
+        byte[] body;
+        if (gzip) {
+            body = page.getCompressedContent();
+            res.setHeader("Content-Encoding", "gzip");
+        } else {
+            body = page.getContent();
+        }
+        res.setContentLength(body.length);
+        res.getOutputStream().write(body);
+        res.getOutputStream().close();
+    }
+
+    private boolean acceptsGzip(HttpServletRequest req) {
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
     }
 
     @Override
@@ -170,7 +224,7 @@ public class WebAppServlet extends BaseServlet {
 
         try {
             if (sitemap == null) {
-                showSitemapList(res);
+                showSitemapList(req, res);
                 return;
             }
 
@@ -213,13 +267,8 @@ public class WebAppServlet extends BaseServlet {
         } catch (RenderException e) {
             throw new ServletException(e.getMessage(), e);
         }
-        if (async) {
-            res.setContentType(CONTENT_TYPE_ASYNC);
-        } else {
-            res.setContentType(CONTENT_TYPE);
-        }
-        res.getWriter().append(result);
-        res.getWriter().close();
+        sendPage(req, res, sitemapName + "|" + widgetId + "|" + async, async ? CONTENT_TYPE_ASYNC : CONTENT_TYPE,
+                result);
     }
 
     @Override
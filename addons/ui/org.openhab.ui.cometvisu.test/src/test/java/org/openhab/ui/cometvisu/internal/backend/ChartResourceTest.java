@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.cometvisu.internal.backend;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.persistence.QueryablePersistenceService;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Test;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.DsType;
+import org.rrd4j.core.FetchData;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.RrdMemoryBackendFactory;
+
+/**
+ * Tests cases for the series data written by the {@link ChartResource}
+ *
+ * @author agent - Initial contribution
+ */
+public class ChartResourceTest {
+
+    // start of a minute, in milliseconds
+    private static final long T0 = 1_500_000_000_000L;
+
+    private final ChartResource resource = new ChartResource();
+    private final List<HistoricItem> historicItems = new ArrayList<>();
+
+    private void addHistoricItem(long time, double value) {
+        HistoricItem historicItem = mock(HistoricItem.class);
+        when(historicItem.getTimestamp()).thenReturn(new Date(time));
+        when(historicItem.getState()).thenReturn(new DecimalType(value));
+        historicItems.add(historicItem);
+    }
+
+    /**
+     * adds values at the start of an interval of one minute, inside it, at its last millisecond, at the start of
+     * the next interval and after an interval without values
+     */
+    private void addIntervalValues() {
+        addHistoricItem(T0, 2);
+        addHistoricItem(T0 + 1000, 9);
+        addHistoricItem(T0 + 59_999, 4);
+        addHistoricItem(T0 + 60_000, 5);
+        addHistoricItem(T0 + 180_001, 1);
+    }
+
+    private String getPersistenceSeries(ConsolFun consolidationFunction, long resolution) throws IOException {
+        QueryablePersistenceService persistenceService = mock(QueryablePersistenceService.class);
+        when(persistenceService.query(any(FilterCriteria.class))).thenReturn(historicItems);
+        Item item = mock(Item.class);
+        when(item.getName()).thenReturn("Temperature");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        resource.getPersistenceSeries(persistenceService, item, consolidationFunction, new Date(T0),
+                new Date(T0 + 240_000), resolution).write(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writesAllValuesWithoutResolution() throws IOException {
+        addIntervalValues();
+
+        String expected = series(row(T0, "2.0"), row(T0 + 1000, "9.0"), row(T0 + 59_999, "4.0"),
+                row(T0 + 60_000, "5.0"), row(T0 + 180_001, "1.0"));
+        for (ConsolFun consolidationFunction : ConsolFun.values()) {
+            assertThat(consolidationFunction.name(), getPersistenceSeries(consolidationFunction, 0), is(expected));
+        }
+    }
+
+    @Test
+    public void writesNoValues() throws IOException {
+        assertThat(getPersistenceSeries(ConsolFun.AVERAGE, 0), is("[]"));
+        assertThat(getPersistenceSeries(ConsolFun.AVERAGE, 60), is("[]"));
+    }
+
+    @Test
+    public void skipsStatesWithoutValue() throws IOException {
+        addHistoricItem(T0, 2);
+        HistoricItem undefined = mock(HistoricItem.class);
+        when(undefined.getTimestamp()).thenReturn(new Date(T0 + 1000));
+        when(undefined.getState()).thenReturn(UnDefType.UNDEF);
+        historicItems.add(undefined);
+
+        assertThat(getPersistenceSeries(ConsolFun.AVERAGE, 60), is(series(row(T0, "2.0"))));
+    }
+
+    @Test
+    public void consolidatesAverage() throws IOException {
+        addIntervalValues();
+        assertThat(getPersistenceSeries(ConsolFun.AVERAGE, 60), is(consolidated("5.0", "5.0", "1.0")));
+    }
+
+    @Test
+    public void consolidatesMin() throws IOException {
+        addIntervalValues();
+        assertThat(getPersistenceSeries(ConsolFun.MIN, 60), is(consolidated("2.0", "5.0", "1.0")));
+    }
+
+    @Test
+    public void consolidatesMax() throws IOException {
+        addIntervalValues();
+        assertThat(getPersistenceSeries(ConsolFun.MAX, 60), is(consolidated("9.0", "5.0", "1.0")));
+    }
+
+    @Test
+    public void consolidatesFirst() throws IOException {
+        addIntervalValues();
+        assertThat(getPersistenceSeries(ConsolFun.FIRST, 60), is(consolidated("2.0", "5.0", "1.0")));
+    }
+
+    @Test
+    public void consolidatesLast() throws IOException {
+        addIntervalValues();
+        assertThat(getPersistenceSeries(ConsolFun.LAST, 60), is(consolidated("4.0", "5.0", "1.0")));
+    }
+
+    @Test
+    public void consolidatesTotal() throws IOException {
+        addIntervalValues();
+        assertThat(getPersistenceSeries(ConsolFun.TOTAL, 60), is(consolidated("15.0", "5.0", "1.0")));
+    }
+
+    /**
+     * the series of {@link #addIntervalValues()} consolidated to one minute, the interval without values is left out
+     */
+    private static String consolidated(String first, String second, String third) {
+        return series(row(T0, first), row(T0 + 60_000, second), row(T0 + 180_000, third));
+    }
+
+    private static String series(String... rows) {
+        return "[" + String.join(",", rows) + "]";
+    }
+
+    /**
+     * @param time timestamp of the row in milliseconds
+     */
+    private static String row(long time, String... values) {
+        return "[" + time + ",[\"" + String.join("\",\"", values) + "\"]]";
+    }
+
+    /**
+     * creates an rrd with one value per step and fetches the values of the given time range
+     *
+     * @param name unique name of the rrd
+     * @param step step of the rrd in seconds
+     * @param start time of the first value and start of the fetched time range in seconds
+     * @param end end of the fetched time range in seconds
+     * @param values the values to store
+     */
+    private static FetchData fetchRrdData(String name, long step, long start, long end, double... values)
+            throws IOException {
+        RrdDef rrdDef = new RrdDef(name, start - step, step);
+        rrdDef.addDatasource("state", DsType.GAUGE, step * 2, Double.NaN, Double.NaN);
+        rrdDef.addArchive(ConsolFun.AVERAGE, 0.5, 1, 100);
+        RrdDb rrdDb = new RrdDb(rrdDef, new RrdMemoryBackendFactory());
+        try {
+            for (int i = 0; i < values.length; i++) {
+                rrdDb.createSample(start + i * step).setValue(0, values[i]).update();
+            }
+            return rrdDb.createFetchRequest(ConsolFun.AVERAGE, start, end).fetchData();
+        } finally {
+            rrdDb.close();
+        }
+    }
+
+    private String writeRrdData(FetchData... data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        resource.writeRrdData(Arrays.asList(data), output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writesRrdSeries() throws IOException {
+        long start = T0 / 1000;
+        FetchData data = fetchRrdData("single", 60, start, start + 120, 1, 2, 3);
+
+        assertThat(writeRrdData(data),
+                is(series(row(T0, "1.0"), row(T0 + 60_000, "2.0"), row(T0 + 120_000, "3.0"))));
+    }
+
+    @Test
+    public void joinsRrdRowsWithSameTimestamp() throws IOException {
+        long start = T0 / 1000;
+        FetchData first = fetchRrdData("first", 60, start, start + 120, 1, 2, 3);
+        FetchData second = fetchRrdData("second", 60, start, start + 120, 4, 5, 6);
+
+        assertThat(writeRrdData(first, second),
+                is(series(row(T0, "1.0", "4.0"), row(T0 + 60_000, "2.0", "5.0"), row(T0 + 120_000, "3.0", "6.0"))));
+    }
+
+    @Test
+    public void mergesRrdSeriesWithMissingRows() throws IOException {
+        long start = T0 / 1000;
+        // the last row of the first series has no value
+        FetchData first = fetchRrdData("long", 60, start, start + 240, 1, 2, 3, 4);
+        FetchData second = fetchRrdData("short", 60, start + 120, start + 180, 5, 6);
+
+        assertThat(writeRrdData(first, second), is(series(row(T0, "1.0"), row(T0 + 60_000, "2.0"),
+                row(T0 + 120_000, "3.0", "5.0"), row(T0 + 180_000, "4.0", "6.0"), row(T0 + 240_000, "null"))));
+        // the values of a row are ordered like the series
+        assertThat(writeRrdData(second, first), is(series(row(T0, "1.0"), row(T0 + 60_000, "2.0"),
+                row(T0 + 120_000, "5.0", "3.0"), row(T0 + 180_000, "6.0", "4.0"), row(T0 + 240_000, "null"))));
+    }
+
+    @Test
+    public void mergesRrdSeriesWithUnequalSteps() throws IOException {
+        long start = T0 / 1000;
+        FetchData minutes = fetchRrdData("minutes", 60, start, start + 240, 1, 2, 3, 4, 5);
+        FetchData twoMinutes = fetchRrdData("twoMinutes", 120, start, start + 240, 6, 7, 8);
+
+        assertThat(writeRrdData(minutes, twoMinutes), is(series(row(T0, "1.0", "6.0"), row(T0 + 60_000, "2.0"),
+                row(T0 + 120_000, "3.0", "7.0"), row(T0 + 180_000, "4.0"), row(T0 + 240_000, "5.0", "8.0"))));
+    }
+
+    @Test
+    public void writesNoRrdSeries() throws IOException {
+        assertThat(writeRrdData(), is("[]"));
+    }
+}
@@ -15,17 +15,18 @@ package org.openhab.ui.cometvisu.internal.backend;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -35,8 +36,10 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.GroupItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemNotFoundException;
@@ -73,19 +76,12 @@ import org.slf4j.LoggerFactory;
 public class ChartResource implements RESTResource {
     private final Logger logger = LoggerFactory.getLogger(ChartResource.class);
 
-    // pattern RRDTool uses to format doubles in XML files
-    private static final String PATTERN = "0.0000000000E00";
-
-    private static final DecimalFormat DECIMAL_FORMAT;
+    // thread pool the rrd files of group members are read from
+    private static final String THREADPOOL_NAME = "cometvisu-chart";
 
     protected static final String RRD_FOLDER = org.eclipse.smarthome.config.core.ConfigConstants.getUserDataFolder()
             + File.separator + "persistence" + File.separator + "rrd4j";
 
-    static {
-        DECIMAL_FORMAT = (DecimalFormat) NumberFormat.getNumberInstance(Locale.ENGLISH);
-        DECIMAL_FORMAT.applyPattern(PATTERN);
-    }
-
     protected static Map<String, QueryablePersistenceService> persistenceServices = new HashMap<>();
 
     private ItemRegistry itemRegistry;
@@ -170,11 +166,12 @@ public class ChartResource implements RESTResource {
             } else {
                 logger.debug("using {} persistence for item {}", persistenceService.getId(), itemName);
             }
-            Object data = null;
+            StreamingOutput data = null;
             if (persistenceService.getId().equals("rrd4j")) {
                 data = getRrdSeries(persistenceService, item, consilidationFunction, startTime, endTime, resolution);
             } else {
-                data = getPersistenceSeries(persistenceService, item, startTime, endTime, resolution);
+                data = getPersistenceSeries(persistenceService, item, consilidationFunction, startTime, endTime,
+                        resolution);
             }
             return Response.ok(data, responseType).build();
         } catch (ItemNotFoundException e1) {
@@ -184,10 +181,22 @@ public class ChartResource implements RESTResource {
         return Response.serverError().build();
     }
 
-    public Object getPersistenceSeries(QueryablePersistenceService persistenceService, Item item, Date timeBegin,
-            Date timeEnd, long resolution) {
-        Map<Long, List<String>> data = new HashMap<>();
-
+    /**
+     * returns the series data of a persistence service, an array of [[timestamp,[data]]]
+     *
+     * The data is read from the persistence service while it is written to the response. If a resolution is given,
+     * the values are consolidated to one value per resolution interval.
+     *
+     * @param persistenceService
+     * @param item
+     * @param consilidationFunction function used to consolidate the values of one interval
+     * @param timeBegin
+     * @param timeEnd
+     * @param resolution length of the intervals in seconds, 0 for all values
+     * @return
+     */
+    public StreamingOutput getPersistenceSeries(QueryablePersistenceService persistenceService, Item item,
+            ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution) {
         // Define the data filter
         FilterCriteria filter = new FilterCriteria();
         filter.setBeginDate(timeBegin);
@@ -195,29 +204,31 @@ public class ChartResource implements RESTResource {
         filter.setItemName(item.getName());
         filter.setOrdering(Ordering.ASCENDING);
 
-        // Get the data from the persistence store
-        Iterable<HistoricItem> result = persistenceService.query(filter);
-        Iterator<HistoricItem> it = result.iterator();
-
-        // Iterate through the data
-        int dataCounter = 0;
-        while (it.hasNext()) {
-            dataCounter++;
-            HistoricItem historicItem = it.next();
-            org.eclipse.smarthome.core.types.State state = historicItem.getState();
-            if (state instanceof DecimalType) {
-                List<String> vals = new ArrayList<>();
-                vals.add(formatDouble(((DecimalType) state).doubleValue(), "null", true));
-                data.put(historicItem.getTimestamp().getTime(), vals);
+        return output -> {
+            try (ChartSeriesWriter writer = new ChartSeriesWriter(output)) {
+                Interval interval = new Interval(consilidationFunction, resolution * 1000);
+
+                // Iterate through the data, the persistence service delivers it in ascending order
+                int dataCounter = 0;
+                for (HistoricItem historicItem : persistenceService.query(filter)) {
+                    dataCounter++;
+                    org.eclipse.smarthome.core.types.State state = historicItem.getState();
+                    if (state instanceof DecimalType) {
+                        interval.add(historicItem.getTimestamp().getTime(), ((DecimalType) state).doubleValue(),
+                                writer);
+                    }
+                }
+                interval.write(writer);
+                logger.debug("'{}' querying item '{}' from '{}' to '{}' => '{}' results", persistenceService.getId(),
+                        filter.getItemName(), filter.getBeginDate(), filter.getEndDate(), dataCounter);
             }
-        }
-        logger.debug("'{}' querying item '{}' from '{}' to '{}' => '{}' results", persistenceService.getId(),
-                filter.getItemName(), filter.getBeginDate(), filter.getEndDate(), dataCounter);
-        return convertToRrd(data);
+        };
     }
 
     /**
-     * returns a rrd series data, an array of [[timestamp,data1,data2,...]]
+     * returns a rrd series data, an array of [[timestamp,[data1,data2,...]]]
+     *
+     * The rrd files of group members are read in parallel.
      *
      * @param persistenceService
      * @param item
@@ -227,9 +238,9 @@ public class ChartResource implements RESTResource {
      * @param resolution
      * @return
      */
-    public Object getRrdSeries(QueryablePersistenceService persistenceService, Item item,
+    public StreamingOutput getRrdSeries(QueryablePersistenceService persistenceService, Item item,
             ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution) {
-        Map<Long, List<String>> data = new TreeMap<>();
+        List<FetchData> data = new ArrayList<>();
         try {
             List<String> itemNames = new ArrayList<>();
 
@@ -241,71 +252,150 @@ public class ChartResource implements RESTResource {
             } else {
                 itemNames.add(item.getName());
             }
-            for (String itemName : itemNames) {
-                addRrdData(data, itemName, consilidationFunction, timeBegin, timeEnd, resolution);
+            if (itemNames.size() == 1) {
+                data.add(fetchRrdData(itemNames.get(0), consilidationFunction, timeBegin, timeEnd, resolution));
+            } else {
+                ExecutorService pool = ThreadPoolManager.getPool(THREADPOOL_NAME);
+                List<CompletableFuture<FetchData>> futures = new ArrayList<>();
+                for (String itemName : itemNames) {
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return fetchRrdData(itemName, consilidationFunction, timeBegin, timeEnd, resolution);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, pool));
+                }
+                try {
+                    for (CompletableFuture<FetchData> future : futures) {
+                        data.add(future.join());
+                    }
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause()
+                            : e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
             }
-
         } catch (FileNotFoundException e) {
             // rrd file does not exist, fallback to generic persistence service
             logger.debug("no rrd file found '{}'", (RRD_FOLDER + File.separator + item.getName() + ".rrd"));
-            return getPersistenceSeries(persistenceService, item, timeBegin, timeEnd, resolution);
+            return getPersistenceSeries(persistenceService, item, consilidationFunction, timeBegin, timeEnd,
+                    resolution);
         } catch (Exception e) {
             logger.error("{}: fallback to generic persistance service", e.getLocalizedMessage());
-            return getPersistenceSeries(persistenceService, item, timeBegin, timeEnd, resolution);
+            return getPersistenceSeries(persistenceService, item, consilidationFunction, timeBegin, timeEnd,
+                    resolution);
         }
-        return convertToRrd(data);
+        return output -> writeRrdData(data, output);
     }
 
-    private List<Object> convertToRrd(Map<Long, List<String>> data) {
-        // sort data by key
-        Map<Long, List<String>> treeMap = new TreeMap<>(data);
-        List<Object> rrd = new ArrayList<>();
-        for (Long time : treeMap.keySet()) {
-            Object[] entry = new Object[2];
-            entry[0] = time;
-            entry[1] = data.get(time);
-            rrd.add(entry);
+    private FetchData fetchRrdData(String itemName, ConsolFun consilidationFunction, Date timeBegin, Date timeEnd,
+            long resolution) throws IOException {
+        RrdDb rrdDb = new RrdDb(RRD_FOLDER + File.separator + itemName + ".rrd");
+        try {
+            FetchRequest fetchRequest = rrdDb.createFetchRequest(consilidationFunction,
+                    Util.getTimestamp(timeBegin), Util.getTimestamp(timeEnd), resolution);
+            FetchData fetchData = fetchRequest.fetchData();
+
+            logger.debug("RRD fetch returned '{}' rows and '{}' columns", fetchData.getRowCount(),
+                    fetchData.getColumnCount());
+            return fetchData;
+        } finally {
+            rrdDb.close();
         }
-        return rrd;
     }
 
-    private Map<Long, List<String>> addRrdData(Map<Long, List<String>> data, String itemName,
-            ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution) throws IOException {
-        RrdDb rrdDb = new RrdDb(RRD_FOLDER + File.separator + itemName + ".rrd");
-        FetchRequest fetchRequest = rrdDb.createFetchRequest(consilidationFunction, Util.getTimestamp(timeBegin),
-                Util.getTimestamp(timeEnd), resolution);
-        FetchData fetchData = fetchRequest.fetchData();
-        long[] timestamps = fetchData.getTimestamps();
-        double[][] values = fetchData.getValues();
+    /**
+     * writes the rows of all rrd files ordered by time, rows with the same timestamp are joined
+     */
+    void writeRrdData(List<FetchData> data, OutputStream output) throws IOException {
+        int[] rows = new int[data.size()];
+        try (ChartSeriesWriter writer = new ChartSeriesWriter(output)) {
+            while (true) {
+                long time = Long.MAX_VALUE;
+                for (int i = 0; i < data.size(); i++) {
+                    if (rows[i] < data.get(i).getRowCount()) {
+                        time = Math.min(time, data.get(i).getTimestamps()[rows[i]]);
+                    }
+                }
+                if (time == Long.MAX_VALUE) {
+                    return;
+                }
 
-        logger.debug("RRD fetch returned '{}' rows and '{}' columns", fetchData.getRowCount(),
-                fetchData.getColumnCount());
+                // change to milliseconds
+                writer.beginRow(time * 1000);
+                for (int i = 0; i < data.size(); i++) {
+                    FetchData fetchData = data.get(i);
+                    if (rows[i] < fetchData.getRowCount() && fetchData.getTimestamps()[rows[i]] == time) {
+                        double[][] values = fetchData.getValues();
+                        for (int dsIndex = 0; dsIndex < fetchData.getColumnCount(); dsIndex++) {
+                            writer.value(values[dsIndex][rows[i]]);
+                        }
+                        rows[i]++;
+                    }
+                }
+                writer.endRow();
+            }
+        }
+    }
 
-        for (int row = 0; row < fetchData.getRowCount(); row++) {
-            // change to microseconds
-            long time = timestamps[row] * 1000;
+    /**
+     * consolidates the values of one resolution interval to a single value
+     */
+    private static class Interval {
+        private final ConsolFun consilidationFunction;
+        private final long length;
+
+        private long start;
+        private int count;
+        private double value;
 
-            if (!data.containsKey(time)) {
-                data.put(time, new ArrayList<>());
+        Interval(ConsolFun consilidationFunction, long length) {
+            this.consilidationFunction = consilidationFunction;
+            this.length = Math.max(length, 1);
+        }
+
+        /**
+         * adds a value, the previous interval is written when the value belongs to the next one
+         */
+        void add(long time, double newValue, ChartSeriesWriter writer) throws IOException {
+            long newStart = time - Math.floorMod(time, length);
+            if (count > 0 && newStart != start) {
+                write(writer);
             }
-            List<String> vals = data.get(time);
-            int indexOffset = vals.size();
-            for (int dsIndex = 0; dsIndex < fetchData.getColumnCount(); dsIndex++) {
-                vals.add(dsIndex + indexOffset, formatDouble(values[dsIndex][row], "null", true));
+            if (count == 0) {
+                start = newStart;
+                value = newValue;
+            } else {
+                switch (consilidationFunction) {
+                    case MIN:
+                        value = Math.min(value, newValue);
+                        break;
+                    case MAX:
+                        value = Math.max(value, newValue);
+                        break;
+                    case FIRST:
+                        break;
+                    case LAST:
+                        value = newValue;
+                        break;
+                    default:
+                        // sum up for AVERAGE and TOTAL
+                        value += newValue;
+                        break;
+                }
             }
+            count++;
         }
-        rrdDb.close();
-
-        return data;
-    }
 
-    static String formatDouble(double x, String nanString, boolean forceExponents) {
-        if (Double.isNaN(x)) {
-            return nanString;
-        }
-        if (forceExponents) {
-            return DECIMAL_FORMAT.format(x);
+        void write(ChartSeriesWriter writer) throws IOException {
+            if (count == 0) {
+                return;
+            }
+            writer.beginRow(start);
+            writer.value(consilidationFunction == ConsolFun.AVERAGE ? value / count : value);
+            writer.endRow();
+            count = 0;
         }
-        return "" + x;
     }
 }
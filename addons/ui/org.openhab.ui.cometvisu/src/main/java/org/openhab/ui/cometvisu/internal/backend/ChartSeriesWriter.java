@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.ui.cometvisu.internal.backend;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * writes chart series data as a json array of [[timestamp,[value1,value2,...]],...] directly to a stream,
+ * row by row
+ *
+ * @author agent - Initial contribution
+ *
+ */
+class ChartSeriesWriter implements Closeable {
+
+    // value the client gets for missing data
+    private static final String NAN_VALUE = "null";
+
+    private final Writer writer;
+    private boolean firstRow = true;
+    private boolean firstValue;
+
+    ChartSeriesWriter(OutputStream output) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write('[');
+    }
+
+    /**
+     * starts a new row
+     *
+     * @param time timestamp of the row in milliseconds
+     */
+    void beginRow(long time) throws IOException {
+        if (!firstRow) {
+            writer.write(',');
+        }
+        firstRow = false;
+        firstValue = true;
+        writer.write('[');
+        writer.write(Long.toString(time));
+        writer.write(",[");
+    }
+
+    /**
+     * adds a value to the current row, values are written as strings like they always have been
+     */
+    void value(double value) throws IOException {
+        if (!firstValue) {
+            writer.write(',');
+        }
+        firstValue = false;
+        writer.write('"');
+        writer.write(Double.isNaN(value) ? NAN_VALUE : Double.toString(value));
+        writer.write('"');
+    }
+
+    void endRow() throws IOException {
+        writer.write("]]");
+    }
+
+    /**
+     * ends the array and flushes the data, the underlying stream is left open
+     */
+    @Override
+    public void close() throws IOException {
+        writer.write(']');
+        writer.flush();
+    }
+}